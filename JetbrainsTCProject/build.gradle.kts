@@ -1,5 +1,6 @@
 plugins {
     id("java")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "org.example"
@@ -25,4 +26,31 @@ dependencies {
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+// Drives FileChangesDetector against the embedded fake GitHub server, e.g.
+// ./gradlew loadTest -Dcommits=500 -Dconcurrency=16 -DlatencyMs=20
+tasks.register<JavaExec>("loadTest") {
+    description = "Runs the detection load test against a fake GitHub server."
+    group = "verification"
+    classpath = sourceSets["test"].runtimeClasspath
+    mainClass.set("org.DetectionLoadHarness")
+    systemProperties(System.getProperties().filterKeys { key ->
+        key in setOf("commits", "filesPerCommit", "candidateEvery", "detections", "concurrency",
+                "latencyMs", "jitterMs", "failureRate")
+    }.mapKeys { it.key.toString() })
+}
+
+// Benchmarks live in src/jmh/java and run with ./gradlew jmh; -PjmhIncludes=<regex> selects a subset.
+// The gc profiler reports gc.alloc.rate.norm, the bytes allocated per operation, next to the timings.
+// The test classes are on the benchmark classpath, so fakes such as FakeGitCmdExec are shared.
+jmh {
+    includeTests.set(true)
+    jmhVersion.set("1.37")
+    profilers.add("gc")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+    (findProperty("jmhIncludes") as String?)?.let { includes.add(it) }
+}
@@ -0,0 +1,45 @@
+package org.example;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deserialization of getCommit responses with many files, with and without the patches skipped as
+ * {@link GithubClient.Builder#ignoreFields} does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CommitJsonBenchmark {
+  @Param({"10", "300", "3000"})
+  public int files;
+
+  private byte[] json;
+  private ObjectReader reader;
+  private ObjectReader readerWithoutPatches;
+
+  @Setup
+  public void setUp() {
+    json = Fixtures.commitJson(Fixtures.sha(1), Fixtures.paths(files));
+    reader = new ObjectMapper().readerFor(GHGetCommitResponse.class);
+    var mapper = new ObjectMapper();
+    mapper.configOverride(File.class)
+            .setIgnorals(JsonIgnoreProperties.Value.forIgnoredProperties("patch"));
+    readerWithoutPatches = mapper.readerFor(GHGetCommitResponse.class);
+  }
+
+  @Benchmark
+  public GHGetCommitResponse readCommit() throws IOException {
+    return reader.readValue(json);
+  }
+
+  @Benchmark
+  public GHGetCommitResponse readCommitWithoutPatches() throws IOException {
+    return readerWithoutPatches.readValue(json);
+  }
+}
@@ -0,0 +1,61 @@
+package org.example;
+
+import org.FakeGitCmdExec;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole detection through the commit walk of {@link ApiRemoteChangeSource}, against a fake client that
+ * serves the commits from memory. Every commit modifies {@code filesPerCommit} files, a tenth of which
+ * were also modified locally.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DetectFileChangesBenchmark {
+  @Param({"10", "100", "1000"})
+  public int commits;
+
+  @Param({"10", "300"})
+  public int filesPerCommit;
+
+  private FileChangesDetector detector;
+
+  @Setup
+  public void setUp() {
+    var paths = Fixtures.paths(commits * filesPerCommit);
+    var commitSHAs = new ArrayList<String>();
+    var filesOfCommit = new HashMap<String, List<String>>();
+    for (int i = 0; i < commits; i++) {
+      var sha = Fixtures.sha(i + 2);
+      commitSHAs.add(sha);
+      filesOfCommit.put(sha, paths.subList(i * filesPerCommit, (i + 1) * filesPerCommit));
+    }
+    var mergeBase = Fixtures.sha(1);
+    commitSHAs.add(mergeBase);
+
+    var localPaths = new ArrayList<String>();
+    for (int i = 0; i < paths.size(); i += 10) {
+      localPaths.add(paths.get(i));
+    }
+    var diffOutput = new String(Fixtures.nameOnlyOutput(localPaths, '\n'), StandardCharsets.UTF_8);
+
+    var gitCmd = new FakeGitCmdExec(mergeBase, diffOutput);
+    var client = new FakeGithubClient(commitSHAs, filesOfCommit);
+    detector = new FileChangesDetector(client, gitCmd);
+    // Serializes every response once, so the measurement only covers reading them.
+    detect();
+  }
+
+  @Benchmark
+  public Set<String> detect() {
+    return detector.detectFileChanges(Fixtures.OWNER, Fixtures.REPOSITORY, "/nonexistent/benchmark-repo",
+            "main", "feature");
+  }
+}
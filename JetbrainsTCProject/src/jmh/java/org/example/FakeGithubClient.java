@@ -0,0 +1,100 @@
+package org.example;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers getCommit and listCommits requests of one repository from memory. Responses are serialized
+ * once per URL and deserialized on every request, so the benchmarks include the JSON parsing of a real
+ * client but no network.
+ */
+class FakeGithubClient extends GithubClient {
+  private static final String COMMITS_PATH = "/repos/" + Fixtures.OWNER + "/" + Fixtures.REPOSITORY + "/commits";
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final Map<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+  private final Map<String, Response> responses = new ConcurrentHashMap<>();
+  private final List<String> commitSHAs;
+  private final Map<String, List<String>> filesOfCommit;
+
+  /**
+   * @param commitSHAs the commits of the branch, newest first, ending with the merge base
+   * @param filesOfCommit the files every commit modified
+   */
+  FakeGithubClient(List<String> commitSHAs, Map<String, List<String>> filesOfCommit) {
+    super("benchmark-token");
+    this.commitSHAs = commitSHAs;
+    this.filesOfCommit = filesOfCommit;
+  }
+
+  @Override
+  public <T> GHResponse<T> send(GHRequest request, TypeReference<T> typeReference) {
+    var response = responses.computeIfAbsent(request.toString(), url -> respond(request.getUri()));
+    try {
+      T data = readers.computeIfAbsent(typeReference.getType(), type -> mapper.readerFor(mapper.constructType(type)))
+              .readValue(response.body());
+      return new GHResponse<>(new GHPage<>(data, response.linkHeader(), this, typeReference));
+    }
+    catch (IOException e) {
+      throw new GHApiException("Cannot read fake response for: " + request, e);
+    }
+  }
+
+  @Override
+  public <T> CompletableFuture<GHResponse<T>> sendAsync(GHRequest request, TypeReference<T> typeReference) {
+    try {
+      return CompletableFuture.completedFuture(send(request, typeReference));
+    }
+    catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  private Response respond(URI uri) {
+    var path = uri.getPath();
+    if (path.startsWith(COMMITS_PATH + "/")) {
+      var sha = path.substring(COMMITS_PATH.length() + 1);
+      return new Response(Fixtures.commitJson(sha, filesOfCommit.getOrDefault(sha, List.of())), null);
+    }
+    if (path.equals(COMMITS_PATH)) {
+      var params = queryParams(uri);
+      int perPage = Integer.parseInt(params.getOrDefault("per_page", "30"));
+      int page = Integer.parseInt(params.getOrDefault("page", "1"));
+      int lastPage = Math.max(1, (commitSHAs.size() + perPage - 1) / perPage);
+      var pageSHAs = commitSHAs.subList(Math.min((page - 1) * perPage, commitSHAs.size()),
+              Math.min(page * perPage, commitSHAs.size()));
+      String linkHeader = null;
+      if (page < lastPage) {
+        var url = "https://api.github.com" + COMMITS_PATH + "?per_page=" + perPage;
+        linkHeader = "<" + url + "&page=" + (page + 1) + ">; rel=\"next\", <" + url + "&page=" + lastPage + ">; rel=\"last\"";
+      }
+      return new Response(Fixtures.commitListJson(pageSHAs), linkHeader);
+    }
+    throw new GHApiException("Unexpected request: " + uri);
+  }
+
+  private static Map<String, String> queryParams(URI uri) {
+    var params = new HashMap<String, String>();
+    if (uri.getRawQuery() == null) return params;
+    for (var param: uri.getRawQuery().split("&")) {
+      int separator = param.indexOf('=');
+      params.put(URLDecoder.decode(param.substring(0, separator), StandardCharsets.UTF_8),
+              URLDecoder.decode(param.substring(separator + 1), StandardCharsets.UTF_8));
+    }
+    return params;
+  }
+
+  private record Response(byte[] body, String linkHeader) {}
+}
@@ -0,0 +1,126 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates deterministic GitHub API responses and git output of a given size for the benchmarks.
+ */
+final class Fixtures {
+  static final String OWNER = "owner";
+  static final String REPOSITORY = "repo";
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private Fixtures() {}
+
+  static String sha(int seed) {
+    var random = new Random(seed);
+    var sha = new StringBuilder(40);
+    for (int i = 0; i < 40; i++) {
+      sha.append(Character.forDigit(random.nextInt(16), 16));
+    }
+    return sha.toString();
+  }
+
+  /**
+   * Paths spread over a few hundred directories, like the files of a larger monorepo.
+   */
+  static List<String> paths(int count) {
+    var paths = new ArrayList<String>(count);
+    for (int i = 0; i < count; i++) {
+      paths.add("module" + (i % 40) + "/src/main/java/org/example/pkg" + (i % 300) + "/File" + i + ".java");
+    }
+    return paths;
+  }
+
+  static String linkHeader(String url, int page, int lastPage) {
+    return "<" + url + "&page=" + (page + 1) + ">; rel=\"next\", "
+            + "<" + url + "&page=" + lastPage + ">; rel=\"last\", "
+            + "<" + url + "&page=1>; rel=\"first\", "
+            + "<" + url + "&page=" + (page - 1) + ">; rel=\"prev\"";
+  }
+
+  /**
+   * A getCommit response with the given files, with patches and the other fields GitHub sends.
+   */
+  static byte[] commitJson(String sha, List<String> fileNames) {
+    var root = MAPPER.createObjectNode();
+    root.put("sha", sha);
+    root.put("url", "https://api.github.com/repos/owner/repo/commits/" + sha);
+    var commit = root.putObject("commit");
+    author(commit.putObject("author"));
+    author(commit.putObject("committer"));
+    commit.put("message", "Change " + sha);
+    commit.putObject("tree").put("sha", sha(sha.hashCode()));
+    commit.put("comment_count", 0);
+    var verification = commit.putObject("verification");
+    verification.put("verified", false);
+    verification.put("reason", "unsigned");
+    var parents = root.putArray("parents");
+    parents.addObject().put("sha", sha(sha.hashCode() + 1));
+
+    ArrayNode files = root.putArray("files");
+    for (var fileName: fileNames) {
+      ObjectNode file = files.addObject();
+      file.put("sha", sha(fileName.hashCode()));
+      file.put("filename", fileName);
+      file.put("status", "modified");
+      file.put("additions", 3);
+      file.put("deletions", 1);
+      file.put("changes", 4);
+      file.put("blob_url", "https://github.com/owner/repo/blob/" + sha + "/" + fileName);
+      file.put("raw_url", "https://github.com/owner/repo/raw/" + sha + "/" + fileName);
+      file.put("contents_url", "https://api.github.com/repos/owner/repo/contents/" + fileName + "?ref=" + sha);
+      file.put("patch", "@@ -10,7 +10,9 @@ class Example {\n   void run() {\n-    old();\n+    updated();\n+    more();\n+    andMore();\n   }\n }\n");
+    }
+    return write(root);
+  }
+
+  /**
+   * A listCommits page with the given commits.
+   */
+  static byte[] commitListJson(List<String> shas) {
+    var root = MAPPER.createArrayNode();
+    for (var sha: shas) {
+      var item = root.addObject();
+      item.put("sha", sha);
+      var commit = item.putObject("commit");
+      author(commit.putObject("author"));
+      author(commit.putObject("committer"));
+      commit.put("message", "Change " + sha);
+    }
+    return write(root);
+  }
+
+  /**
+   * Output of {@code git diff --name-only} with a trailing newline per path, or of its {@code -z} form.
+   */
+  static byte[] nameOnlyOutput(List<String> paths, char terminator) {
+    var output = new StringBuilder();
+    for (var path: paths) {
+      output.append(path).append(terminator);
+    }
+    return output.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static void author(ObjectNode user) {
+    user.put("name", "Developer");
+    user.put("email", "developer@example.com");
+    user.put("date", "2025-04-01T10:00:00Z");
+  }
+
+  private static byte[] write(Object tree) {
+    try {
+      return MAPPER.writeValueAsBytes(tree);
+    }
+    catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
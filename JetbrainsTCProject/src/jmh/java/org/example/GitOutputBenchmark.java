@@ -0,0 +1,67 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning the output of {@code git diff --name-only} into a set of paths, the way
+ * {@link FileChangesDetector} used to with {@code String.split}, through the record splitting of
+ * {@link GitOutputConsumer}, and into a {@link PathTable} from text and from {@code -z} bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GitOutputBenchmark {
+  private static final int CHUNK_SIZE = 8192;
+
+  @Param({"100", "10000", "200000"})
+  public int paths;
+
+  private String lines;
+  private byte[] lineBytes;
+  private byte[] nulTerminatedBytes;
+
+  @Setup
+  public void setUp() {
+    var pathList = Fixtures.paths(paths);
+    lineBytes = Fixtures.nameOnlyOutput(pathList, '\n');
+    nulTerminatedBytes = Fixtures.nameOnlyOutput(pathList, '\0');
+    lines = new String(lineBytes, StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public Set<String> splitIntoHashSet() {
+    return new HashSet<>(Arrays.asList(lines.split("\n")));
+  }
+
+  @Benchmark
+  public void splitStreamedLines(Blackhole blackhole) {
+    feed(GitOutputConsumer.lines(blackhole::consume), lineBytes);
+  }
+
+  @Benchmark
+  public Set<String> parseIntoPathTable() {
+    return new PathTable().parseLines(lines);
+  }
+
+  @Benchmark
+  public Set<String> streamIntoPathTable() {
+    var table = new PathTable();
+    var set = table.newSet();
+    feed(table.nulTerminated(set), nulTerminatedBytes);
+    return set;
+  }
+
+  private static void feed(GitOutputConsumer consumer, byte[] output) {
+    for (int offset = 0; offset < output.length; offset += CHUNK_SIZE) {
+      consumer.accept(output, offset, Math.min(CHUNK_SIZE, output.length - offset));
+    }
+    consumer.finish();
+  }
+}
@@ -0,0 +1,25 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the {@code Link} header that every page of a paginated response carries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LinkHeaderBenchmark {
+  private String linkHeader;
+
+  @Setup
+  public void setUp() {
+    linkHeader = Fixtures.linkHeader("https://api.github.com/repositories/1300192/commits?sha=main&per_page=100", 7, 42);
+  }
+
+  @Benchmark
+  public GHPage<Object> parseLinkHeader() {
+    return new GHPage<>(null, linkHeader, null, null);
+  }
+}
@@ -0,0 +1,42 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the request URLs, which happens once per commit and page of a detection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestBuilderBenchmark {
+  private String sha;
+  private String nextUrl;
+
+  @Setup
+  public void setUp() {
+    sha = Fixtures.sha(1);
+    nextUrl = "https://api.github.com/repositories/1300192/commits?sha=main&since=2025-04-01T10%3A00%3A00Z&per_page=100&page=2";
+  }
+
+  @Benchmark
+  public GHRequest getCommit() {
+    return GHRequestBuilder.getCommit(Fixtures.OWNER, Fixtures.REPOSITORY, sha).build();
+  }
+
+  @Benchmark
+  public GHRequest listCommits() {
+    return GHRequestBuilder.listCommits(Fixtures.OWNER, Fixtures.REPOSITORY)
+            .sha("main")
+            .path("module1/src/main/java/org/example/File1.java")
+            .since("2025-04-01T10:00:00Z")
+            .perPage(100)
+            .build();
+  }
+
+  @Benchmark
+  public GHRequest page() {
+    return GHRequestBuilder.page(nextUrl, 7);
+  }
+}
@@ -0,0 +1,293 @@
+package org.example;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the remote changes through the GitHub API, by walking every commit of branchA since the merge
+ * base or with the compare endpoint.
+ */
+public class ApiRemoteChangeSource implements RemoteChangeSource {
+
+  /**
+   * The compare endpoint lists at most this many files for the whole comparison,
+   * a response with this many files may be missing some of them.
+   */
+  private static final int COMPARE_FILES_LIMIT = 300;
+  private static final int COMPARE_COMMITS_PER_PAGE = 100;
+  private static final int LIST_COMMITS_PER_PAGE = 100;
+  /**
+   * Requests a path query is expected to cost: the listCommits request, and usually one getCommit to
+   * confirm that the path was modified rather than added or removed.
+   */
+  private static final int PATH_QUERY_COST = 2;
+  /**
+   * The path queries in flight at the same time, so that many candidate paths do not burst into
+   * GitHub's secondary rate limit.
+   */
+  private static final int MAX_PATH_QUERIES_IN_FLIGHT = 8;
+
+  private final GithubClient githubClient;
+  private boolean useCompareApi;
+  private CommitFilesSource commitFetcher;
+  private boolean planQueries;
+
+  public ApiRemoteChangeSource(GithubClient githubClient) {
+    this.githubClient = githubClient;
+    this.commitFetcher = new CommitFetcher(githubClient);
+  }
+
+  /**
+   * Uses the compare endpoint, which returns every file changed on branchA since the merge base in a
+   * single request. Files are reported by their net status over the whole range, so a file that was
+   * modified and later reverted on branchA is not reported. When the comparison has more files than the
+   * endpoint can list, this falls back to walking every commit.
+   */
+  public ApiRemoteChangeSource useCompareApi(boolean useCompareApi) {
+    this.useCompareApi = useCompareApi;
+    return this;
+  }
+
+  /**
+   * Replaces the source of the per-commit file lists, for example with a {@link CommitFetcher} that runs
+   * more requests concurrently or a {@link GraphQLCommitFetcher} that batches many commits per request.
+   */
+  public ApiRemoteChangeSource commitFetcher(CommitFilesSource commitFetcher) {
+    this.commitFetcher = commitFetcher;
+    return this;
+  }
+
+  /**
+   * Lets a cost-based planner choose how to answer each query of the commit walk. The number of commits
+   * since the merge base is estimated with one request, and when the candidate paths are fewer than the
+   * requests a walk would cost, each path is looked up with a listCommits {@code path} filter instead.
+   * Paths no commit touched need no further request; for the others the touching commits are fetched
+   * until each path is confirmed as modified, stopping as soon as all of them are. Has no effect with
+   * {@link #useCompareApi(boolean)}.
+   */
+  public ApiRemoteChangeSource planQueries(boolean planQueries) {
+    this.planQueries = planQueries;
+    return this;
+  }
+
+  @Override
+  public Set<String> findModifiedFiles(RemoteChangeQuery query) {
+    return findModifiedFiles(List.of(query)).get(query);
+  }
+
+  /**
+   * Lists the commits of every query first and then fetches the files of each distinct commit once, so
+   * queries that walk over the same commits, such as several branches against one base, share the
+   * requests.
+   */
+  @Override
+  public Map<RemoteChangeQuery, Set<String>> findModifiedFiles(Collection<RemoteChangeQuery> queries) {
+    var results = new LinkedHashMap<RemoteChangeQuery, Set<String>>();
+    var commitsOfQuery = new LinkedHashMap<RemoteChangeQuery, List<String>>();
+    for (var query: queries) {
+      if (useCompareApi) {
+        var compareResponse = compare(query);
+        var comparison = compareResponse.getData();
+        if (comparison.files != null && comparison.files.size() < COMPARE_FILES_LIMIT) {
+          var independentlyModifiedFiles = new HashSet<String>();
+          collectModifiedFiles(comparison.files, query.candidatePaths(), independentlyModifiedFiles);
+          results.put(query, independentlyModifiedFiles);
+          continue;
+        }
+        commitsOfQuery.put(query, compareResponse.fetchAllPages().stream()
+                .filter(page -> page.commits != null)
+                .flatMap(page -> page.commits.stream())
+                .map(commit -> commit.sha)
+                .toList());
+      }
+      else {
+        var since = mergeBaseDate(query);
+        if (planQueries && preferPathQueries(query, since)) {
+          results.put(query, findByPath(query, since));
+          continue;
+        }
+        commitsOfQuery.put(query, listCommits(query, since));
+      }
+    }
+
+    var modifiedFilesOfCommit = fetchModifiedFiles(commitsOfQuery);
+    commitsOfQuery.forEach((query, commitSHAs) -> {
+      var independentlyModifiedFiles = new HashSet<String>();
+      for (var sha: commitSHAs) {
+        for (var fileName: modifiedFilesOfCommit.getOrDefault(sha, Set.of())) {
+          if (query.candidatePaths().contains(fileName)) {
+            independentlyModifiedFiles.add(fileName);
+          }
+        }
+      }
+      results.put(query, independentlyModifiedFiles);
+    });
+    return results;
+  }
+
+  private GHPage<GHCompareResponse> compare(RemoteChangeQuery query) {
+    var request = GHRequestBuilder.compare(query.owner(), query.repository(), query.mergeBase(), query.remoteHead())
+            .perPage(COMPARE_COMMITS_PER_PAGE)
+            .build();
+    return githubClient.send(request, new TypeReference<GHCompareResponse>() {}).response;
+  }
+
+  private String mergeBaseDate(RemoteChangeQuery query) {
+    var request = GHRequestBuilder.getCommit(query.owner(), query.repository(), query.mergeBase()).build();
+    var commitResponse = githubClient.send(request, new TypeReference<GHGetCommitResponse>() {});
+    return commitResponse.response.getData().commit.author.date;
+  }
+
+  private List<String> listCommits(RemoteChangeQuery query, String since) {
+    var request = GHRequestBuilder.listCommits(query.owner(), query.repository())
+            .sha(query.remoteHead())
+            .since(since)
+            .perPage(LIST_COMMITS_PER_PAGE)
+            .build();
+
+    var listCommitsResponse = githubClient.send(request, new TypeReference<List<GHListCommitObject>>(){}).response;
+    return listCommitsResponse.fetchAllPages().stream()
+            .flatMap(List::stream)
+            .map(commit -> commit.sha)
+            .filter(sha -> !query.mergeBase().equals(sha))
+            .toList();
+  }
+
+  /**
+   * Compares the expected requests of both plans. With one commit per page the number of the last page
+   * is the number of commits, so the estimate costs a single request.
+   */
+  private boolean preferPathQueries(RemoteChangeQuery query, String since) {
+    int paths = query.candidatePaths().size();
+    if (paths == 0) return true;
+
+    var request = GHRequestBuilder.listCommits(query.owner(), query.repository())
+            .sha(query.remoteHead())
+            .since(since)
+            .perPage(1)
+            .build();
+    var page = githubClient.send(request, new TypeReference<List<GHListCommitObject>>(){}).response;
+    int commits = page.lastPageNumber().orElse(page.getData() == null ? 0 : page.getData().size());
+    long walkCost = commits + (commits + LIST_COMMITS_PER_PAGE - 1) / LIST_COMMITS_PER_PAGE;
+    return paths * PATH_QUERY_COST < walkCost;
+  }
+
+  private Set<String> findByPath(RemoteChangeQuery query, String since) {
+    var paths = query.candidatePaths();
+    var unsent = paths.iterator();
+    var pending = new ArrayDeque<CompletableFuture<GHResponse<List<GHListCommitObject>>>>();
+
+    // A path no commit touched is certainly unmodified, a touched one may have been added or removed.
+    var touchingCommits = new LinkedHashMap<String, Deque<String>>();
+    try {
+      for (var path: paths) {
+        while (unsent.hasNext() && pending.size() < MAX_PATH_QUERIES_IN_FLIGHT) {
+          pending.add(listCommitsOfPath(query, unsent.next(), since));
+        }
+        var commitSHAs = join(pending.poll()).response.fetchAllPages().stream()
+                .flatMap(List::stream)
+                .map(commit -> commit.sha)
+                .filter(sha -> !query.mergeBase().equals(sha))
+                .toList();
+        if (!commitSHAs.isEmpty()) {
+          touchingCommits.put(path, new ArrayDeque<>(commitSHAs));
+        }
+      }
+    }
+    finally {
+      pending.forEach(future -> future.cancel(false));
+    }
+
+    var modifiedFiles = ConcurrentHashMap.<String>newKeySet();
+    var fetched = new HashSet<String>();
+    var unconfirmed = new HashSet<>(touchingCommits.keySet());
+    while (!unconfirmed.isEmpty()) {
+      // Each round fetches the next commit of every unconfirmed path at once.
+      var round = new LinkedHashSet<String>();
+      for (var path: unconfirmed) {
+        var commits = touchingCommits.get(path);
+        while (!commits.isEmpty() && !fetched.add(commits.peek())) {
+          commits.poll();
+        }
+        if (!commits.isEmpty()) {
+          round.add(commits.poll());
+        }
+      }
+      if (round.isEmpty()) break;
+      commitFetcher.fetchFiles(query.owner(), query.repository(), round, unconfirmed,
+              (sha, files) -> collectModifiedFiles(files, query.candidatePaths(), modifiedFiles));
+      unconfirmed.removeAll(modifiedFiles);
+    }
+    return new HashSet<>(modifiedFiles);
+  }
+
+  private CompletableFuture<GHResponse<List<GHListCommitObject>>> listCommitsOfPath(RemoteChangeQuery query,
+                                                                                   String path, String since) {
+    var request = GHRequestBuilder.listCommits(query.owner(), query.repository())
+            .sha(query.remoteHead())
+            .path(path)
+            .since(since)
+            .perPage(LIST_COMMITS_PER_PAGE)
+            .build();
+    return githubClient.sendAsync(request, new TypeReference<List<GHListCommitObject>>(){});
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    }
+    catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new GHApiException("Error listing commits", e.getCause());
+    }
+  }
+
+  /**
+   * Returns the modified candidate files of every distinct commit, fetched once per repository with the
+   * union of the candidate paths of its queries.
+   */
+  private Map<String, Set<String>> fetchModifiedFiles(Map<RemoteChangeQuery, List<String>> commitsOfQuery) {
+    var commitsOfRepository = new LinkedHashMap<List<String>, Set<String>>();
+    var pathsOfRepository = new HashMap<List<String>, Set<String>>();
+    commitsOfQuery.forEach((query, commitSHAs) -> {
+      var repository = List.of(query.owner(), query.repository());
+      commitsOfRepository.computeIfAbsent(repository, key -> new LinkedHashSet<>()).addAll(commitSHAs);
+      pathsOfRepository.computeIfAbsent(repository, key -> emptyUnionOf(query.candidatePaths()))
+              .addAll(query.candidatePaths());
+    });
+
+    Map<String, Set<String>> modifiedFilesOfCommit = new ConcurrentHashMap<>();
+    commitsOfRepository.forEach((repository, commitSHAs) -> {
+      var paths = pathsOfRepository.get(repository);
+      commitFetcher.fetchFiles(repository.get(0), repository.get(1), commitSHAs, paths, (sha, files) -> {
+        var modifiedFiles = new HashSet<String>();
+        collectModifiedFiles(files, paths, modifiedFiles);
+        modifiedFilesOfCommit.put(sha, modifiedFiles);
+      });
+    });
+    return modifiedFilesOfCommit;
+  }
+
+  /**
+   * A set of interned paths is merged as a bitset into a set of the same table, and looked up in it
+   * without creating a String per path.
+   */
+  private static Set<String> emptyUnionOf(Set<String> paths) {
+    return paths instanceof PathSet pathSet ? pathSet.table().newSet() : new HashSet<>();
+  }
+
+  private static void collectModifiedFiles(List<File> files, Set<String> localFileNames,
+                                           Set<String> independentlyModifiedFiles) {
+    for (var file: files) {
+      if ("modified".equals(file.status) && localFileNames.contains(file.fileName)) {
+        independentlyModifiedFiles.add(file.fileName);
+      }
+    }
+  }
+}
@@ -0,0 +1,7 @@
+package org.example;
+
+/**
+ * A remote branch and a local branch to compare, as passed to
+ * {@link FileChangesDetector#detectFileChanges(String, String, String, String, String)}.
+ */
+public record BranchPair(String branchA, String branchB) {}
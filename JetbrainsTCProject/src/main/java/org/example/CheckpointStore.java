@@ -0,0 +1,79 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The state of the last detection of each branch pair, which lets the next detection only look at the
+ * commits that arrived since. When created with a directory every checkpoint is also written to its
+ * own JSON file there, so checkpoints survive restarts of the JVM.
+ */
+public class CheckpointStore {
+  private final Map<Key, Checkpoint> entries = new ConcurrentHashMap<>();
+  private final JsonFileStore<StoredCheckpoint> files;
+
+  public CheckpointStore() {
+    this.files = null;
+  }
+
+  public CheckpointStore(Path directory) {
+    try {
+      this.files = new JsonFileStore<>(directory, StoredCheckpoint.class);
+    }
+    catch (IOException e) {
+      throw new CheckpointStoreException("Cannot create checkpoint directory: " + directory, e);
+    }
+  }
+
+  public Checkpoint get(Key key) {
+    var checkpoint = entries.get(key);
+    if (checkpoint == null && files != null) {
+      checkpoint = load(key);
+      if (checkpoint != null) {
+        entries.putIfAbsent(key, checkpoint);
+      }
+    }
+    return checkpoint;
+  }
+
+  public void put(Key key, Checkpoint checkpoint) {
+    entries.put(key, checkpoint);
+    if (files != null) {
+      store(key, checkpoint);
+    }
+  }
+
+  private Checkpoint load(Key key) {
+    var stored = files.read(fileKey(key));
+    return stored != null && key.equals(stored.key()) ? stored.checkpoint() : null;
+  }
+
+  private void store(Key key, Checkpoint checkpoint) {
+    try {
+      files.write(fileKey(key), new StoredCheckpoint(key, checkpoint));
+    }
+    catch (IOException e) {
+      throw new CheckpointStoreException("Cannot write checkpoint for: " + key, e);
+    }
+  }
+
+  private static String fileKey(Key key) {
+    return String.join("\n", key.owner(), key.repository(), key.branchA(), key.branchB());
+  }
+
+  public record Key(String owner, String repository, String branchA, String branchB) {}
+
+  /**
+   * @param headSha             the remote head the detection covered
+   * @param mergeBase           the merge base the detection started from
+   * @param candidatePaths      the local changes the remote changes were looked up for
+   * @param remoteModifiedFiles the candidate paths modified between the merge base and the head
+   */
+  public record Checkpoint(String headSha, String mergeBase, Set<String> candidatePaths,
+                           Set<String> remoteModifiedFiles) {}
+
+  private record StoredCheckpoint(Key key, Checkpoint checkpoint) {}
+}
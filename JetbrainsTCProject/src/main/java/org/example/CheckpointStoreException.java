@@ -0,0 +1,12 @@
+package org.example;
+
+public class CheckpointStoreException extends RuntimeException {
+
+  public CheckpointStoreException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  public CheckpointStoreException(String message) {
+    super(message);
+  }
+}
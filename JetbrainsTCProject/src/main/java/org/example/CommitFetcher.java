@@ -0,0 +1,172 @@
+package org.example;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * Fetches the changed files of many commits concurrently, with at most {@code maxInFlight} getCommit
+ * requests running at the same time. Without an executor the fetcher runs every call on its own pool of
+ * up to {@code maxInFlight} daemon threads, which stop when idle and are shut down by {@link #close()};
+ * a shared executor, for example {@code Executors.newVirtualThreadPerTaskExecutor()} on JDK 21, can be
+ * passed in instead and is left running.
+ */
+public class CommitFetcher implements CommitFilesSource, AutoCloseable {
+  public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+
+  private final GithubClient githubClient;
+  private final int maxInFlight;
+  private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+  private CommitStore commitStore;
+  private MetricsRegistry metrics = MetricsRegistry.NOOP;
+
+  public CommitFetcher(GithubClient githubClient) {
+    this(githubClient, DEFAULT_MAX_IN_FLIGHT);
+  }
+
+  public CommitFetcher(GithubClient githubClient, int maxInFlight) {
+    this(githubClient, maxInFlight, null);
+  }
+
+  public CommitFetcher(GithubClient githubClient, int maxInFlight, ExecutorService executor) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be at least 1, was " + maxInFlight);
+    }
+    this.githubClient = githubClient;
+    this.maxInFlight = maxInFlight;
+    this.ownsExecutor = executor == null;
+    this.executor = ownsExecutor ? defaultExecutor(maxInFlight) : executor;
+  }
+
+  private static ExecutorService defaultExecutor(int maxInFlight) {
+    var pool = new ThreadPoolExecutor(maxInFlight, maxInFlight, IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+      var thread = new Thread(runnable, "commit-fetcher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  /**
+   * Answers commits from the store when it has them and adds every fetched commit to it, so commits seen
+   * by an earlier detection cost no request.
+   */
+  public CommitFetcher commitStore(CommitStore commitStore) {
+    this.commitStore = commitStore;
+    return this;
+  }
+
+  /**
+   * Reports commit store hits and misses to the registry.
+   */
+  public CommitFetcher metrics(MetricsRegistry metrics) {
+    this.metrics = metrics;
+    return this;
+  }
+
+  @Override
+  public void fetchFiles(String owner, String repository, Collection<String> commitSHAs, Set<String> paths,
+                         BiConsumer<String, List<File>> consumer) {
+    fetchFiles(owner, repository, commitSHAs, consumer);
+  }
+
+  /**
+   * Fetches every commit and hands its files to the consumer. The consumer is called from the fetching
+   * threads, so it has to be thread-safe. The first failed request cancels the remaining ones and is
+   * rethrown.
+   */
+  public void fetchFiles(String owner, String repository, Collection<String> commitSHAs,
+                         BiConsumer<String, List<File>> consumer) {
+    if (commitSHAs.isEmpty()) return;
+
+    var inFlight = new Semaphore(maxInFlight);
+    var futures = new ArrayList<Future<?>>(commitSHAs.size());
+    var failed = new AtomicBoolean();
+
+    try {
+      for (var sha: commitSHAs) {
+        inFlight.acquire();
+        if (failed.get()) {
+          inFlight.release();
+          break;
+        }
+        try {
+          futures.add(executor.submit(() -> {
+            try {
+              consumer.accept(sha, fetchFiles(owner, repository, sha));
+            }
+            catch (RuntimeException e) {
+              failed.set(true);
+              throw e;
+            }
+            finally {
+              inFlight.release();
+            }
+          }));
+        }
+        catch (RejectedExecutionException e) {
+          inFlight.release();
+          throw e;
+        }
+      }
+      for (var future: futures) {
+        future.get();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GHApiException("Interrupted while fetching commits of " + owner + "/" + repository, e);
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new GHApiException("Error fetching commits of " + owner + "/" + repository, e.getCause());
+    }
+    finally {
+      futures.forEach(f -> f.cancel(true));
+    }
+  }
+
+  public List<File> fetchFiles(String owner, String repository, String commitSHA) {
+    if (commitStore != null) {
+      var stored = commitStore.get(commitSHA);
+      metrics.counter("github_cache_requests_total", "cache", "commit_store", "result", stored.isPresent() ? "hit" : "miss")
+              .increment();
+      if (stored.isPresent()) {
+        return stored.get();
+      }
+    }
+
+    var request = GHRequestBuilder.getCommit(owner, repository, commitSHA).build();
+    var files = new ArrayList<File>();
+    githubClient.send(request, new TypeReference<GHGetCommitResponse>() {}).response
+            .iterator(commitInfo -> commitInfo.files)
+            .forEachRemaining(files::add);
+    if (commitStore != null) {
+      commitStore.put(commitSHA, files);
+    }
+    return files;
+  }
+
+  /**
+   * Stops the threads of the default pool. An executor passed to the constructor is left running.
+   */
+  @Override
+  public void close() {
+    if (ownsExecutor) {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package org.example;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Supplies the changed files of commits to {@link FileChangesDetector}.
+ */
+public interface CommitFilesSource {
+
+  /**
+   * Hands the changed files of every commit to the consumer, possibly from several threads at once.
+   * Only changes to {@code paths} have to be reported, a source may report others as well.
+   */
+  void fetchFiles(String owner, String repository, Collection<String> commitSHAs, Set<String> paths,
+                  BiConsumer<String, List<File>> consumer);
+}
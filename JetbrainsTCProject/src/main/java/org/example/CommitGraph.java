@@ -0,0 +1,339 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The commit graph of a repository, loaded from {@code objects/info/commit-graph} into primitive arrays
+ * indexed by the position of each commit in the file.
+ * <p>
+ * The file lists every commit it covers with its parents, its commit time and its generation number,
+ * which is one more than the largest generation of its parents. A commit can only reach commits with a
+ * smaller generation, which lets {@link #mergeBases(int, int)} stop walking below the candidates.
+ */
+final class CommitGraph {
+  private static final int SIGNATURE = 0x43475048;
+  private static final int CHUNK_OIDF = 0x4f494446;
+  private static final int CHUNK_OIDL = 0x4f49444c;
+  private static final int CHUNK_CDAT = 0x43444154;
+  private static final int CHUNK_EDGE = 0x45444745;
+  private static final int SHA_SIZE = 20;
+  private static final int CDAT_ENTRY_SIZE = SHA_SIZE + 16;
+  private static final int NO_PARENT = 0x70000000;
+  private static final int EXTRA_EDGES = 0x80000000;
+  private static final int LAST_EDGE = 0x80000000;
+
+  private static final byte PARENT1 = 1;
+  private static final byte PARENT2 = 2;
+  private static final byte STALE = 4;
+  private static final byte RESULT = 8;
+
+  private final ByteBuffer oidFanout;
+  private final ByteBuffer oids;
+  private final int commitCount;
+  private final int[] firstParents;
+  /** The second parent, or for octopus merges {@code EXTRA_EDGES | index} into {@link #edges}. */
+  private final int[] secondParents;
+  private final int[] edges;
+  private final int[] generations;
+  /** The commit time in seconds, as an unsigned int. */
+  private final int[] commitTimes;
+
+  private CommitGraph(ByteBuffer file, Path path) throws IOException {
+    if (file.limit() < 8 || file.getInt(0) != SIGNATURE || file.get(4) != 1 || file.get(5) != 1) {
+      throw new IOException("Unsupported commit-graph: " + path);
+    }
+    int chunkCount = file.get(6) & 0xff;
+    if (file.get(7) != 0) {
+      throw new IOException("Commit-graph with base graphs is not supported: " + path);
+    }
+
+    ByteBuffer oidFanout = null;
+    ByteBuffer oids = null;
+    ByteBuffer data = null;
+    ByteBuffer edgeData = null;
+    for (int i = 0; i < chunkCount; i++) {
+      int entry = 8 + i * 12;
+      int id = file.getInt(entry);
+      long offset = file.getLong(entry + 4);
+      long end = file.getLong(entry + 16);
+      if (offset < 0 || end < offset || end > file.limit()) {
+        throw new IOException("Corrupt commit-graph chunk table: " + path);
+      }
+      var chunk = file.slice((int) offset, (int) (end - offset));
+      switch (id) {
+        case CHUNK_OIDF -> oidFanout = chunk;
+        case CHUNK_OIDL -> oids = chunk;
+        case CHUNK_CDAT -> data = chunk;
+        case CHUNK_EDGE -> edgeData = chunk;
+        default -> { }
+      }
+    }
+    if (oidFanout == null || oids == null || data == null) {
+      throw new IOException("Commit-graph without required chunks: " + path);
+    }
+
+    this.oidFanout = oidFanout;
+    this.oids = oids;
+    this.commitCount = oidFanout.getInt(255 * Integer.BYTES);
+    this.firstParents = new int[commitCount];
+    this.secondParents = new int[commitCount];
+    this.generations = new int[commitCount];
+    this.commitTimes = new int[commitCount];
+    for (int i = 0; i < commitCount; i++) {
+      int entry = i * CDAT_ENTRY_SIZE + SHA_SIZE;
+      firstParents[i] = data.getInt(entry);
+      secondParents[i] = data.getInt(entry + 4);
+      int generationAndTimeHigh = data.getInt(entry + 8);
+      generations[i] = generationAndTimeHigh >>> 2;
+      // Commit times past 2106 do not fit an unsigned int; they only affect the order of equal generations.
+      commitTimes[i] = (generationAndTimeHigh & 0x3) != 0 ? -1 : data.getInt(entry + 12);
+    }
+    this.edges = new int[edgeData == null ? 0 : edgeData.limit() / Integer.BYTES];
+    for (int i = 0; i < edges.length; i++) {
+      edges[i] = edgeData.getInt(i * Integer.BYTES);
+    }
+  }
+
+  /**
+   * Loads the commit graph of the repository, or returns an empty optional when it has none.
+   */
+  static Optional<CommitGraph> open(Path commonDirectory) {
+    var path = commonDirectory.resolve("objects").resolve("info").resolve("commit-graph");
+    if (!Files.isRegularFile(path)) return Optional.empty();
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return Optional.of(new CommitGraph(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), path));
+    }
+    catch (IOException e) {
+      throw new GitCommandException("Cannot read commit-graph: " + path, e);
+    }
+  }
+
+  int size() {
+    return commitCount;
+  }
+
+  /**
+   * Returns the position of the commit in the graph, or -1 when the graph does not contain it.
+   */
+  int position(String sha) {
+    var bytes = HexFormat.of().parseHex(sha);
+    int first = bytes[0] & 0xff;
+    int low = first == 0 ? 0 : oidFanout.getInt((first - 1) * Integer.BYTES);
+    int high = oidFanout.getInt(first * Integer.BYTES) - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int cmp = compareOid(middle, bytes);
+      if (cmp < 0) {
+        low = middle + 1;
+      }
+      else if (cmp > 0) {
+        high = middle - 1;
+      }
+      else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  String sha(int position) {
+    var bytes = new byte[SHA_SIZE];
+    oids.get(position * SHA_SIZE, bytes);
+    return HexFormat.of().formatHex(bytes);
+  }
+
+  /**
+   * Returns the best common ancestors of the two commits, newest first.
+   * <p>
+   * This is git's paint-down-to-common: both commits paint their ancestors, visiting higher generations
+   * first, and a commit painted by both sides is a merge base whose own ancestors are then only walked
+   * to mark them stale. The walk ends when every queued commit is stale. Merge bases that are ancestors
+   * of another merge base are dropped afterwards.
+   */
+  List<Integer> mergeBases(int one, int two) {
+    if (one == two) return List.of(one);
+
+    var flags = new byte[commitCount];
+    var queue = new CommitQueue();
+    var results = new ArrayList<Integer>();
+    flags[one] |= PARENT1;
+    flags[two] |= PARENT2;
+    queue.add(one);
+    queue.add(two);
+    int notStale = 2;
+
+    while (notStale > 0) {
+      int commit = queue.poll();
+      int commitFlags = flags[commit] & (PARENT1 | PARENT2 | STALE);
+      if ((commitFlags & STALE) == 0) {
+        notStale--;
+      }
+      if (commitFlags == (PARENT1 | PARENT2)) {
+        if ((flags[commit] & RESULT) == 0) {
+          flags[commit] |= RESULT;
+          results.add(commit);
+        }
+        commitFlags |= STALE;
+      }
+      for (int p = 0, parent; (parent = parent(commit, p)) >= 0; p++) {
+        if ((flags[parent] & commitFlags) == commitFlags) continue;
+        // The queue order does not depend on the flags, so a queued commit only needs its count updated.
+        boolean queued = queue.contains(parent);
+        boolean wasStale = (flags[parent] & STALE) != 0;
+        flags[parent] = (byte) (flags[parent] | commitFlags);
+        boolean isStale = (flags[parent] & STALE) != 0;
+        if (!queued) {
+          queue.add(parent);
+          if (!isStale) notStale++;
+        }
+        else if (!wasStale && isStale) {
+          notStale--;
+        }
+      }
+    }
+    return removeRedundant(results);
+  }
+
+  private List<Integer> removeRedundant(List<Integer> candidates) {
+    if (candidates.size() < 2) return candidates;
+    var kept = new ArrayList<Integer>();
+    for (int candidate: candidates) {
+      boolean redundant = false;
+      for (int other: candidates) {
+        if (other != candidate && reaches(other, candidate)) {
+          redundant = true;
+          break;
+        }
+      }
+      if (!redundant) kept.add(candidate);
+    }
+    kept.sort((a, b) -> Long.compare(time(b), time(a)));
+    return kept;
+  }
+
+  /**
+   * Whether {@code target} is an ancestor of {@code from}. Commits with a generation below the target's
+   * cannot lead to it and are not walked.
+   */
+  private boolean reaches(int from, int target) {
+    int minGeneration = generations[target];
+    var visited = new BitSet(commitCount);
+    var stack = new int[16];
+    int size = 0;
+    stack[size++] = from;
+    visited.set(from);
+    while (size > 0) {
+      int commit = stack[--size];
+      if (commit == target) return true;
+      for (int p = 0, parent; (parent = parent(commit, p)) >= 0; p++) {
+        if (visited.get(parent) || (minGeneration != 0 && generations[parent] < minGeneration)) continue;
+        visited.set(parent);
+        if (size == stack.length) stack = Arrays.copyOf(stack, size * 2);
+        stack[size++] = parent;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the position of the {@code index}-th parent, or -1 when the commit has fewer parents.
+   */
+  private int parent(int commit, int index) {
+    if (index == 0) {
+      return firstParents[commit] == NO_PARENT ? -1 : firstParents[commit];
+    }
+    int second = secondParents[commit];
+    if (second == NO_PARENT) return -1;
+    if ((second & EXTRA_EDGES) == 0) {
+      return index == 1 ? second : -1;
+    }
+    // Octopus merges list the second and later parents in the EDGE chunk, the last one is flagged.
+    int edge = second & ~EXTRA_EDGES;
+    for (int i = 1; i < index; i++) {
+      if ((edges[edge] & LAST_EDGE) != 0) return -1;
+      edge++;
+    }
+    return edges[edge] & ~LAST_EDGE;
+  }
+
+  private long time(int commit) {
+    return Integer.toUnsignedLong(commitTimes[commit]);
+  }
+
+  private int compareOid(int position, byte[] sha) {
+    int base = position * SHA_SIZE;
+    for (int i = 0; i < SHA_SIZE; i++) {
+      int cmp = Integer.compare(oids.get(base + i) & 0xff, sha[i] & 0xff);
+      if (cmp != 0) return cmp;
+    }
+    return 0;
+  }
+
+  /**
+   * Max-heap of commit positions ordered by generation, then commit time.
+   */
+  private final class CommitQueue {
+    private int[] heap = new int[64];
+    private int size;
+    private final BitSet queued = new BitSet(commitCount);
+
+    void add(int commit) {
+      if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+      heap[size] = commit;
+      siftUp(size++);
+      queued.set(commit);
+    }
+
+    int poll() {
+      int top = heap[0];
+      heap[0] = heap[--size];
+      siftDown(0);
+      queued.clear(top);
+      return top;
+    }
+
+    boolean contains(int commit) {
+      return queued.get(commit);
+    }
+
+    private boolean before(int a, int b) {
+      if (generations[a] != generations[b]) return generations[a] > generations[b];
+      return time(a) > time(b);
+    }
+
+    private void siftUp(int index) {
+      int commit = heap[index];
+      while (index > 0) {
+        int parent = (index - 1) >>> 1;
+        if (!before(commit, heap[parent])) break;
+        heap[index] = heap[parent];
+        index = parent;
+      }
+      heap[index] = commit;
+    }
+
+    private void siftDown(int index) {
+      int commit = heap[index];
+      while (true) {
+        int child = 2 * index + 1;
+        if (child >= size) break;
+        if (child + 1 < size && before(heap[child + 1], heap[child])) child++;
+        if (!before(heap[child], commit)) break;
+        heap[index] = heap[child];
+        index = child;
+      }
+      heap[index] = commit;
+    }
+  }
+}
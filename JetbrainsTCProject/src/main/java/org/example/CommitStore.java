@@ -0,0 +1,305 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Persistent store of the changed files of commits, keyed by commit SHA. A commit never changes once it
+ * exists, so an entry is written once and never updated.
+ * <p>
+ * Entries are appended to {@code commits.dat} as
+ * {@code [int length][20 byte sha][int fileCount]([int pathLength][path][byte statusLength][status])*}.
+ * {@code commits.idx} is a memory-mapped open-addressing hash table from SHA to the entry's offset in the
+ * data file. The index header records how much of the data file it covers; when that does not match, for
+ * example after a crash between the two writes, the index is rebuilt from the data file on open.
+ */
+public class CommitStore implements AutoCloseable {
+  private static final String DATA_FILE = "commits.dat";
+  private static final String INDEX_FILE = "commits.idx";
+  private static final int INDEX_MAGIC = 0x43535449;
+  private static final int INDEX_VERSION = 1;
+  private static final int HEADER_SIZE = 24;
+  private static final int SHA_SIZE = 20;
+  private static final int SLOT_SIZE = SHA_SIZE + Long.BYTES;
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final Path directory;
+  private final FileChannel data;
+  private FileChannel indexChannel;
+  private MappedByteBuffer index;
+  private int capacity;
+  private int size;
+  private long dataLength;
+
+  public CommitStore(Path directory) {
+    this.directory = directory;
+    try {
+      Files.createDirectories(directory);
+      data = FileChannel.open(directory.resolve(DATA_FILE),
+              StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      dataLength = data.size();
+      if (!openIndex()) {
+        rebuildIndex();
+      }
+    }
+    catch (IOException e) {
+      throw new CommitStoreException("Cannot open commit store in: " + directory, e);
+    }
+  }
+
+  /**
+   * Returns the stored files of the commit, with only {@code fileName} and {@code status} set, or an
+   * empty optional when the commit has not been stored yet.
+   */
+  public synchronized Optional<List<File>> get(String commitSHA) {
+    var sha = toBytes(commitSHA);
+    if (sha == null) return Optional.empty();
+    try {
+      long offset = find(sha);
+      return offset < 0 ? Optional.empty() : Optional.of(readEntry(offset));
+    }
+    catch (IOException e) {
+      throw new CommitStoreException("Cannot read commit " + commitSHA + " from: " + directory, e);
+    }
+  }
+
+  /**
+   * Stores the files of the commit. Commits that are already stored and SHAs that are not 40 hex digits
+   * are ignored.
+   */
+  public synchronized void put(String commitSHA, List<File> files) {
+    var sha = toBytes(commitSHA);
+    if (sha == null || find(sha) >= 0) return;
+    try {
+      long offset = dataLength;
+      var entry = encodeEntry(sha, files);
+      while (entry.hasRemaining()) {
+        data.write(entry, dataLength + entry.position());
+      }
+      dataLength += entry.limit();
+      if ((size + 1) * 2L > capacity) {
+        resizeIndex(capacity * 2);
+      }
+      insert(sha, offset);
+      index.putLong(16, dataLength);
+    }
+    catch (IOException e) {
+      throw new CommitStoreException("Cannot write commit " + commitSHA + " to: " + directory, e);
+    }
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  @Override
+  public synchronized void close() {
+    try {
+      index.force();
+      indexChannel.close();
+      data.close();
+    }
+    catch (IOException e) {
+      throw new CommitStoreException("Cannot close commit store in: " + directory, e);
+    }
+  }
+
+  private boolean openIndex() throws IOException {
+    var indexFile = directory.resolve(INDEX_FILE);
+    if (!Files.exists(indexFile) || Files.size(indexFile) < HEADER_SIZE) return false;
+
+    mapIndex(indexFile);
+    capacity = index.getInt(8);
+    size = index.getInt(12);
+    boolean valid = index.getInt(0) == INDEX_MAGIC
+            && index.getInt(4) == INDEX_VERSION
+            && Integer.bitCount(capacity) == 1
+            && indexChannel.size() == HEADER_SIZE + (long) capacity * SLOT_SIZE
+            && index.getLong(16) == dataLength;
+    if (!valid) {
+      indexChannel.close();
+    }
+    return valid;
+  }
+
+  private void rebuildIndex() throws IOException {
+    // Entries past the last complete one are the remains of an interrupted append.
+    long offset = 0;
+    var lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+    var offsets = new ArrayList<Long>();
+    var shas = new ArrayList<byte[]>();
+    while (offset + Integer.BYTES + SHA_SIZE <= dataLength) {
+      lengthBuffer.clear();
+      readFully(lengthBuffer, offset);
+      int length = lengthBuffer.getInt(0);
+      if (length < SHA_SIZE + Integer.BYTES || offset + Integer.BYTES + length > dataLength) break;
+      var sha = ByteBuffer.allocate(SHA_SIZE);
+      readFully(sha, offset + Integer.BYTES);
+      offsets.add(offset);
+      shas.add(sha.array());
+      offset += Integer.BYTES + length;
+    }
+    if (offset < dataLength) {
+      data.truncate(offset);
+      dataLength = offset;
+    }
+
+    int newCapacity = INITIAL_CAPACITY;
+    while (shas.size() * 2L > newCapacity) {
+      newCapacity *= 2;
+    }
+    createIndex(directory.resolve(INDEX_FILE), newCapacity);
+    for (int i = 0; i < shas.size(); i++) {
+      if (find(shas.get(i)) < 0) {
+        insert(shas.get(i), offsets.get(i));
+      }
+    }
+    index.putLong(16, dataLength);
+  }
+
+  private void resizeIndex(int newCapacity) throws IOException {
+    var oldIndex = index;
+    var oldChannel = indexChannel;
+    int oldCapacity = capacity;
+
+    var tmp = directory.resolve(INDEX_FILE + ".tmp");
+    createIndex(tmp, newCapacity);
+    for (int slot = 0; slot < oldCapacity; slot++) {
+      int position = HEADER_SIZE + slot * SLOT_SIZE;
+      long stored = oldIndex.getLong(position + SHA_SIZE);
+      if (stored != 0) {
+        var sha = new byte[SHA_SIZE];
+        oldIndex.get(position, sha);
+        insert(sha, stored - 1);
+      }
+    }
+    index.putLong(16, dataLength);
+    index.force();
+    indexChannel.close();
+    oldChannel.close();
+    Files.move(tmp, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    mapIndex(directory.resolve(INDEX_FILE));
+  }
+
+  private void createIndex(Path file, int newCapacity) throws IOException {
+    Files.deleteIfExists(file);
+    capacity = newCapacity;
+    size = 0;
+    indexChannel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) newCapacity * SLOT_SIZE);
+    index.putInt(0, INDEX_MAGIC);
+    index.putInt(4, INDEX_VERSION);
+    index.putInt(8, newCapacity);
+    index.putInt(12, 0);
+  }
+
+  private void mapIndex(Path file) throws IOException {
+    indexChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+  }
+
+  private long find(byte[] sha) {
+    int mask = capacity - 1;
+    for (int slot = hash(sha) & mask; ; slot = (slot + 1) & mask) {
+      int position = HEADER_SIZE + slot * SLOT_SIZE;
+      long stored = index.getLong(position + SHA_SIZE);
+      if (stored == 0) return -1;
+      if (shaEquals(position, sha)) return stored - 1;
+    }
+  }
+
+  private void insert(byte[] sha, long offset) {
+    int mask = capacity - 1;
+    int slot = hash(sha) & mask;
+    while (index.getLong(HEADER_SIZE + slot * SLOT_SIZE + SHA_SIZE) != 0) {
+      slot = (slot + 1) & mask;
+    }
+    int position = HEADER_SIZE + slot * SLOT_SIZE;
+    index.put(position, sha);
+    index.putLong(position + SHA_SIZE, offset + 1);
+    index.putInt(12, ++size);
+  }
+
+  private boolean shaEquals(int position, byte[] sha) {
+    for (int i = 0; i < SHA_SIZE; i++) {
+      if (index.get(position + i) != sha[i]) return false;
+    }
+    return true;
+  }
+
+  private static int hash(byte[] sha) {
+    return (sha[0] & 0xff) << 24 | (sha[1] & 0xff) << 16 | (sha[2] & 0xff) << 8 | (sha[3] & 0xff);
+  }
+
+  private List<File> readEntry(long offset) throws IOException {
+    var lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+    readFully(lengthBuffer, offset);
+    var entry = ByteBuffer.allocate(lengthBuffer.getInt(0));
+    readFully(entry, offset + Integer.BYTES);
+    entry.flip();
+    entry.position(SHA_SIZE);
+
+    int fileCount = entry.getInt();
+    var files = new ArrayList<File>(fileCount);
+    for (int i = 0; i < fileCount; i++) {
+      var file = new File();
+      var path = new byte[entry.getInt()];
+      entry.get(path);
+      file.fileName = new String(path, StandardCharsets.UTF_8);
+      var status = new byte[entry.get() & 0xff];
+      entry.get(status);
+      file.status = new String(status, StandardCharsets.US_ASCII);
+      files.add(file);
+    }
+    return files;
+  }
+
+  private static ByteBuffer encodeEntry(byte[] sha, List<File> files) {
+    var paths = new byte[files.size()][];
+    var statuses = new byte[files.size()][];
+    int length = SHA_SIZE + Integer.BYTES;
+    for (int i = 0; i < files.size(); i++) {
+      var file = files.get(i);
+      paths[i] = (file.fileName == null ? "" : file.fileName).getBytes(StandardCharsets.UTF_8);
+      statuses[i] = (file.status == null ? "" : file.status).getBytes(StandardCharsets.US_ASCII);
+      length += Integer.BYTES + paths[i].length + 1 + statuses[i].length;
+    }
+
+    var entry = ByteBuffer.allocate(Integer.BYTES + length);
+    entry.putInt(length).put(sha).putInt(files.size());
+    for (int i = 0; i < files.size(); i++) {
+      entry.putInt(paths[i].length).put(paths[i]);
+      entry.put((byte) statuses[i].length).put(statuses[i]);
+    }
+    return entry.flip();
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (data.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of " + DATA_FILE + " at " + position);
+      }
+    }
+  }
+
+  private static byte[] toBytes(String commitSHA) {
+    if (commitSHA == null || commitSHA.length() != SHA_SIZE * 2) return null;
+    try {
+      return HexFormat.of().parseHex(commitSHA);
+    }
+    catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+}
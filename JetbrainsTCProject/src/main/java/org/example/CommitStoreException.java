@@ -0,0 +1,12 @@
+package org.example;
+
+public class CommitStoreException extends RuntimeException {
+
+  public CommitStoreException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  public CommitStoreException(String message) {
+    super(message);
+  }
+}
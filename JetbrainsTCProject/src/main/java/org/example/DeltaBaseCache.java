@@ -0,0 +1,40 @@
+package org.example;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of inflated pack entries that deltas are based on, bounded by the total
+ * size of the cached objects. Neighbouring versions of a file usually share the same bases, so a
+ * small cache avoids inflating the same chain again for every version.
+ */
+final class DeltaBaseCache {
+  private final long maxBytes;
+  private final Map<Key, Value> entries = new LinkedHashMap<>(64, 0.75f, true);
+  private long bytes;
+
+  DeltaBaseCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  synchronized Value get(PackFile pack, long offset) {
+    return entries.get(new Key(pack, offset));
+  }
+
+  synchronized void put(PackFile pack, long offset, int type, byte[] data) {
+    // A single object that would take most of the cache would only evict everything else.
+    if (data.length > maxBytes / 4) return;
+    var previous = entries.put(new Key(pack, offset), new Value(type, data));
+    bytes += data.length - (previous == null ? 0 : previous.data().length);
+    Iterator<Value> eldest = entries.values().iterator();
+    while (bytes > maxBytes && eldest.hasNext()) {
+      bytes -= eldest.next().data().length;
+      eldest.remove();
+    }
+  }
+
+  private record Key(PackFile pack, long offset) {}
+
+  record Value(int type, byte[] data) {}
+}
@@ -0,0 +1,19 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.example.DetectionPhase")
+@Label("Detection Phase")
+@Category({"GitHub Client", "Detection"})
+@Description("A phase of FileChangesDetector: merge-base, local-diff or remote")
+class DetectionPhaseEvent extends Event {
+  @Label("Phase")
+  String phase;
+
+  @Label("Repository")
+  String repository;
+}
@@ -1,85 +1,199 @@
 package org.example;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-
 import java.io.File;
 import java.util.*;
+import java.util.function.Supplier;
 
 public class FileChangesDetector {
 
   private final GitCmdExec gitCmd;
-  private final GithubClient githubClient;
+  private final RemoteChangeSource remoteChangeSource;
+  private final MergeBaseFinder mergeBaseFinder;
+  private CheckpointStore checkpointStore;
+  private MetricsRegistry metrics = MetricsRegistry.NOOP;
 
   public FileChangesDetector(GithubClient githubClient, GitCmdExec gitCmd) {
-    this.githubClient = githubClient;
+    this(gitCmd, new ApiRemoteChangeSource(githubClient));
+  }
+
+  /**
+   * Detects changes with the given source for the remote side, for example an
+   * {@link ApiRemoteChangeSource} or a {@link LocalGitRemoteChangeSource}.
+   */
+  public FileChangesDetector(GitCmdExec gitCmd, RemoteChangeSource remoteChangeSource) {
+    this(gitCmd, remoteChangeSource, new MergeBaseFinder(gitCmd));
+  }
+
+  public FileChangesDetector(GitCmdExec gitCmd, RemoteChangeSource remoteChangeSource, MergeBaseFinder mergeBaseFinder) {
     this.gitCmd = gitCmd;
+    this.remoteChangeSource = remoteChangeSource;
+    this.mergeBaseFinder = mergeBaseFinder;
+  }
+
+  /**
+   * Makes {@link #detectFileChanges(String, String, String, String, String)} incremental: the result of
+   * each branch pair is saved with the remote head it covered, and the next detection of the pair only
+   * looks at the commits pushed since, plus the full history of local changes it has not seen before.
+   * A saved checkpoint is discarded when the merge base moves or the old head is no longer an ancestor
+   * of the new one, for example after a force push.
+   */
+  public FileChangesDetector checkpointStore(CheckpointStore checkpointStore) {
+    this.checkpointStore = checkpointStore;
+    return this;
+  }
+
+  /**
+   * Reports the time spent in each phase of a detection, merge-base, local-diff and remote, to the
+   * registry.
+   */
+  public FileChangesDetector metrics(MetricsRegistry metrics) {
+    this.metrics = metrics;
+    return this;
   }
 
   public Set<String> detectFileChanges(String owner, String repository, String localRepoPath, String branchA, String branchB) {
-    var independentlyModifiedFiles = new HashSet<String>();
+    if (checkpointStore != null) {
+      return detectIncrementally(owner, repository, new File(localRepoPath), branchA, branchB);
+    }
+    var pair = new BranchPair(branchA, branchB);
+    return detectFileChanges(owner, repository, localRepoPath, List.of(pair)).get(pair);
+  }
+
+  /**
+   * Detects the changes of many branch pairs at once. Pairs with the same remote branch and merge base
+   * share one remote query over the union of their local changes, and the remote source can share the
+   * commits the queries have in common, so the remote work grows with the distinct commits rather than
+   * with the number of pairs. The paths of all pairs are interned in one {@link PathTable}, so large
+   * sets of local changes share their directories and are merged as bitsets.
+   */
+  public Map<BranchPair, Set<String>> detectFileChanges(String owner, String repository, String localRepoPath,
+                                                        List<BranchPair> pairs) {
+    File localRepo = new File(localRepoPath);
+    var fullName = owner + "/" + repository;
+    var pathTable = new PathTable();
+    var mergeBases = new HashMap<BranchPair, String>();
+    var localChanges = new HashMap<BranchPair, PathSet>();
+    var queryPaths = new LinkedHashMap<List<String>, PathSet>();
+    for (var pair: pairs) {
+      if (mergeBases.containsKey(pair)) continue;
+      String commitSHA = timed("merge-base", fullName,
+              () -> mergeBaseFinder.mergeBase(localRepo, pair.branchB(), "origin/" + pair.branchA()));
+      var localFileNames = timed("local-diff", fullName,
+              () -> localModifiedFiles(localRepo, commitSHA, pair.branchB(), pathTable));
+      mergeBases.put(pair, commitSHA);
+      localChanges.put(pair, localFileNames);
+      queryPaths.computeIfAbsent(List.of(pair.branchA(), commitSHA), key -> pathTable.newSet()).addAll(localFileNames);
+    }
+
+    var queries = new LinkedHashMap<List<String>, RemoteChangeQuery>();
+    queryPaths.forEach((key, paths) ->
+            queries.put(key, new RemoteChangeQuery(owner, repository, localRepo, key.get(0), key.get(1), paths)));
+    var remoteChanges = timed("remote", fullName, () -> remoteChangeSource.findModifiedFiles(queries.values()));
+
+    var results = new LinkedHashMap<BranchPair, Set<String>>();
+    for (var pair: pairs) {
+      var query = queries.get(List.of(pair.branchA(), mergeBases.get(pair)));
+      var independentlyModifiedFiles = new HashSet<String>(remoteChanges.get(query));
+      independentlyModifiedFiles.retainAll(localChanges.get(pair));
+      results.put(pair, independentlyModifiedFiles);
+    }
+    return results;
+  }
+
+  private Set<String> detectIncrementally(String owner, String repository, File localRepo, String branchA,
+                                          String branchB) {
+    var fullName = owner + "/" + repository;
+    String commitSHA = timed("merge-base", fullName,
+            () -> mergeBaseFinder.mergeBase(localRepo, branchB, "origin/" + branchA));
+    String headSHA = revParse(localRepo, "origin/" + branchA);
+    var localFileNames = timed("local-diff", fullName,
+            () -> localModifiedFiles(localRepo, commitSHA, branchB, new PathTable()));
+
+    var key = new CheckpointStore.Key(owner, repository, branchA, branchB);
+    var checkpoint = checkpointStore.get(key);
+    Set<String> independentlyModifiedFiles = new HashSet<>();
+    if (checkpoint == null || !checkpoint.mergeBase().equals(commitSHA)
+            || !isAncestor(localRepo, checkpoint.headSha(), headSHA)) {
+      var query = new RemoteChangeQuery(owner, repository, localRepo, branchA, commitSHA, localFileNames, headSHA);
+      independentlyModifiedFiles.addAll(timed("remote", fullName, () -> remoteChangeSource.findModifiedFiles(query)));
+    }
+    else {
+      independentlyModifiedFiles.addAll(checkpoint.remoteModifiedFiles());
+      var queries = new ArrayList<RemoteChangeQuery>();
+      if (!checkpoint.headSha().equals(headSHA)) {
+        queries.add(new RemoteChangeQuery(owner, repository, localRepo, branchA, checkpoint.headSha(),
+                localFileNames, headSHA));
+      }
+      var newPaths = new HashSet<String>(localFileNames);
+      newPaths.removeAll(checkpoint.candidatePaths());
+      if (!newPaths.isEmpty()) {
+        queries.add(new RemoteChangeQuery(owner, repository, localRepo, branchA, commitSHA, newPaths,
+                checkpoint.headSha()));
+      }
+      if (!queries.isEmpty()) {
+        timed("remote", fullName, () -> remoteChangeSource.findModifiedFiles(queries)).values()
+                .forEach(independentlyModifiedFiles::addAll);
+      }
+    }
+    independentlyModifiedFiles.retainAll(localFileNames);
+
+    checkpointStore.put(key, new CheckpointStore.Checkpoint(headSHA, commitSHA, localFileNames,
+            Set.copyOf(independentlyModifiedFiles)));
+    return independentlyModifiedFiles;
+  }
+
+  private <T> T timed(String phase, String repository, Supplier<T> action) {
+    long start = System.nanoTime();
+    var event = new DetectionPhaseEvent();
+    event.begin();
+    try {
+      return action.get();
+    }
+    finally {
+      metrics.timer("detection_phase_duration_seconds", "phase", phase).recordSince(start);
+      event.end();
+      if (event.shouldCommit()) {
+        event.phase = phase;
+        event.repository = repository;
+        event.commit();
+      }
+    }
+  }
+
+  private boolean isAncestor(File localRepo, String ancestor, String descendant) {
+    try {
+      return ancestor.equals(mergeBaseFinder.mergeBase(localRepo, ancestor, descendant));
+    }
+    catch (GitCommandException e) {
+      // The old head is gone, for example after a force push and a gc.
+      return false;
+    }
+  }
 
+  private String revParse(File localRepo, String revision) {
     List<String> command = new LinkedList<>();
     command.add("git");
-    command.add("merge-base");
-    command.add(branchB);
-    command.add("origin/" + branchA);
-
-    File localRepo = new File(localRepoPath);
+    command.add("rev-parse");
+    command.add(revision);
+    return gitCmd.runCommand(localRepo, command).output().trim();
+  }
 
-    var result = gitCmd.runCommand(localRepo, command);
-    String commitSHA = result.output().trim();
-    command.clear();
+  /**
+   * Streams the NUL-terminated output of the diff straight into the table, so the paths of a large diff
+   * are never held as one String and are not quoted by git.
+   */
+  private PathSet localModifiedFiles(File localRepo, String commitSHA, String branchB, PathTable pathTable) {
+    List<String> command = new LinkedList<>();
     command.add("git");
     command.add("diff");
     command.add("--name-only");
+    command.add("-z");
     command.add("--diff-filter=M");
     command.add(commitSHA);
     command.add(branchB);
 
-    result = gitCmd.runCommand(localRepo, command);
-    var localFileNames = new HashSet<String>(Arrays.asList(result.output().split("\n")));
-    var request = GHRequestBuilder.getCommit(owner, repository, commitSHA).build();
-    var commitResponse = githubClient.send(request, new TypeReference<GHGetCommitResponse>() {});
-    var commitDate = commitResponse.response.getData().commit.author.date;
-
-    request = GHRequestBuilder.listCommits(owner, repository)
-            .sha(commitSHA)
-            .since(commitDate)
-            .build();
-
-    var listCommitsResponse = githubClient.send(request, new TypeReference<List<GHListCommitObject>>(){}).response;
-    GHPage<GHGetCommitResponse> commitInfoResponse;
-
-    while (true) {
-      var listCommits = listCommitsResponse.getData();
-      for (var commit: listCommits) {
-        var r = GHRequestBuilder.getCommit(owner, repository, commit.sha).build();
-        commitInfoResponse = githubClient.send(r, new TypeReference<GHGetCommitResponse>() {}).response;
-        while (true) {
-           var commitInfo = commitInfoResponse.getData();
-              if (commitInfo.files != null) {
-                for (var file: commitInfo.files) {
-                  if(file.status == "modified" && localFileNames.contains(file.fileName)) {
-                independentlyModifiedFiles.add(file.fileName);
-              }
-            }
-          }
-          if (commitInfoResponse.hasNext()) {
-            commitInfoResponse.nextPage();
-          }
-          else {
-            break;
-          }
-        }
-      }
-      if (listCommitsResponse.hasNext()) {
-        listCommitsResponse.nextPage();
-      }
-      else {
-        break;
-      }
-    }
-    return independentlyModifiedFiles;
+    var localFileNames = pathTable.newSet();
+    gitCmd.streamCommand(localRepo, command, pathTable.nulTerminated(localFileNames), null);
+    return localFileNames;
   }
 }
-
@@ -0,0 +1,21 @@
+package org.example;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GHCompareResponse {
+  public String status;
+  @JsonProperty("ahead_by")
+  public int aheadBy;
+  @JsonProperty("behind_by")
+  public int behindBy;
+  @JsonProperty("total_commits")
+  public int totalCommits;
+  @JsonProperty("merge_base_commit")
+  public GHListCommitObject mergeBaseCommit;
+  public List<GHListCommitObject> commits;
+  public List<File> files;
+}
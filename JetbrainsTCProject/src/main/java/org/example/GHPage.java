@@ -2,13 +2,32 @@ package org.example;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class GHPage<T> {
+  public static final int DEFAULT_PREFETCH_DEPTH = 1;
+  public static final int DEFAULT_MAX_PAGES_IN_FLIGHT = 8;
+  private static final Pattern NEXT_LINK = Pattern.compile("<([^>]+)>;\\s*rel=\"next\"");
+  private static final Pattern LAST_LINK = Pattern.compile("<([^>]+)>;\\s*rel=\"last\"");
+  private static final Pattern PAGE_PARAM = Pattern.compile("[?&]page=(\\d+)");
+
   private final GithubClient githubClient;
   private final TypeReference<T> typeReference;
-  private String nextUrl;
+  private volatile String nextUrl;
+  private volatile String lastUrl;
   private final T data;
 
   public GHPage(T data, String linkHeader, GithubClient client, TypeReference<T> typeReference) {
@@ -25,29 +44,155 @@ public class GHPage<T> {
   private void updateNextUrl(String linkHeader) {
     if (linkHeader == null) return;
 
-    Pattern pattern = Pattern.compile("<([^>]+)>;\\s*rel=\"next\"");
-    Matcher matcher = pattern.matcher(linkHeader);
+    Matcher matcher = NEXT_LINK.matcher(linkHeader);
     if (matcher.find()) {
       nextUrl = matcher.group(1);
     } else {
       nextUrl = null;
     }
+    matcher = LAST_LINK.matcher(linkHeader);
+    if (matcher.find()) {
+      lastUrl = matcher.group(1);
+    } else {
+      lastUrl = null;
+    }
+  }
+
+  /**
+   * A page with the same data and links whose pagination advances independently of this one.
+   */
+  GHPage<T> copy() {
+    var copy = new GHPage<T>(data, null, githubClient, typeReference);
+    copy.nextUrl = nextUrl;
+    copy.lastUrl = lastUrl;
+    return copy;
   }
 
   public boolean hasNext() {
     return nextUrl != null;
   }
 
+  String nextUrl() {
+    return nextUrl;
+  }
+
+  /**
+   * The number of the last page as announced by the {@code rel="last"} link, or empty when GitHub did
+   * not send one, for example on the last page itself.
+   */
+  public OptionalInt lastPageNumber() {
+    return lastUrl == null ? OptionalInt.empty() : pageNumber(lastUrl);
+  }
+
   public T nextPage() {
     if (nextUrl == null) return null;
-    String current = nextUrl;
-    return fetchNextPage(current);
+    var url = nextUrl;
+    var response = GHPageFetchEvent.record(url, () -> githubClient.send(new GHRequest(url), typeReference)).response;
+    nextUrl = response.nextUrl;
+    lastUrl = response.lastUrl;
+    return response.data;
   }
 
-  private T fetchNextPage(String url) {
-    var request = new GHRequest(nextUrl);
-    var response = githubClient.send(request, typeReference).response;
-    updateNextUrl(response.nextUrl);
-    return response.data;
+  /**
+   * Returns the data of this page followed by the data of every remaining page, in page order. When the
+   * {@code rel="last"} link gives the page count the remaining pages are requested concurrently, at most
+   * {@link #DEFAULT_MAX_PAGES_IN_FLIGHT} at a time, otherwise they are fetched one after another. This
+   * page object itself is not advanced.
+   */
+  public List<T> fetchAllPages() {
+    return fetchAllPages(DEFAULT_MAX_PAGES_IN_FLIGHT);
+  }
+
+  /**
+   * Like {@link #fetchAllPages()} with at most {@code maxPagesInFlight} page requests running at the
+   * same time, which keeps long histories from bursting into GitHub's secondary rate limit.
+   */
+  public List<T> fetchAllPages(int maxPagesInFlight) {
+    if (maxPagesInFlight < 1) {
+      throw new IllegalArgumentException("maxPagesInFlight must be at least 1, was " + maxPagesInFlight);
+    }
+    var pages = new ArrayList<T>();
+    var next = nextUrl;
+    var first = next == null ? OptionalInt.empty() : pageNumber(next);
+    var last = lastPageNumber();
+    if (first.isEmpty() || last.isEmpty()) {
+      iterator(Collections::singletonList, 0).forEachRemaining(pages::add);
+      return pages;
+    }
+
+    pages.add(data);
+    // A window of requests slides over the pages, each collected page lets the next one be sent.
+    var futures = new ArrayList<CompletableFuture<GHResponse<T>>>();
+    int count = last.getAsInt() - first.getAsInt() + 1;
+    try {
+      for (int collected = 0; collected < count; collected++) {
+        while (futures.size() < count && futures.size() - collected < maxPagesInFlight) {
+          var request = GHRequestBuilder.page(next, first.getAsInt() + futures.size());
+          futures.add(GHPageFetchEvent.recordAsync(request.toString(), () -> githubClient.sendAsync(request, typeReference)));
+        }
+        pages.add(futures.get(collected).join().response.getData());
+      }
+    }
+    catch (CompletionException e) {
+      futures.forEach(future -> future.cancel(false));
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new GHApiException("Error fetching pages of: " + next, e.getCause());
+    }
+    return pages;
+  }
+
+  static OptionalInt pageNumber(String url) {
+    Matcher matcher = PAGE_PARAM.matcher(url);
+    return matcher.find() ? OptionalInt.of(Integer.parseInt(matcher.group(1))) : OptionalInt.empty();
+  }
+
+  /**
+   * Fetches the next page without blocking. The returned future completes with {@code null} when there
+   * is no next page. Page fetches can be chained with {@code thenCompose}, but only one fetch per page
+   * object may be outstanding at a time.
+   */
+  public CompletableFuture<T> nextPageAsync() {
+    if (nextUrl == null) return CompletableFuture.completedFuture(null);
+    var url = nextUrl;
+    return GHPageFetchEvent.recordAsync(url, () -> githubClient.sendAsync(new GHRequest(url), typeReference))
+            .thenApply(response -> {
+              nextUrl = response.response.nextUrl;
+              return response.response.data;
+            });
+  }
+
+  /**
+   * Iterates lazily over the elements of this page and every following page, for example
+   * {@code page.iterator(commit -> commit.files)}. A null element collection counts as empty. The next
+   * page is fetched in the background while the current one is consumed. This page object itself is not
+   * advanced.
+   */
+  public <E> Iterator<E> iterator(Function<? super T, ? extends Iterable<E>> elements) {
+    return iterator(elements, DEFAULT_PREFETCH_DEPTH);
+  }
+
+  /**
+   * Like {@link #iterator(Function)}, with up to {@code prefetchDepth} pages fetched ahead. A depth of 0
+   * fetches every page only when it is needed.
+   */
+  public <E> Iterator<E> iterator(Function<? super T, ? extends Iterable<E>> elements, int prefetchDepth) {
+    return new GHPageIterator<>(githubClient, typeReference, data, nextUrl, elements, prefetchDepth);
+  }
+
+  public <E> Stream<E> stream(Function<? super T, ? extends Iterable<E>> elements) {
+    return stream(elements, DEFAULT_PREFETCH_DEPTH);
+  }
+
+  /**
+   * Streams the elements of this page and every following page. Pages after the ones already consumed
+   * or prefetched are never requested when the stream short-circuits; closing the stream also drops the
+   * prefetched ones.
+   */
+  public <E> Stream<E> stream(Function<? super T, ? extends Iterable<E>> elements, int prefetchDepth) {
+    var iterator = new GHPageIterator<>(githubClient, typeReference, data, nextUrl, elements, prefetchDepth);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+            .onClose(iterator::cancel);
   }
 }
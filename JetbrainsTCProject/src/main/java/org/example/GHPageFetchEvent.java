@@ -0,0 +1,59 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+@Name("org.example.GHPageFetch")
+@Label("GitHub Page Fetch")
+@Category({"GitHub Client", "HTTP"})
+@Description("Fetch of a following page of a paginated GitHub response, including retries and deserialization")
+class GHPageFetchEvent extends Event {
+  @Label("URL")
+  String url;
+
+  @Label("Page")
+  @Description("Page number from the URL, -1 when it has none")
+  int page;
+
+  @Label("Succeeded")
+  boolean succeeded;
+
+  static <T> T record(String url, Supplier<T> fetch) {
+    var event = new GHPageFetchEvent();
+    event.begin();
+    boolean succeeded = false;
+    try {
+      var result = fetch.get();
+      succeeded = true;
+      return result;
+    }
+    finally {
+      event.finish(url, succeeded);
+    }
+  }
+
+  /**
+   * Starts the fetch with an event that spans until the returned future completes.
+   */
+  static <T> CompletableFuture<T> recordAsync(String url, Supplier<CompletableFuture<T>> fetch) {
+    var event = new GHPageFetchEvent();
+    event.begin();
+    return fetch.get().whenComplete((result, error) -> event.finish(url, error == null));
+  }
+
+  private void finish(String url, boolean succeeded) {
+    end();
+    if (shouldCommit()) {
+      this.url = url;
+      this.page = GHPage.pageNumber(url).orElse(-1);
+      this.succeeded = succeeded;
+      commit();
+    }
+  }
+}
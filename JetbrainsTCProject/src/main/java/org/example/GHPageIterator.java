@@ -0,0 +1,115 @@
+package org.example;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Iterates over the elements of a page and all pages after it. Up to {@code prefetchDepth} of the
+ * following pages are requested in the background while the current one is consumed; with a depth of
+ * 0 a page is only requested once the previous one is used up.
+ */
+class GHPageIterator<T, E> implements Iterator<E> {
+  private final GithubClient githubClient;
+  private final TypeReference<T> typeReference;
+  private final Function<? super T, ? extends Iterable<E>> elements;
+  private final int prefetchDepth;
+  private final Deque<CompletableFuture<Page<T>>> pending = new ArrayDeque<>();
+  private CompletableFuture<Page<T>> lastScheduled;
+  private Iterator<E> current;
+  private boolean finished;
+
+  GHPageIterator(GithubClient githubClient, TypeReference<T> typeReference, T firstPage, String nextUrl,
+                 Function<? super T, ? extends Iterable<E>> elements, int prefetchDepth) {
+    if (prefetchDepth < 0) {
+      throw new IllegalArgumentException("prefetchDepth must not be negative, was " + prefetchDepth);
+    }
+    this.githubClient = githubClient;
+    this.typeReference = typeReference;
+    this.elements = elements;
+    this.prefetchDepth = prefetchDepth;
+    this.current = elementsOf(firstPage);
+    this.lastScheduled = CompletableFuture.completedFuture(new Page<>(firstPage, nextUrl));
+    prefetch();
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (!current.hasNext()) {
+      if (finished) return false;
+      if (pending.isEmpty()) {
+        scheduleNext();
+      }
+      var page = await(pending.poll());
+      if (page == null) {
+        finished = true;
+        pending.clear();
+        return false;
+      }
+      current = elementsOf(page.data());
+      prefetch();
+    }
+    return true;
+  }
+
+  @Override
+  public E next() {
+    if (!hasNext()) throw new NoSuchElementException();
+    return current.next();
+  }
+
+  /**
+   * Stops prefetching. Pages that are already being fetched are discarded.
+   */
+  void cancel() {
+    finished = true;
+    pending.forEach(future -> future.cancel(false));
+    pending.clear();
+  }
+
+  private void prefetch() {
+    while (pending.size() < prefetchDepth && !lastPageScheduled()) {
+      scheduleNext();
+    }
+  }
+
+  private void scheduleNext() {
+    lastScheduled = lastScheduled.thenCompose(page -> page == null || page.nextUrl() == null
+            ? CompletableFuture.completedFuture(null)
+            : fetch(page.nextUrl()));
+    pending.add(lastScheduled);
+  }
+
+  private boolean lastPageScheduled() {
+    if (!lastScheduled.isDone() || lastScheduled.isCompletedExceptionally()) return false;
+    var page = lastScheduled.join();
+    return page == null || page.nextUrl() == null;
+  }
+
+  private CompletableFuture<Page<T>> fetch(String url) {
+    return GHPageFetchEvent.recordAsync(url, () -> githubClient.sendAsync(new GHRequest(url), typeReference))
+            .thenApply(response -> new Page<>(response.response.getData(), response.response.nextUrl()));
+  }
+
+  private Iterator<E> elementsOf(T page) {
+    var pageElements = page == null ? null : elements.apply(page);
+    return pageElements == null ? Collections.emptyIterator() : pageElements.iterator();
+  }
+
+  private static <T> T await(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    }
+    catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new GHApiException("Error fetching page", e.getCause());
+    }
+  }
+
+  private record Page<T>(T data, String nextUrl) {}
+}
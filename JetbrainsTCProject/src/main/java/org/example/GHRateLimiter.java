@@ -0,0 +1,132 @@
+package org.example;
+
+import java.net.http.HttpHeaders;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Schedules requests against the rate limit GitHub reports in the {@code X-RateLimit-*} headers.
+ * <p>
+ * While more than {@code reserveFraction} of the budget is left requests go out immediately. Below that,
+ * the remaining requests are spread evenly over the time left until the limit resets, so a long run slows
+ * down instead of running dry. A 429, or a 403 caused by the primary or a secondary rate limit, pauses all
+ * requests until {@code Retry-After} or the reset time, and the rejected request is retried up to
+ * {@code maxRetries} times.
+ */
+public class GHRateLimiter {
+  public static final double DEFAULT_RESERVE_FRACTION = 0.1;
+  public static final int DEFAULT_MAX_RETRIES = 3;
+  private static final Duration SECONDARY_LIMIT_BACKOFF = Duration.ofMinutes(1);
+
+  private final Clock clock;
+  private final double reserveFraction;
+  private final int maxRetries;
+
+  private int limit = -1;
+  private int remaining = -1;
+  private Instant resetAt;
+  private Instant pausedUntil = Instant.MIN;
+  private Instant nextSlot = Instant.MIN;
+
+  public GHRateLimiter() {
+    this(Clock.systemUTC(), DEFAULT_RESERVE_FRACTION, DEFAULT_MAX_RETRIES);
+  }
+
+  public GHRateLimiter(Clock clock, double reserveFraction, int maxRetries) {
+    this.clock = clock;
+    this.reserveFraction = reserveFraction;
+    this.maxRetries = maxRetries;
+  }
+
+  /**
+   * The budget as last reported by GitHub, minus the requests reserved since then. Limit and remaining
+   * are -1 and the reset time is null until the first response arrives.
+   */
+  public synchronized Budget budget() {
+    expireWindow(clock.instant());
+    return new Budget(limit, remaining, resetAt);
+  }
+
+  /**
+   * Reserves a slot for one request and returns how long the caller has to wait before sending it.
+   */
+  public synchronized Duration reserve() {
+    var now = clock.instant();
+    expireWindow(now);
+
+    var start = latest(now, latest(pausedUntil, nextSlot));
+    if (remaining == 0 && resetAt != null) {
+      start = latest(start, resetAt);
+    }
+    else if (remaining > 0 && resetAt != null && remaining <= limit * reserveFraction) {
+      var window = Duration.between(start, resetAt);
+      if (!window.isNegative()) {
+        nextSlot = start.plus(window.dividedBy(remaining));
+      }
+    }
+    if (remaining > 0) {
+      remaining--;
+    }
+    return Duration.between(now, start);
+  }
+
+  /**
+   * Records the budget reported by a response.
+   */
+  public synchronized void update(HttpHeaders headers) {
+    var reportedLimit = headers.firstValueAsLong("X-RateLimit-Limit");
+    var reportedRemaining = headers.firstValueAsLong("X-RateLimit-Remaining");
+    var reportedReset = headers.firstValueAsLong("X-RateLimit-Reset");
+    if (reportedLimit.isPresent()) {
+      limit = (int) reportedLimit.getAsLong();
+    }
+    if (reportedRemaining.isPresent()) {
+      remaining = (int) reportedRemaining.getAsLong();
+    }
+    if (reportedReset.isPresent()) {
+      resetAt = Instant.ofEpochSecond(reportedReset.getAsLong());
+    }
+  }
+
+  /**
+   * Decides whether a response was rejected by a rate limit and should be sent again. If so, pauses all
+   * requests until the limit allows them again and returns true.
+   *
+   * @param attempt the number of times this request has already been retried
+   */
+  public synchronized boolean shouldRetry(int statusCode, HttpHeaders headers, int attempt) {
+    var retryAfter = headers.firstValueAsLong("Retry-After");
+    boolean exhausted = headers.firstValueAsLong("X-RateLimit-Remaining").orElse(-1) == 0;
+    boolean rateLimited = statusCode == 429 || (statusCode == 403 && (retryAfter.isPresent() || exhausted));
+    if (!rateLimited || attempt >= maxRetries) return false;
+
+    var now = clock.instant();
+    Instant until;
+    if (retryAfter.isPresent()) {
+      until = now.plusSeconds(retryAfter.getAsLong());
+    }
+    else if (exhausted && resetAt != null) {
+      until = resetAt;
+    }
+    else {
+      until = now.plus(SECONDARY_LIMIT_BACKOFF.multipliedBy(1L << attempt));
+    }
+    pausedUntil = latest(pausedUntil, until);
+    return true;
+  }
+
+  private void expireWindow(Instant now) {
+    if (resetAt != null && !now.isBefore(resetAt)) {
+      remaining = limit;
+      resetAt = null;
+      nextSlot = Instant.MIN;
+    }
+  }
+
+  private static Instant latest(Instant a, Instant b) {
+    return a.isAfter(b) ? a : b;
+  }
+
+  public record Budget(int limit, int remaining, Instant resetAt) {}
+}
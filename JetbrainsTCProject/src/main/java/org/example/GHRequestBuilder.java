@@ -1,13 +1,17 @@
 package org.example;
 
+import java.net.URI;
+import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * Builds API requests with paths relative to the API root, such as {@code /repos/owner/repo/commits}.
+ * {@link GithubClient} resolves them against its base URL.
+ */
 public class GHRequestBuilder {
-  private static final String BASE_URL = "https://api.github.com";
-
   private final StringBuilder pathBuilder = new StringBuilder();
   private final Map<String, String> queryParams = new LinkedHashMap<>();
 
@@ -15,8 +19,7 @@ public class GHRequestBuilder {
 
   public static ListCommitsEndpoint listCommits(String owner, String repo) {
     GHRequestBuilder builder = new GHRequestBuilder();
-    builder.pathBuilder.append(BASE_URL)
-            .append("/repos/")
+    builder.pathBuilder.append("/repos/")
             .append(URLEncoder.encode(owner, StandardCharsets.UTF_8))
             .append("/")
             .append(URLEncoder.encode(repo, StandardCharsets.UTF_8))
@@ -26,8 +29,7 @@ public class GHRequestBuilder {
 
   public static GetCommitEndPoint getCommit(String owner, String repo, String ref) {
     GHRequestBuilder builder = new GHRequestBuilder();
-    builder.pathBuilder.append(BASE_URL)
-            .append("/repos/")
+    builder.pathBuilder.append("/repos/")
             .append(URLEncoder.encode(owner, StandardCharsets.UTF_8))
             .append("/")
             .append(URLEncoder.encode(repo, StandardCharsets.UTF_8))
@@ -36,6 +38,42 @@ public class GHRequestBuilder {
     return new GetCommitEndPoint(builder);
   }
 
+  public static CompareEndpoint compare(String owner, String repo, String base, String head) {
+    GHRequestBuilder builder = new GHRequestBuilder();
+    builder.pathBuilder.append("/repos/")
+            .append(URLEncoder.encode(owner, StandardCharsets.UTF_8))
+            .append("/")
+            .append(URLEncoder.encode(repo, StandardCharsets.UTF_8))
+            .append("/compare/")
+            .append(URLEncoder.encode(base, StandardCharsets.UTF_8))
+            .append("...")
+            .append(URLEncoder.encode(head, StandardCharsets.UTF_8));
+    return new CompareEndpoint(builder);
+  }
+
+  /**
+   * Returns the request for another page of a paginated URL, such as one from a {@code Link} header,
+   * keeping its other query parameters.
+   */
+  public static GHRequest page(String url, int page) {
+    var uri = URI.create(url);
+    GHRequestBuilder builder = new GHRequestBuilder();
+    builder.pathBuilder.append(uri.getScheme() == null ? "" : uri.getScheme() + "://")
+            .append(uri.getRawAuthority() == null ? "" : uri.getRawAuthority())
+            .append(uri.getRawPath());
+    if (uri.getRawQuery() != null) {
+      for (var param: uri.getRawQuery().split("&")) {
+        int separator = param.indexOf('=');
+        var key = separator < 0 ? param : param.substring(0, separator);
+        var value = separator < 0 ? "" : param.substring(separator + 1);
+        builder.queryParams.put(URLDecoder.decode(key, StandardCharsets.UTF_8),
+                URLDecoder.decode(value, StandardCharsets.UTF_8));
+      }
+    }
+    builder.queryParams.put("page", String.valueOf(page));
+    return builder.build();
+  }
+
   public GHRequest build() {
     if (!queryParams.isEmpty()) {
       pathBuilder.append("?");
@@ -119,4 +157,26 @@ public class GHRequestBuilder {
       return builder.build();
     }
   }
+
+  public static class CompareEndpoint {
+    private final GHRequestBuilder builder;
+
+    private CompareEndpoint(GHRequestBuilder builder) {
+      this.builder = builder;
+    }
+
+    public CompareEndpoint perPage(int count) {
+      builder.queryParams.put("per_page", String.valueOf(count));
+      return this;
+    }
+
+    public CompareEndpoint page(int page) {
+      builder.queryParams.put("page", String.valueOf(page));
+      return this;
+    }
+
+    public GHRequest build() {
+      return builder.build();
+    }
+  }
 }
@@ -0,0 +1,32 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.example.GHRequest")
+@Label("GitHub Request")
+@Category({"GitHub Client", "HTTP"})
+@Description("One HTTP exchange with the GitHub API, from sending the request until its body was read")
+class GHRequestEvent extends Event {
+  @Label("URI")
+  String uri;
+
+  @Label("Endpoint")
+  String endpoint;
+
+  @Label("Status")
+  @Description("HTTP status code, -1 when no response arrived")
+  int status;
+
+  @Label("Response Bytes")
+  @DataAmount
+  long bytes;
+
+  @Label("Attempt")
+  @Description("Number of earlier attempts rejected by a rate limit")
+  int attempt;
+}
@@ -0,0 +1,94 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Responses of the GitHub API keyed by request URI, together with the validators needed to revalidate
+ * them with a conditional request. Only the most recently used entries are kept in memory. When created
+ * with a directory every entry is also written to its own file there, so evicted entries are reloaded
+ * from disk and the cache survives restarts of the JVM.
+ */
+public class GHResponseCache {
+  public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+  private final Map<URI, CachedResponse> entries;
+  private final JsonFileStore<StoredResponse> files;
+
+  public GHResponseCache() {
+    this(DEFAULT_MAX_ENTRIES);
+  }
+
+  public GHResponseCache(int maxEntries) {
+    this.entries = lruMap(maxEntries);
+    this.files = null;
+  }
+
+  public GHResponseCache(Path directory) {
+    this(directory, DEFAULT_MAX_ENTRIES);
+  }
+
+  public GHResponseCache(Path directory, int maxEntries) {
+    this.entries = lruMap(maxEntries);
+    try {
+      this.files = new JsonFileStore<>(directory, StoredResponse.class);
+    }
+    catch (IOException e) {
+      throw new GHApiException("Cannot create response cache directory: " + directory, e);
+    }
+  }
+
+  public CachedResponse get(URI uri) {
+    var cached = entries.get(uri);
+    if (cached == null && files != null) {
+      cached = load(uri);
+      if (cached != null) {
+        entries.putIfAbsent(uri, cached);
+      }
+    }
+    return cached;
+  }
+
+  public void put(URI uri, CachedResponse response) {
+    entries.put(uri, response);
+    if (files != null) {
+      store(uri, response);
+    }
+  }
+
+  private static Map<URI, CachedResponse> lruMap(int maxEntries) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+    }
+    return Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<URI, CachedResponse> eldest) {
+        return size() > maxEntries;
+      }
+    });
+  }
+
+  private CachedResponse load(URI uri) {
+    var stored = files.read(uri.toString());
+    return stored != null && uri.toString().equals(stored.uri()) ? stored.response() : null;
+  }
+
+  private void store(URI uri, CachedResponse response) {
+    try {
+      files.write(uri.toString(), new StoredResponse(uri.toString(), response));
+    }
+    catch (IOException e) {
+      throw new GHApiException("Cannot write response cache entry for: " + uri, e);
+    }
+  }
+
+  public record CachedResponse(String etag, String lastModified, String linkHeader, JsonNode body) {}
+
+  private record StoredResponse(String uri, CachedResponse response) {}
+}
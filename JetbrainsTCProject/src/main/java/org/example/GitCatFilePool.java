@@ -0,0 +1,288 @@
+package org.example;
+
+import java.io.*;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Long-lived {@code git cat-file --batch} and {@code --batch-check} processes for one repository.
+ * Starting git costs several milliseconds per call, a warm process answers a lookup in microseconds.
+ * <p>
+ * Up to {@code poolSize} processes of each kind are started on demand and reused. Lookups of many
+ * objects are pipelined: the names are written to git's stdin on a separate thread while the answers
+ * are read, so neither side waits for the other. A process that dies is replaced and the lookup
+ * continues on the new one.
+ */
+public class GitCatFilePool implements GitObjectReader, AutoCloseable {
+  public static final int DEFAULT_POOL_SIZE = 2;
+  private static final int MAX_RESTARTS = 2;
+
+  private final File gitDirectory;
+  private final Mode contents;
+  private final Mode info;
+  private final ExecutorService writers = Executors.newCachedThreadPool(runnable -> {
+    var thread = new Thread(runnable, "git-cat-file-writer");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private volatile boolean closed;
+
+  public GitCatFilePool(File gitDirectory) {
+    this(gitDirectory, DEFAULT_POOL_SIZE);
+  }
+
+  public GitCatFilePool(File gitDirectory, int poolSize) {
+    if (poolSize < 1) {
+      throw new IllegalArgumentException("poolSize must be at least 1, was " + poolSize);
+    }
+    this.gitDirectory = gitDirectory;
+    this.contents = new Mode("--batch", poolSize);
+    this.info = new Mode("--batch-check", poolSize);
+  }
+
+  /**
+   * Reads the object named by {@code object}, a SHA or any revision expression such as
+   * {@code HEAD:path/to/file}. Returns an empty optional when it does not exist.
+   */
+  @Override
+  public Optional<GitObject> read(String object) {
+    return readAll(List.of(object)).get(0);
+  }
+
+  /**
+   * Reads the type and size of the object without its content.
+   */
+  public Optional<GitObject> info(String object) {
+    return infoAll(List.of(object)).get(0);
+  }
+
+  /**
+   * Reads all objects over one process, in the order given.
+   */
+  public List<Optional<GitObject>> readAll(List<String> objects) {
+    return lookup(contents, objects);
+  }
+
+  public List<Optional<GitObject>> infoAll(List<String> objects) {
+    return lookup(info, objects);
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    contents.close();
+    info.close();
+    writers.shutdownNow();
+  }
+
+  private List<Optional<GitObject>> lookup(Mode mode, List<String> objects) {
+    for (var object: objects) {
+      if (object.isEmpty() || object.indexOf('\n') >= 0) {
+        throw new IllegalArgumentException("Invalid object name: " + object);
+      }
+    }
+    if (closed) {
+      throw new IllegalStateException("GitCatFilePool is closed: " + gitDirectory);
+    }
+
+    var results = new ArrayList<Optional<GitObject>>(objects.size());
+    for (int restarts = 0; ; restarts++) {
+      var process = mode.acquire();
+      boolean healthy = false;
+      try {
+        readInto(process, mode == contents, objects.subList(results.size(), objects.size()), results);
+        healthy = true;
+        return results;
+      }
+      catch (IOException e) {
+        if (restarts >= MAX_RESTARTS || closed) {
+          throw new GitCommandException("git cat-file " + mode.option + " failed in: " + gitDirectory, e);
+        }
+      }
+      finally {
+        mode.release(process, healthy);
+      }
+    }
+  }
+
+  private void readInto(CatFileProcess process, boolean withContent, List<String> objects,
+                        List<Optional<GitObject>> results) throws IOException {
+    Future<?> writer = null;
+    if (objects.size() == 1) {
+      process.write(objects);
+    }
+    else {
+      writer = writers.submit(() -> {
+        process.write(objects);
+        return null;
+      });
+    }
+
+    try {
+      for (int i = 0; i < objects.size(); i++) {
+        results.add(process.readObject(withContent));
+      }
+    }
+    catch (IOException e) {
+      if (writer != null) {
+        writer.cancel(true);
+      }
+      throw e;
+    }
+
+    if (writer != null) {
+      try {
+        writer.get();
+      }
+      catch (ExecutionException e) {
+        throw e.getCause() instanceof IOException ioException ? ioException : new IOException(e.getCause());
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new GitCommandException("Interrupted while writing to git cat-file in: " + gitDirectory, e);
+      }
+    }
+  }
+
+  private final class Mode {
+    private final String option;
+    private final Semaphore permits;
+    private final Deque<CatFileProcess> idle = new ConcurrentLinkedDeque<>();
+
+    private Mode(String option, int poolSize) {
+      this.option = option;
+      this.permits = new Semaphore(poolSize);
+    }
+
+    private CatFileProcess acquire() {
+      try {
+        permits.acquire();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new GitCommandException("Interrupted while waiting for git cat-file in: " + gitDirectory, e);
+      }
+      try {
+        CatFileProcess process;
+        while ((process = idle.poll()) != null) {
+          if (process.isAlive()) return process;
+          process.destroy();
+        }
+        return new CatFileProcess(gitDirectory, option);
+      }
+      catch (RuntimeException e) {
+        permits.release();
+        throw e;
+      }
+    }
+
+    private void release(CatFileProcess process, boolean healthy) {
+      if (healthy && !closed && process.isAlive()) {
+        idle.push(process);
+      }
+      else {
+        process.destroy();
+      }
+      permits.release();
+    }
+
+    private void close() {
+      CatFileProcess process;
+      while ((process = idle.poll()) != null) {
+        process.destroy();
+      }
+    }
+  }
+
+  private static final class CatFileProcess {
+    private final Process process;
+    private final OutputStream stdin;
+    private final InputStream stdout;
+
+    private CatFileProcess(File gitDirectory, String option) {
+      var command = List.of("git", "cat-file", option);
+      try {
+        var pb = new ProcessBuilder(command);
+        pb.directory(gitDirectory);
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        process = pb.start();
+      }
+      catch (IOException e) {
+        throw new GitCommandException("Exception running git command: " + String.join(" ", command), e);
+      }
+      stdin = new BufferedOutputStream(process.getOutputStream());
+      stdout = new BufferedInputStream(process.getInputStream());
+    }
+
+    private void write(List<String> objects) throws IOException {
+      for (var object: objects) {
+        stdin.write(object.getBytes(StandardCharsets.UTF_8));
+        stdin.write('\n');
+      }
+      stdin.flush();
+    }
+
+    /**
+     * Reads one answer: {@code <sha> <type> <size>\n[<content>\n]}, or {@code <name> missing\n} and
+     * {@code <name> ambiguous\n} for objects that cannot be resolved.
+     */
+    private Optional<GitObject> readObject(boolean withContent) throws IOException {
+      var line = readLine();
+      // Only these replies echo the requested name, which may contain spaces, so they are matched first.
+      if (line.endsWith(" missing") || line.endsWith(" ambiguous")) {
+        return Optional.empty();
+      }
+      var header = line.split(" ");
+      if (header.length != 3) {
+        throw new IOException("Unexpected git cat-file output: " + line);
+      }
+      var sha = header[0];
+      var type = header[1];
+
+      long size;
+      try {
+        size = Long.parseLong(header[2]);
+      }
+      catch (NumberFormatException e) {
+        throw new IOException("Unexpected git cat-file output: " + line, e);
+      }
+      if (!withContent) {
+        return Optional.of(new GitObject(sha, type, size, null));
+      }
+      if (size > Integer.MAX_VALUE - 8) {
+        throw new GitCommandException("Object " + sha + " is too large to read: " + size + " bytes");
+      }
+
+      var content = stdout.readNBytes((int) size);
+      if (content.length != size || stdout.read() != '\n') {
+        throw new EOFException("git cat-file output ended inside object " + sha);
+      }
+      return Optional.of(new GitObject(sha, type, size, content));
+    }
+
+    private String readLine() throws IOException {
+      var line = new ByteArrayOutputStream(64);
+      int b;
+      while ((b = stdout.read()) != '\n') {
+        if (b < 0) throw new EOFException("git cat-file exited");
+        line.write(b);
+      }
+      return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private boolean isAlive() {
+      return process.isAlive();
+    }
+
+    private void destroy() {
+      try {
+        stdin.close();
+      }
+      catch (IOException ignored) {
+      }
+      process.destroy();
+    }
+  }
+}
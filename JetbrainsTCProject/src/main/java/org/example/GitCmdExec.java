@@ -2,30 +2,171 @@ package org.example;
 
 import java.io.*;
 import java.io.File;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
 
-public class GitCmdExec {
+public class GitCmdExec implements AutoCloseable {
+  private static final int BUFFER_SIZE = 8192;
+  private static final ExecutorService OUTPUT_READERS = Executors.newCachedThreadPool(runnable -> {
+    var thread = new Thread(runnable, "git-output-reader");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Map<File, GitCatFilePool> catFilePools = new ConcurrentHashMap<>();
+  private MetricsRegistry metrics = MetricsRegistry.NOOP;
+
+  /**
+   * Reports the count of commands by subcommand and exit code, and their durations, to the registry.
+   */
+  public GitCmdExec metrics(MetricsRegistry metrics) {
+    this.metrics = metrics;
+    return this;
+  }
 
   public GitExecResult runCommand(File gitDirectory, List<String> command) {
+    return runCommand(gitDirectory, command, null);
+  }
+
+  /**
+   * Runs the command and collects its output. Fails with a {@link GitCommandException} and kills the
+   * process if it has not finished within {@code timeout}; a null timeout waits indefinitely.
+   */
+  public GitExecResult runCommand(File gitDirectory, List<String> command, Duration timeout) {
+    return execute(gitDirectory, command, timeout, this::readInputStreamToTheEnd);
+  }
+
+  /**
+   * Runs the command and passes its stdout to {@code consumer} while it is produced, so the output is
+   * never held in memory as a whole. The consumer is called on a reader thread. The returned result has
+   * an empty output. Fails with a {@link GitCommandException} and kills the process if it has not
+   * finished within {@code timeout}; a null timeout waits indefinitely.
+   */
+  public GitExecResult streamCommand(File gitDirectory, List<String> command, GitOutputConsumer consumer,
+                                     Duration timeout) {
+    return execute(gitDirectory, command, timeout, is -> {
+      var buffer = new byte[BUFFER_SIZE];
+      int read;
+      while ((read = is.read(buffer)) >= 0) {
+        consumer.accept(buffer, 0, read);
+      }
+      consumer.finish();
+      return "";
+    });
+  }
+
+  /**
+   * Returns the pool of warm {@code git cat-file} processes for the repository, started on first use
+   * and shared by all callers until {@link #close()}.
+   */
+  public GitCatFilePool catFile(File gitDirectory) {
+    return catFilePools.computeIfAbsent(gitDirectory.getAbsoluteFile(), GitCatFilePool::new);
+  }
+
+  /**
+   * Stops the {@code git cat-file} processes started by {@link #catFile(File)}.
+   */
+  @Override
+  public void close() {
+    catFilePools.values().forEach(GitCatFilePool::close);
+    catFilePools.clear();
+  }
+
+  /**
+   * Both streams are drained on reader threads while the process runs. Waiting for the process before
+   * reading them would block git as soon as its output fills the pipe buffer.
+   */
+  private GitExecResult execute(File gitDirectory, List<String> command, Duration timeout,
+                                OutputReader stdoutReader) {
+    Process p = null;
+    Future<String> output = null;
+    Future<String> error = null;
+    long start = System.nanoTime();
+    var event = new GitCommandEvent();
+    event.begin();
+    int exitCode = -1;
     try {
       ProcessBuilder pb = new ProcessBuilder(command);
       pb.directory(gitDirectory);
-      Process p = pb.start();
+      p = pb.start();
 
-      int exitCode = p.waitFor();
-      String output = readInputStreamToTheEnd(p.getInputStream());
-      String error = readInputStreamToTheEnd(p.getErrorStream());
+      var process = p;
+      output = OUTPUT_READERS.submit(() -> {
+        try {
+          return stdoutReader.read(process.getInputStream());
+        }
+        catch (IOException | RuntimeException e) {
+          // Nobody drains stdout anymore, git would block on a full pipe and never exit.
+          process.destroyForcibly();
+          throw e;
+        }
+      });
+      error = OUTPUT_READERS.submit(() -> readInputStreamToTheEnd(process.getErrorStream()));
+
+      String outputText;
+      String errorText;
+      if (timeout == null) {
+        exitCode = p.waitFor();
+        outputText = output.get();
+        errorText = error.get();
+      }
+      else {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        if (!p.waitFor(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+          throw new TimeoutException();
+        }
+        exitCode = p.exitValue();
+        outputText = output.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        errorText = error.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      }
 
       if (exitCode != 0) {
         throw new GitCommandException(
-                "Git command failed: " + String.join(" ", command) + "\nError: " + error
+                "Git command failed: " + String.join(" ", command) + "\nError: " + errorText
         );
       }
 
-      return new GitExecResult(output, error, exitCode);
+      return new GitExecResult(outputText, errorText, exitCode);
 
     } catch (IOException | InterruptedException e) {
+      destroy(p, output, error);
       throw new GitCommandException("Exception running git command: " + String.join(" ", command), e);
+    } catch (TimeoutException e) {
+      destroy(p, output, error);
+      throw new GitCommandException("Git command timed out after " + timeout + ": " + String.join(" ", command), e);
+    } catch (ExecutionException e) {
+      destroy(p, output, error);
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new GitCommandException("Exception reading output of git command: " + String.join(" ", command), e.getCause());
+    }
+    finally {
+      var subcommand = command.size() > 1 ? command.get(1) : "";
+      metrics.counter("git_commands_total", "command", subcommand, "exit_code", exitCode < 0 ? "error" : String.valueOf(exitCode))
+              .increment();
+      metrics.timer("git_command_duration_seconds", "command", subcommand).recordSince(start);
+      event.end();
+      if (event.shouldCommit()) {
+        event.command = String.join(" ", command);
+        event.directory = String.valueOf(gitDirectory);
+        event.exitCode = exitCode;
+        event.commit();
+      }
+    }
+  }
+
+  private static void destroy(Process p, Future<?> output, Future<?> error) {
+    if (p != null) {
+      p.destroyForcibly();
+    }
+    if (output != null) {
+      output.cancel(true);
+    }
+    if (error != null) {
+      error.cancel(true);
     }
   }
 
@@ -41,4 +182,9 @@ public class GitCmdExec {
     }
     return output.toString();
   }
+
+  @FunctionalInterface
+  private interface OutputReader {
+    String read(InputStream is) throws IOException;
+  }
 }
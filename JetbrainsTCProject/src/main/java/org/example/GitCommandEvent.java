@@ -0,0 +1,23 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.example.GitCommand")
+@Label("Git Command")
+@Category({"GitHub Client", "Git"})
+@Description("A git process run by GitCmdExec, from start until its output was read")
+class GitCommandEvent extends Event {
+  @Label("Command")
+  String command;
+
+  @Label("Directory")
+  String directory;
+
+  @Label("Exit Code")
+  @Description("Exit code of the process, -1 when it failed to run or timed out")
+  int exitCode;
+}
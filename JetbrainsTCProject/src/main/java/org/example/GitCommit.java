@@ -0,0 +1,52 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The parts of a commit object needed to walk history: its tree, its parents and the committer time in
+ * seconds since the epoch.
+ */
+public record GitCommit(String sha, String tree, List<String> parents, long commitTime) {
+
+  public static GitCommit parse(GitObject object) {
+    if (!"commit".equals(object.type())) {
+      throw new GitCommandException("Not a commit: " + object.sha() + " is a " + object.type());
+    }
+    String tree = null;
+    var parents = new ArrayList<String>(1);
+    long commitTime = 0;
+    // The header ends at the first empty line, the message follows.
+    for (var line: object.text().split("\n")) {
+      if (line.isEmpty()) break;
+      if (line.startsWith("tree ")) {
+        tree = line.substring("tree ".length());
+      }
+      else if (line.startsWith("parent ")) {
+        parents.add(line.substring("parent ".length()));
+      }
+      else if (line.startsWith("committer ")) {
+        commitTime = parseTime(line);
+      }
+    }
+    if (tree == null) {
+      throw new GitCommandException("Commit without tree: " + object.sha());
+    }
+    return new GitCommit(object.sha(), tree, List.copyOf(parents), commitTime);
+  }
+
+  /**
+   * The committer line ends with {@code <email> <seconds> <timezone>}.
+   */
+  private static long parseTime(String line) {
+    int end = line.lastIndexOf(' ');
+    int start = end <= 0 ? -1 : line.lastIndexOf(' ', end - 1);
+    if (start < 0) return 0;
+    try {
+      return Long.parseLong(line.substring(start + 1, end));
+    }
+    catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+}
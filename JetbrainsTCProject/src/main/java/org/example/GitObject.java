@@ -0,0 +1,17 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An object read from a repository by {@link GitCatFilePool}. {@code content} is null when only the
+ * object info was requested.
+ */
+public record GitObject(String sha, String type, long size, byte[] content) {
+
+  /**
+   * The content decoded as UTF-8, useful for commits and blobs of text files.
+   */
+  public String text() {
+    return content == null ? null : new String(content, StandardCharsets.UTF_8);
+  }
+}
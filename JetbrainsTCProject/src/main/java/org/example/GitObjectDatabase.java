@@ -0,0 +1,331 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads objects straight from a repository's object database, without starting git.
+ * <p>
+ * Packs are memory-mapped and looked up through the fanout table and binary search of their index.
+ * Delta chains are resolved iteratively, and the intermediate bases are kept in a {@link DeltaBaseCache}
+ * so neighbouring versions of a file do not inflate the same chain again. Objects that are in no pack
+ * are read from the loose object files. Packs added after opening, for example by a fetch, are picked
+ * up the first time an object is not found.
+ * <p>
+ * Only SHAs and ref names are accepted as object names, not the other revision expressions that
+ * {@link GitCatFilePool} understands.
+ */
+public class GitObjectDatabase implements GitObjectReader {
+  public static final long DEFAULT_DELTA_BASE_CACHE_SIZE = 32L * 1024 * 1024;
+  private static final int MAX_DELTA_DEPTH = 10_000;
+  private static final String[] TYPE_NAMES = {null, "commit", "tree", "blob", "tag"};
+  private static final HexFormat HEX = HexFormat.of();
+
+  private final Path objectsDirectory;
+  private final GitRefs refs;
+  private final DeltaBaseCache deltaBaseCache;
+  private volatile List<PackFile> packs = List.of();
+
+  public GitObjectDatabase(File repository) {
+    this(repository, DEFAULT_DELTA_BASE_CACHE_SIZE);
+  }
+
+  /**
+   * @param repository the working tree or the git directory of the repository
+   */
+  public GitObjectDatabase(File repository, long deltaBaseCacheSize) {
+    var gitDirectory = gitDirectory(repository.toPath());
+    var commonDirectory = commonDirectory(gitDirectory);
+    this.objectsDirectory = commonDirectory.resolve("objects");
+    if (!Files.isDirectory(objectsDirectory)) {
+      throw new GitCommandException("Not a git repository: " + repository);
+    }
+    this.refs = new GitRefs(gitDirectory, commonDirectory);
+    this.deltaBaseCache = new DeltaBaseCache(deltaBaseCacheSize);
+    rescanPacks();
+  }
+
+  @Override
+  public Optional<GitObject> read(String object) {
+    var sha = isSha(object) ? object : refs.resolve(object).orElse(null);
+    if (sha == null) return Optional.empty();
+    try {
+      return readObject(HEX.parseHex(sha));
+    }
+    catch (IOException e) {
+      throw new GitCommandException("Cannot read object " + object + " from: " + objectsDirectory, e);
+    }
+  }
+
+  /**
+   * Resolves a ref name such as {@code origin/main} or {@code HEAD} to the SHA it points to.
+   */
+  public Optional<String> resolve(String ref) {
+    return isSha(ref) ? Optional.of(ref) : refs.resolve(ref);
+  }
+
+  static boolean isSha(String value) {
+    if (value.length() != 40) return false;
+    for (int i = 0; i < value.length(); i++) {
+      if (Character.digit(value.charAt(i), 16) < 0) return false;
+    }
+    return true;
+  }
+
+  private Optional<GitObject> readObject(byte[] sha) throws IOException {
+    var found = readRaw(sha);
+    if (found == null) {
+      rescanPacks();
+      found = readRaw(sha);
+    }
+    if (found == null) return Optional.empty();
+    return Optional.of(new GitObject(HEX.formatHex(sha), TYPE_NAMES[found.type()], found.data().length, found.data()));
+  }
+
+  private DeltaBaseCache.Value readRaw(byte[] sha) throws IOException {
+    for (var pack: packs) {
+      long offset = pack.findOffset(sha);
+      if (offset >= 0) return readPacked(pack, offset);
+    }
+    return readLoose(sha);
+  }
+
+  /**
+   * Follows the delta chain down to a base object, or to an entry that is already cached, and then
+   * applies the deltas on the way back up.
+   */
+  private DeltaBaseCache.Value readPacked(PackFile pack, long offset) throws IOException {
+    var deltas = new ArrayDeque<PendingDelta>();
+    var currentPack = pack;
+    long currentOffset = offset;
+    DeltaBaseCache.Value base;
+    while (true) {
+      var cached = deltaBaseCache.get(currentPack, currentOffset);
+      if (cached != null) {
+        base = cached;
+        break;
+      }
+      var entry = currentPack.entry(currentOffset);
+      if (entry.type() != PackFile.OBJ_OFS_DELTA && entry.type() != PackFile.OBJ_REF_DELTA) {
+        base = new DeltaBaseCache.Value(entry.type(), currentPack.inflate(entry.dataOffset(), entry.size()));
+        if (!deltas.isEmpty()) {
+          deltaBaseCache.put(currentPack, currentOffset, base.type(), base.data());
+        }
+        break;
+      }
+      if (deltas.size() >= MAX_DELTA_DEPTH) {
+        throw new IOException("Delta chain too deep at " + offset + " in " + pack.path());
+      }
+      deltas.push(new PendingDelta(currentPack, currentOffset, entry));
+
+      if (entry.type() == PackFile.OBJ_OFS_DELTA) {
+        currentOffset = entry.baseOffset();
+        continue;
+      }
+      var basePack = findPack(entry.baseSha());
+      if (basePack == null) {
+        base = readLoose(entry.baseSha());
+        if (base == null) {
+          throw new IOException("Missing delta base " + HEX.formatHex(entry.baseSha()) + " in " + pack.path());
+        }
+        break;
+      }
+      currentPack = basePack;
+      currentOffset = basePack.findOffset(entry.baseSha());
+    }
+
+    var result = base;
+    while (!deltas.isEmpty()) {
+      var delta = deltas.pop();
+      var instructions = delta.pack().inflate(delta.entry().dataOffset(), delta.entry().size());
+      result = new DeltaBaseCache.Value(result.type(), applyDelta(result.data(), instructions, delta.pack()));
+      if (!deltas.isEmpty()) {
+        deltaBaseCache.put(delta.pack(), delta.offset(), result.type(), result.data());
+      }
+    }
+    return result;
+  }
+
+  private PackFile findPack(byte[] sha) {
+    for (var pack: packs) {
+      if (pack.findOffset(sha) >= 0) return pack;
+    }
+    return null;
+  }
+
+  /**
+   * A delta is the source and target size followed by instructions that either copy a range of the base
+   * or insert the bytes that follow them.
+   */
+  private static byte[] applyDelta(byte[] base, byte[] delta, PackFile pack) throws IOException {
+    int position = 0;
+    long baseSize = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = delta[position++] & 0xff;
+      baseSize |= (long) (b & 0x7f) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    long resultSize = 0;
+    shift = 0;
+    do {
+      b = delta[position++] & 0xff;
+      resultSize |= (long) (b & 0x7f) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    if (baseSize != base.length || resultSize > Integer.MAX_VALUE - 8) {
+      throw new IOException("Corrupt delta in " + pack.path());
+    }
+
+    var result = new byte[(int) resultSize];
+    int written = 0;
+    while (position < delta.length) {
+      int command = delta[position++] & 0xff;
+      if ((command & 0x80) != 0) {
+        int copyOffset = 0;
+        int copySize = 0;
+        for (int i = 0; i < 4; i++) {
+          if ((command & (1 << i)) != 0) copyOffset |= (delta[position++] & 0xff) << (8 * i);
+        }
+        for (int i = 0; i < 3; i++) {
+          if ((command & (0x10 << i)) != 0) copySize |= (delta[position++] & 0xff) << (8 * i);
+        }
+        if (copySize == 0) copySize = 0x10000;
+        if (copyOffset < 0 || copyOffset + copySize > base.length || written + copySize > result.length) {
+          throw new IOException("Corrupt delta in " + pack.path());
+        }
+        System.arraycopy(base, copyOffset, result, written, copySize);
+        written += copySize;
+      }
+      else if (command != 0) {
+        if (position + command > delta.length || written + command > result.length) {
+          throw new IOException("Corrupt delta in " + pack.path());
+        }
+        System.arraycopy(delta, position, result, written, command);
+        position += command;
+        written += command;
+      }
+      else {
+        throw new IOException("Corrupt delta in " + pack.path());
+      }
+    }
+    if (written != result.length) {
+      throw new IOException("Corrupt delta in " + pack.path());
+    }
+    return result;
+  }
+
+  /**
+   * A loose object is a zlib stream of {@code <type> <size>\0<content>} in
+   * {@code objects/<first two hex digits>/<remaining 38>}.
+   */
+  private DeltaBaseCache.Value readLoose(byte[] sha) throws IOException {
+    var hex = HEX.formatHex(sha);
+    var file = objectsDirectory.resolve(hex.substring(0, 2)).resolve(hex.substring(2));
+    if (!Files.isRegularFile(file)) return null;
+
+    var inflater = new Inflater();
+    try {
+      inflater.setInput(Files.readAllBytes(file));
+      var output = new ByteArrayOutputStream();
+      var buffer = new byte[8192];
+      while (!inflater.finished()) {
+        int count = inflater.inflate(buffer);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("Truncated loose object: " + file);
+        }
+        output.write(buffer, 0, count);
+      }
+      var bytes = output.toByteArray();
+
+      int space = indexOf(bytes, (byte) ' ', 0);
+      int nul = indexOf(bytes, (byte) 0, 0);
+      if (space < 0 || nul < space) {
+        throw new IOException("Corrupt loose object: " + file);
+      }
+      var type = Arrays.asList(TYPE_NAMES).indexOf(new String(bytes, 0, space, StandardCharsets.US_ASCII));
+      int size = Integer.parseInt(new String(bytes, space + 1, nul - space - 1, StandardCharsets.US_ASCII));
+      if (type < 0 || size != bytes.length - nul - 1) {
+        throw new IOException("Corrupt loose object: " + file);
+      }
+      return new DeltaBaseCache.Value(type, Arrays.copyOfRange(bytes, nul + 1, bytes.length));
+    }
+    catch (DataFormatException | NumberFormatException e) {
+      throw new IOException("Corrupt loose object: " + file, e);
+    }
+    finally {
+      inflater.end();
+    }
+  }
+
+  private static int indexOf(byte[] bytes, byte value, int from) {
+    for (int i = from; i < bytes.length; i++) {
+      if (bytes[i] == value) return i;
+    }
+    return -1;
+  }
+
+  private synchronized void rescanPacks() {
+    var packDirectory = objectsDirectory.resolve("pack");
+    if (!Files.isDirectory(packDirectory)) return;
+
+    var known = new HashMap<Path, PackFile>();
+    packs.forEach(pack -> known.put(pack.path(), pack));
+    var scanned = new ArrayList<PackFile>();
+    try (var files = Files.list(packDirectory)) {
+      for (var indexFile: files.filter(file -> file.toString().endsWith(".idx")).sorted().toList()) {
+        var packPath = indexFile.resolveSibling(indexFile.getFileName().toString().replaceAll("\\.idx$", ".pack"));
+        var pack = known.get(packPath);
+        if (pack == null && Files.isRegularFile(packPath)) {
+          pack = new PackFile(indexFile);
+        }
+        if (pack != null) {
+          scanned.add(pack);
+        }
+      }
+    }
+    catch (IOException e) {
+      throw new GitCommandException("Cannot open packs in: " + packDirectory, e);
+    }
+    packs = List.copyOf(scanned);
+  }
+
+  static Path gitDirectory(Path repository) {
+    var dotGit = repository.resolve(".git");
+    if (Files.isDirectory(dotGit)) return dotGit;
+    if (Files.isRegularFile(dotGit)) {
+      // Worktrees and submodules have a .git file pointing at the real git directory.
+      try {
+        var content = Files.readString(dotGit, StandardCharsets.UTF_8).trim();
+        if (content.startsWith("gitdir: ")) {
+          return repository.resolve(content.substring("gitdir: ".length())).normalize();
+        }
+      }
+      catch (IOException e) {
+        throw new GitCommandException("Cannot read: " + dotGit, e);
+      }
+    }
+    return repository;
+  }
+
+  static Path commonDirectory(Path gitDirectory) {
+    var commonDir = gitDirectory.resolve("commondir");
+    if (!Files.isRegularFile(commonDir)) return gitDirectory;
+    try {
+      return gitDirectory.resolve(Files.readString(commonDir, StandardCharsets.UTF_8).trim()).normalize();
+    }
+    catch (IOException e) {
+      throw new GitCommandException("Cannot read: " + commonDir, e);
+    }
+  }
+
+  private record PendingDelta(PackFile pack, long offset, PackFile.Entry entry) {}
+}
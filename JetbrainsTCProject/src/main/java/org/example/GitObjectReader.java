@@ -0,0 +1,16 @@
+package org.example;
+
+import java.util.Optional;
+
+/**
+ * Reads objects from one repository, either through git itself ({@link GitCatFilePool}) or in process
+ * ({@link GitObjectDatabase}).
+ */
+public interface GitObjectReader {
+
+  /**
+   * Reads the object named by a SHA or a ref name such as {@code origin/main}. Returns an empty optional
+   * when it does not exist.
+   */
+  Optional<GitObject> read(String object);
+}
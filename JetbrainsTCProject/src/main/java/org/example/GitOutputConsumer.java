@@ -0,0 +1,77 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Receives the stdout of a git command in chunks, as it is produced. See
+ * {@link GitCmdExec#streamCommand(java.io.File, java.util.List, GitOutputConsumer, java.time.Duration)}.
+ */
+@FunctionalInterface
+public interface GitOutputConsumer {
+
+  /**
+   * Called with each chunk read from stdout. The buffer is reused for the next chunk.
+   */
+  void accept(byte[] buffer, int offset, int length);
+
+  /**
+   * Called once after the last chunk.
+   */
+  default void finish() {
+  }
+
+  /**
+   * Splits the output into lines, without the terminating {@code \n}.
+   */
+  static GitOutputConsumer lines(Consumer<String> consumer) {
+    return new RecordSplitter((byte) '\n', consumer);
+  }
+
+  /**
+   * Splits the output of a command run with {@code -z} into its NUL-terminated records. Paths are
+   * passed as they are, without the quoting git applies to unusual characters in line output.
+   */
+  static GitOutputConsumer nulTerminated(Consumer<String> consumer) {
+    return new RecordSplitter((byte) 0, consumer);
+  }
+
+  /**
+   * Only keeps the current record, so memory use is bounded by the longest record rather than the
+   * whole output.
+   */
+  final class RecordSplitter implements GitOutputConsumer {
+    private final byte terminator;
+    private final Consumer<String> consumer;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+
+    private RecordSplitter(byte terminator, Consumer<String> consumer) {
+      this.terminator = terminator;
+      this.consumer = consumer;
+    }
+
+    @Override
+    public void accept(byte[] buffer, int offset, int length) {
+      int start = offset;
+      int end = offset + length;
+      for (int i = offset; i < end; i++) {
+        if (buffer[i] == terminator) {
+          record.write(buffer, start, i - start);
+          consumer.accept(record.toString(StandardCharsets.UTF_8));
+          record.reset();
+          start = i + 1;
+        }
+      }
+      record.write(buffer, start, end - start);
+    }
+
+    @Override
+    public void finish() {
+      if (record.size() > 0) {
+        consumer.accept(record.toString(StandardCharsets.UTF_8));
+        record.reset();
+      }
+    }
+  }
+}
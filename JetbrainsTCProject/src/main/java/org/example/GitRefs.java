@@ -0,0 +1,93 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Resolves ref names to SHAs from the loose ref files and {@code packed-refs} of a repository, using
+ * the same search order as {@code git rev-parse}: {@code <name>}, {@code refs/<name>},
+ * {@code refs/tags/<name>}, {@code refs/heads/<name>}, {@code refs/remotes/<name>} and
+ * {@code refs/remotes/<name>/HEAD}.
+ */
+final class GitRefs {
+  private static final int MAX_SYMREF_DEPTH = 5;
+
+  private final Path gitDirectory;
+  private final Path commonDirectory;
+  private Map<String, String> packedRefs = Map.of();
+  private FileTime packedRefsModified;
+
+  GitRefs(Path gitDirectory, Path commonDirectory) {
+    this.gitDirectory = gitDirectory;
+    this.commonDirectory = commonDirectory;
+  }
+
+  Optional<String> resolve(String name) {
+    for (var candidate: List.of(name, "refs/" + name, "refs/tags/" + name, "refs/heads/" + name,
+            "refs/remotes/" + name, "refs/remotes/" + name + "/HEAD")) {
+      var sha = resolveRef(candidate, 0);
+      if (sha != null) return Optional.of(sha);
+    }
+    return Optional.empty();
+  }
+
+  private String resolveRef(String ref, int depth) {
+    if (depth > MAX_SYMREF_DEPTH || ref.contains("..")) return null;
+    var value = readLooseRef(ref);
+    if (value == null) {
+      return packedRefs().get(ref);
+    }
+    if (value.startsWith("ref: ")) {
+      return resolveRef(value.substring("ref: ".length()).trim(), depth + 1);
+    }
+    return GitObjectDatabase.isSha(value) ? value : null;
+  }
+
+  private String readLooseRef(String ref) {
+    // HEAD and the other pseudo refs belong to the worktree, everything under refs/ is shared.
+    var file = (ref.startsWith("refs/") ? commonDirectory : gitDirectory).resolve(ref);
+    if (!Files.isRegularFile(file)) return null;
+    try {
+      return Files.readString(file, StandardCharsets.UTF_8).trim();
+    }
+    catch (IOException e) {
+      throw new GitCommandException("Cannot read ref " + ref + " in: " + gitDirectory, e);
+    }
+  }
+
+  private synchronized Map<String, String> packedRefs() {
+    var file = commonDirectory.resolve("packed-refs");
+    try {
+      if (!Files.isRegularFile(file)) {
+        packedRefs = Map.of();
+        packedRefsModified = null;
+        return packedRefs;
+      }
+      var modified = Files.getLastModifiedTime(file);
+      if (!modified.equals(packedRefsModified)) {
+        var refs = new HashMap<String, String>();
+        for (var line: Files.readAllLines(file, StandardCharsets.UTF_8)) {
+          // Comments start with '#', peeled tag targets with '^'.
+          if (line.isEmpty() || line.startsWith("#") || line.startsWith("^")) continue;
+          int space = line.indexOf(' ');
+          if (space == 40) {
+            refs.put(line.substring(space + 1), line.substring(0, space));
+          }
+        }
+        packedRefs = refs;
+        packedRefsModified = modified;
+      }
+      return packedRefs;
+    }
+    catch (IOException e) {
+      throw new GitCommandException("Cannot read packed-refs in: " + commonDirectory, e);
+    }
+  }
+}
@@ -1,48 +1,760 @@
 package org.example;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.net.ProxySelector;
+import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 public class GithubClient {
-  private final HttpClient httpClient = HttpClient.newHttpClient();
-  private final ObjectMapper mapper = new ObjectMapper();
+  public static final String BASE_URL = "https://api.github.com";
+  public static final String GRAPHQL_URL = BASE_URL + "/graphql";
+  public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+  private static final int NOT_MODIFIED = 304;
+  private static final int DECODER_BUFFER_SIZE = 8192;
+  private static final System.Logger LOG = System.getLogger(GithubClient.class.getName());
+
+  private final HttpClient httpClient;
+  private final ObjectMapper mapper;
+  private final Map<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+  private final Executor responseExecutor;
+  private final Duration requestTimeout;
+  private final boolean compression;
+  private final boolean coalesceRequests;
+  private final Map<FlightKey, Flight> flights = new ConcurrentHashMap<>();
   private final String accessToken;
+  private final GHResponseCache responseCache;
+  private final GHRateLimiter rateLimiter;
+  private final String baseUrl;
+  private final URI graphQlUri;
+  private final MetricsRegistry metrics;
 
   public GithubClient(String accessToken) {
-    this.accessToken = accessToken;
+    this(builder(accessToken));
+  }
+
+  private GithubClient(Builder builder) {
+    var httpClientBuilder = HttpClient.newBuilder().version(builder.httpVersion);
+    if (builder.connectTimeout != null) {
+      httpClientBuilder.connectTimeout(builder.connectTimeout);
+    }
+    if (builder.executor != null) {
+      httpClientBuilder.executor(builder.executor);
+    }
+    if (builder.proxy != null) {
+      httpClientBuilder.proxy(builder.proxy);
+    }
+    this.httpClient = httpClientBuilder.build();
+    this.responseExecutor = builder.executor != null ? builder.executor : ForkJoinPool.commonPool();
+    this.requestTimeout = builder.requestTimeout;
+    this.compression = builder.compression;
+    this.coalesceRequests = builder.coalesceRequests;
+    this.mapper = new ObjectMapper();
+    builder.ignoredFields.forEach((type, fields) -> mapper.configOverride(type)
+            .setIgnorals(JsonIgnoreProperties.Value.forIgnoredProperties(fields)));
+    this.accessToken = builder.accessToken;
+    this.responseCache = builder.responseCache;
+    this.rateLimiter = builder.rateLimiter;
+    this.baseUrl = builder.baseUrl;
+    this.graphQlUri = URI.create(builder.graphQlUrl != null ? builder.graphQlUrl : builder.baseUrl + "/graphql");
+    this.metrics = builder.metrics;
+  }
+
+  public static Builder builder(String accessToken) {
+    return new Builder(accessToken);
+  }
+
+  /**
+   * The registry the client reports its requests to, {@link MetricsRegistry#NOOP} unless one was set
+   * with {@link Builder#metrics(MetricsRegistry)}.
+   */
+  public MetricsRegistry metrics() {
+    return metrics;
   }
 
   public <T> GHResponse<T> send(GHRequest request, TypeReference<T> typeReference) {
-    System.out.println("Sending request: " + request);
+    if (!coalesceRequests) return fetch(request, typeReference);
+
+    var key = new FlightKey(resolve(request), typeReference.getType());
+    while (true) {
+      var flight = new Flight(key);
+      var existing = flights.putIfAbsent(key, flight);
+      if (existing == null) {
+        flight.join();
+        try {
+          var page = fetch(request, typeReference).response;
+          flight.complete(page);
+          return new GHResponse<T>(page.copy());
+        }
+        catch (GHApiException e) {
+          if (!(e.getCause() instanceof InterruptedException)) {
+            flight.fail(e);
+            throw e;
+          }
+          // Only this caller was interrupted, the request is sent again for the callers still waiting.
+          Thread.currentThread().interrupt();
+          if (flight.leave()) {
+            launch(flight, request, typeReference);
+          }
+          throw e;
+        }
+        catch (RuntimeException | Error e) {
+          flight.fail(e);
+          throw e;
+        }
+      }
+      if (existing.join()) {
+        return await(request, existing);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> GHResponse<T> await(GHRequest request, Flight flight) {
     try {
-      var httpRequest = HttpRequest.newBuilder()
-              .uri(request.getUri())
-              .header("Authorization", "Bearer " + accessToken)
-              .GET()
+      return new GHResponse<T>(((GHPage<T>) flight.shared.get()).copy());
+    }
+    catch (InterruptedException e) {
+      flight.leave();
+      Thread.currentThread().interrupt();
+      throw new GHApiException("Interrupted while waiting for GitHub API request: " + request, e);
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new GHApiException("Error sending GitHub API request: " + request, e.getCause());
+    }
+  }
+
+  private <T> GHResponse<T> fetch(GHRequest request, TypeReference<T> typeReference) {
+    LOG.log(System.Logger.Level.DEBUG, "Sending request: {0}", request);
+    var cached = cachedResponse(request);
+    var httpRequest = buildHttpRequest(request, cached);
+    Exchange exchange = null;
+    try {
+      for (int attempt = 0; ; attempt++) {
+        if (rateLimiter != null) {
+          pause(rateLimiter.reserve());
+        }
+        exchange = new Exchange(httpRequest.uri(), attempt);
+        var response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+        if (shouldRetry(response, attempt, exchange)) {
+          continue;
+        }
+        return toResponse(request, response, typeReference, cached, exchange);
+      }
+    }
+    catch (InterruptedException | IOException e) {
+      if (exchange != null) {
+        exchange.end(-1, 0);
+      }
+      throw new GHApiException("Error sending GitHub API request: " + request, e);
+    }
+  }
+
+  /**
+   * Sends the request without blocking the calling thread. Concurrent requests share one HTTP/2
+   * connection, and the response body is streamed into the deserializer on the common pool, or on the
+   * executor set with {@link Builder#executor(Executor)}, rather than on the HttpClient's selector thread.
+   * Failures complete the future with a {@link GHApiException}. Cancelling the future aborts the request.
+   */
+  public <T> CompletableFuture<GHResponse<T>> sendAsync(GHRequest request, TypeReference<T> typeReference) {
+    if (!coalesceRequests) return fetchAsync(request, typeReference);
+
+    var key = new FlightKey(resolve(request), typeReference.getType());
+    while (true) {
+      var flight = new Flight(key);
+      var existing = flights.putIfAbsent(key, flight);
+      if (existing == null) {
+        flight.join();
+        var caller = this.<T>waitFor(flight);
+        launch(flight, request, typeReference);
+        return caller;
+      }
+      if (existing.join()) {
+        return waitFor(existing);
+      }
+    }
+  }
+
+  /**
+   * Sends the flight's request asynchronously and lands the flight with its outcome. Cancelling the
+   * flight cancels the request.
+   */
+  private <T> void launch(Flight flight, GHRequest request, TypeReference<T> typeReference) {
+    CompletableFuture<GHResponse<T>> fetched;
+    try {
+      fetched = fetchAsync(request, typeReference);
+    }
+    catch (RuntimeException | Error e) {
+      flight.fail(e);
+      return;
+    }
+    flight.shared.whenComplete((page, error) -> {
+      if (flight.shared.isCancelled()) {
+        fetched.cancel(true);
+      }
+    });
+    fetched.whenComplete((response, error) -> {
+      if (error == null) {
+        flight.complete(response.response);
+      }
+      else {
+        flight.fail(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+      }
+    });
+  }
+
+  /**
+   * Returns a future of the flight's response with a page of its own. Cancelling it only leaves the
+   * flight, whose request is cancelled once every waiter has left.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> CompletableFuture<GHResponse<T>> waitFor(Flight flight) {
+    var caller = flight.shared.thenApply(page -> new GHResponse<T>(((GHPage<T>) page).copy()));
+    caller.whenComplete((response, error) -> {
+      if (caller.isCancelled()) {
+        flight.leave();
+      }
+    });
+    return caller;
+  }
+
+  private <T> CompletableFuture<GHResponse<T>> fetchAsync(GHRequest request, TypeReference<T> typeReference) {
+    LOG.log(System.Logger.Level.DEBUG, "Sending request: {0}", request);
+    var cached = cachedResponse(request);
+    return sendAsync(request, typeReference, buildHttpRequest(request, cached), cached, 0);
+  }
+
+  private <T> CompletableFuture<GHResponse<T>> sendAsync(GHRequest request, TypeReference<T> typeReference,
+                                                         HttpRequest httpRequest, GHResponseCache.CachedResponse cached,
+                                                         int attempt) {
+    var delay = rateLimiter == null ? Duration.ZERO : rateLimiter.reserve();
+    var exchange = new AtomicReference<Exchange>();
+    CompletableFuture<HttpResponse<InputStream>> sent;
+    if (delay.isNegative() || delay.isZero()) {
+      exchange.set(new Exchange(httpRequest.uri(), attempt));
+      sent = httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+    }
+    else {
+      var delayed = CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS, responseExecutor);
+      sent = CompletableFuture.runAsync(() -> exchange.set(new Exchange(httpRequest.uri(), attempt)), delayed)
+              .thenCompose(ignored -> httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofInputStream()));
+    }
+    var result = sent.handle((response, error) -> {
+      if (error != null) {
+        if (exchange.get() != null) {
+          exchange.get().end(-1, 0);
+        }
+        var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return CompletableFuture.<GHResponse<T>>failedFuture(
+                new GHApiException("Error sending GitHub API request: " + request, cause));
+      }
+      if (shouldRetry(response, attempt, exchange.get())) {
+        return sendAsync(request, typeReference, httpRequest, cached, attempt + 1);
+      }
+      return CompletableFuture.supplyAsync(() -> toResponse(request, response, typeReference, cached, exchange.get()),
+              responseExecutor);
+    }).thenCompose(Function.identity());
+    result.whenComplete((response, error) -> {
+      if (result.isCancelled()) {
+        sent.cancel(true);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Posts a GraphQL query and returns the {@code data} object of the result. A result that carries
+   * {@code errors} fails with a {@link GHApiException}, even when it also carries partial data.
+   */
+  public JsonNode sendGraphQL(String query, Map<String, Object> variables) {
+    LOG.log(System.Logger.Level.DEBUG, "Sending GraphQL query to: {0}", graphQlUri);
+    Exchange exchange = null;
+    try {
+      var payload = mapper.writeValueAsBytes(Map.of("query", query, "variables", variables));
+      var httpRequest = newRequest(graphQlUri)
+              .header("Content-Type", "application/json")
+              .POST(HttpRequest.BodyPublishers.ofByteArray(payload))
               .build();
+      for (int attempt = 0; ; attempt++) {
+        if (rateLimiter != null) {
+          pause(rateLimiter.reserve());
+        }
+        exchange = new Exchange(graphQlUri, attempt);
+        var response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+        if (shouldRetry(response, attempt, exchange)) {
+          continue;
+        }
+        var body = new CountingInputStream(response.body());
+        try (var content = decode(response, body)) {
+          if (response.statusCode() >= 400) {
+            throw new GHApiException("GitHub GraphQL API returned error " + response.statusCode() +
+                    "\nResponse body: " + new String(content.readAllBytes(), StandardCharsets.UTF_8));
+          }
+          var result = mapper.readTree(content);
+          var errors = result.get("errors");
+          if (errors != null && !errors.isEmpty()) {
+            throw new GHApiException("GitHub GraphQL API returned errors: " + errors);
+          }
+          return result.get("data");
+        }
+        finally {
+          exchange.end(response.statusCode(), body.count());
+        }
+      }
+    }
+    catch (InterruptedException | IOException e) {
+      if (exchange != null) {
+        exchange.end(-1, 0);
+      }
+      throw new GHApiException("Error sending GitHub GraphQL request to: " + graphQlUri, e);
+    }
+  }
+
+  private boolean shouldRetry(HttpResponse<InputStream> response, int attempt, Exchange exchange) {
+    if (rateLimiter == null) return false;
+    rateLimiter.update(response.headers());
+    if (!rateLimiter.shouldRetry(response.statusCode(), response.headers(), attempt)) return false;
+    exchange.end(response.statusCode(), 0);
+    // The rejected body is not needed, closing it releases the connection for the retry.
+    try {
+      if (response.body() != null) {
+        response.body().close();
+      }
+    }
+    catch (IOException ignored) {
+    }
+    return true;
+  }
+
+  private static void pause(Duration delay) throws InterruptedException {
+    if (!delay.isNegative() && !delay.isZero()) {
+      Thread.sleep(delay.toMillis());
+    }
+  }
+
+  /**
+   * Returns the absolute URI of the request. Paths from {@link GHRequestBuilder} are relative to the
+   * base URL, URLs from {@code Link} headers are already absolute.
+   */
+  private URI resolve(GHRequest request) {
+    var uri = request.getUri();
+    return uri.isAbsolute() ? uri : URI.create(baseUrl + uri);
+  }
+
+  private GHResponseCache.CachedResponse cachedResponse(GHRequest request) {
+    return responseCache == null ? null : responseCache.get(resolve(request));
+  }
+
+  private HttpRequest.Builder newRequest(URI uri) {
+    var builder = HttpRequest.newBuilder()
+            .uri(uri)
+            .header("Authorization", "Bearer " + accessToken);
+    if (requestTimeout != null) {
+      builder.timeout(requestTimeout);
+    }
+    if (compression) {
+      builder.header("Accept-Encoding", "gzip, deflate");
+    }
+    return builder;
+  }
+
+  private HttpRequest buildHttpRequest(GHRequest request, GHResponseCache.CachedResponse cached) {
+    var builder = newRequest(resolve(request)).GET();
+    if (cached != null) {
+      if (cached.etag() != null) {
+        builder.header("If-None-Match", cached.etag());
+      }
+      if (cached.lastModified() != null) {
+        builder.header("If-Modified-Since", cached.lastModified());
+      }
+    }
+    return builder.build();
+  }
 
-      var response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-      var body = response.body();
+  private <T> GHResponse<T> toResponse(GHRequest request, HttpResponse<InputStream> response,
+                                       TypeReference<T> typeReference, GHResponseCache.CachedResponse cached,
+                                       Exchange exchange) {
+    var body = response.body() == null ? null : new CountingInputStream(response.body());
+    try (var content = body == null ? null : decode(response, body)) {
+      if (responseCache != null) {
+        var result = response.statusCode() == NOT_MODIFIED && cached != null ? "hit" : "miss";
+        metrics.counter("github_cache_requests_total", "cache", "response", "result", result).increment();
+      }
+      if (response.statusCode() == NOT_MODIFIED && cached != null) {
+        T responseObject = readerFor(typeReference).readValue(cached.body());
+        return new GHResponse<T>(new GHPage<T>(responseObject, cached.linkHeader(), this, typeReference));
+      }
 
       if (response.statusCode() >= 400) {
+        var errorBody = content == null ? "" : new String(content.readAllBytes(), StandardCharsets.UTF_8);
         throw new GHApiException("GitHub API returned error " + response.statusCode() +
-                " for request: " + request + "\nResponse body: " + body);
+                " for request: " + request + "\nResponse body: " + errorBody);
       }
 
-      var linkHeader = response.headers().firstValue("Link");
+      var headers = response.headers();
+      var linkHeader = headers.firstValue("Link").orElse(null);
+      var etag = headers.firstValue("ETag").orElse(null);
+      var lastModified = headers.firstValue("Last-Modified").orElse(null);
 
-      var responseObject = mapper.readValue(body, typeReference);
-      var ghPage = new GHPage<T>(responseObject, linkHeader.orElse(null), this, typeReference);
+      T responseObject = readerFor(typeReference).readValue(content);
+      if (responseCache != null && (etag != null || lastModified != null)) {
+        // Cached from the mapped object rather than the raw body, so ignored fields are not kept.
+        var tree = mapper.<JsonNode>valueToTree(responseObject);
+        responseCache.put(resolve(request), new GHResponseCache.CachedResponse(etag, lastModified, linkHeader, tree));
+      }
+      var ghPage = new GHPage<T>(responseObject, linkHeader, this, typeReference);
 
       return new GHResponse<T>(ghPage);
     }
-    catch (InterruptedException | IOException e) {
-      throw new GHApiException("Error sending GitHub API request: " + request, e);
+    catch (IOException e) {
+      throw new GHApiException("Error reading GitHub API response: " + request, e);
+    }
+    finally {
+      exchange.end(response.statusCode(), body == null ? 0 : body.count());
+    }
+  }
+
+  private record FlightKey(URI uri, Type type) {}
+
+  /**
+   * One request shared by every concurrent caller of the same URI and response type. The first caller
+   * sends it, later ones wait for its page, and all of them get its failure.
+   */
+  private final class Flight {
+    private final FlightKey key;
+    private final CompletableFuture<GHPage<?>> shared = new CompletableFuture<>();
+    private int waiters;
+    private boolean abandoned;
+
+    private Flight(FlightKey key) {
+      this.key = key;
+    }
+
+    /**
+     * Completes the flight after removing it, so that no caller joins a flight that has already landed.
+     */
+    private void complete(GHPage<?> page) {
+      flights.remove(key, this);
+      shared.complete(page);
+    }
+
+    private void fail(Throwable error) {
+      flights.remove(key, this);
+      shared.completeExceptionally(error);
+    }
+
+    /**
+     * Adds a waiter, or returns false when every earlier waiter has left and the request was cancelled.
+     */
+    private synchronized boolean join() {
+      if (abandoned) return false;
+      if (++waiters > 1) {
+        metrics.counter("github_coalesced_requests_total", "endpoint", endpoint(key.uri())).increment();
+      }
+      return true;
+    }
+
+    /**
+     * Removes a waiter and cancels the request when it was the last one. Returns whether others still
+     * wait.
+     */
+    private synchronized boolean leave() {
+      if (--waiters == 0 && !shared.isDone()) {
+        abandoned = true;
+        flights.remove(key, this);
+        shared.cancel(true);
+      }
+      return waiters > 0;
+    }
+  }
+
+  /**
+   * One HTTP exchange, from sending the request until its body has been read. Ending it reports it to
+   * the metrics and as a {@link GHRequestEvent}.
+   */
+  private final class Exchange {
+    private final URI uri;
+    private final int attempt;
+    private final long start = System.nanoTime();
+    private final GHRequestEvent event = new GHRequestEvent();
+    private boolean ended;
+
+    private Exchange(URI uri, int attempt) {
+      this.uri = uri;
+      this.attempt = attempt;
+      event.begin();
+    }
+
+    /**
+     * @param status the HTTP status code, or -1 when no response arrived
+     */
+    private void end(int status, long bytes) {
+      if (ended) return;
+      ended = true;
+      event.end();
+      var endpoint = endpoint(uri);
+      metrics.counter("github_requests_total", "endpoint", endpoint, "status", status < 0 ? "error" : String.valueOf(status))
+              .increment();
+      if (status >= 0) {
+        metrics.timer("github_request_duration_seconds", "endpoint", endpoint).recordSince(start);
+      }
+      if (bytes > 0) {
+        metrics.counter("github_response_bytes_total", "endpoint", endpoint).increment(bytes);
+      }
+      if (event.shouldCommit()) {
+        event.uri = String.valueOf(uri);
+        event.endpoint = endpoint;
+        event.status = status;
+        event.bytes = bytes;
+        event.attempt = attempt;
+        event.commit();
+      }
+    }
+  }
+
+  /**
+   * The endpoint of a request without its owner, repository and ref, such as {@code commits} or
+   * {@code commits/{ref}}, so that metrics do not get a label value per commit.
+   */
+  static String endpoint(URI uri) {
+    var path = uri == null || uri.getPath() == null ? "" : uri.getPath();
+    var segments = path.split("/");
+    if (segments.length >= 5 && segments[1].equals("repos")) {
+      return segments.length > 5 ? segments[4] + "/{ref}" : segments[4];
+    }
+    return path.startsWith("/") ? path.substring(1) : path;
+  }
+
+  /**
+   * Wraps the body in a decoder for its {@code Content-Encoding}. An empty body, such as the one of a
+   * 304, is returned as is. Deflate is meant to be zlib-wrapped, but some servers send raw deflate data,
+   * so the zlib header is checked before choosing the inflater.
+   */
+  private static InputStream decode(HttpResponse<?> response, InputStream body) throws IOException {
+    var headers = response.headers();
+    var encoding = headers == null ? "" : headers.firstValue("Content-Encoding").orElse("").trim();
+    boolean gzip = encoding.equalsIgnoreCase("gzip") || encoding.equalsIgnoreCase("x-gzip");
+    if (!gzip && !encoding.equalsIgnoreCase("deflate")) return body;
+
+    var buffered = new BufferedInputStream(body, DECODER_BUFFER_SIZE);
+    buffered.mark(2);
+    int first = buffered.read();
+    int second = buffered.read();
+    buffered.reset();
+    if (first < 0) return buffered;
+    if (gzip) {
+      return new GZIPInputStream(buffered, DECODER_BUFFER_SIZE);
+    }
+    boolean zlib = (first & 0x0f) == 8 && second >= 0 && ((first << 8) | second) % 31 == 0;
+    return new InflaterInputStream(buffered, new Inflater(!zlib), DECODER_BUFFER_SIZE) {
+      @Override
+      public void close() throws IOException {
+        super.close();
+        inf.end();
+      }
+    };
+  }
+
+  private ObjectReader readerFor(TypeReference<?> typeReference) {
+    return readers.computeIfAbsent(typeReference.getType(), type -> mapper.readerFor(mapper.constructType(type)));
+  }
+
+  private static final class CountingInputStream extends FilterInputStream {
+    private long count;
+
+    private CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        count++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read > 0) {
+        count += read;
+      }
+      return read;
+    }
+
+    long count() {
+      return count;
+    }
+  }
+
+  public static class Builder {
+    private final String accessToken;
+    private GHResponseCache responseCache;
+    private GHRateLimiter rateLimiter;
+    private final Map<Class<?>, String[]> ignoredFields = new HashMap<>();
+    private String baseUrl = BASE_URL;
+    private String graphQlUrl;
+    private MetricsRegistry metrics = MetricsRegistry.NOOP;
+    private HttpClient.Version httpVersion = HttpClient.Version.HTTP_2;
+    private Duration connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private Duration requestTimeout;
+    private Executor executor;
+    private ProxySelector proxy;
+    private boolean compression = true;
+    private boolean coalesceRequests;
+
+    private Builder(String accessToken) {
+      this.accessToken = accessToken;
+    }
+
+    /**
+     * Revalidates repeated requests with If-None-Match/If-Modified-Since and answers them from the
+     * cache when GitHub replies 304 Not Modified, which does not count against the rate limit.
+     */
+    public Builder responseCache(GHResponseCache responseCache) {
+      this.responseCache = responseCache;
+      return this;
+    }
+
+    /**
+     * Paces requests by the rate limit budget GitHub reports and waits out rate limit rejections
+     * instead of failing with a {@link GHApiException}.
+     */
+    public Builder rateLimiter(GHRateLimiter rateLimiter) {
+      this.rateLimiter = rateLimiter;
+      return this;
+    }
+
+    /**
+     * Skips the given JSON properties of the type while reading responses, for example {@code patch} of
+     * {@link File}. The parser steps over their values without creating them, which keeps large diffs and
+     * signatures off the heap. Skipped fields stay null.
+     */
+    public Builder ignoreFields(Class<?> type, String... fields) {
+      ignoredFields.put(type, fields);
+      return this;
+    }
+
+    /**
+     * Sends the requests to another API root, for example a GitHub Enterprise server or a local fake.
+     * Unless {@link #graphQlUrl(String)} is set, GraphQL queries go to {@code <baseUrl>/graphql}.
+     */
+    public Builder baseUrl(String baseUrl) {
+      this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+      return this;
+    }
+
+    public Builder graphQlUrl(String graphQlUrl) {
+      this.graphQlUrl = graphQlUrl;
+      return this;
+    }
+
+    /**
+     * Reports request counts by endpoint and status, request durations, response bytes and response
+     * cache hits to the registry.
+     */
+    public Builder metrics(MetricsRegistry metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
+    /**
+     * The preferred HTTP version, HTTP/2 by default. HTTP/2 lets concurrent requests share one
+     * connection; the client falls back to HTTP/1.1 when the server does not support it.
+     */
+    public Builder httpVersion(HttpClient.Version httpVersion) {
+      this.httpVersion = httpVersion;
+      return this;
+    }
+
+    /**
+     * How long to wait for a connection to be established, {@link #DEFAULT_CONNECT_TIMEOUT} by default.
+     * Null waits as long as the operating system does.
+     */
+    public Builder connectTimeout(Duration connectTimeout) {
+      this.connectTimeout = connectTimeout;
+      return this;
+    }
+
+    /**
+     * How long to wait for the response headers of each request, unlimited by default. A request that
+     * times out fails with a {@link GHApiException}.
+     */
+    public Builder requestTimeout(Duration requestTimeout) {
+      this.requestTimeout = requestTimeout;
+      return this;
+    }
+
+    /**
+     * Runs the HttpClient's tasks and the deserialization of asynchronous responses on the executor, for
+     * example {@code Executors.newVirtualThreadPerTaskExecutor()} on JDK 21. The executor is not shut
+     * down by the client.
+     */
+    public Builder executor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    public Builder proxy(ProxySelector proxy) {
+      this.proxy = proxy;
+      return this;
+    }
+
+    /**
+     * Asks for gzip or deflate compressed responses and decompresses them while they are read, enabled
+     * by default. Response byte metrics count the compressed size.
+     */
+    public Builder compression(boolean compression) {
+      this.compression = compression;
+      return this;
+    }
+
+    /**
+     * Sends concurrent requests for the same URI and response type only once. Callers that ask while a
+     * request is in flight wait for it and get their own page of its response; the page data is shared
+     * and must not be modified. A failure is reported to every caller. Cancelling one caller's future, or
+     * interrupting the caller that sends the request, leaves the others waiting; the request itself is
+     * cancelled when all of them have cancelled.
+     */
+    public Builder coalesceRequests(boolean coalesceRequests) {
+      this.coalesceRequests = coalesceRequests;
+      return this;
+    }
+
+    public GithubClient build() {
+      return new GithubClient(this);
     }
   }
 }
@@ -0,0 +1,140 @@
+package org.example;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Fetches the changes of many commits with one GraphQL query per batch instead of one REST request per
+ * commit. Every commit of a batch is looked up through an aliased {@code object(oid:)} field.
+ * <p>
+ * GraphQL has no list of the files a commit changed, so the query asks for the blob of each requested
+ * path in the commit and in its first parent, and the status is derived from the two: a path present
+ * only in the commit is "added", only in the parent "removed", and in both with different blobs
+ * "modified". Only the requested paths are reported, which is all {@link FileChangesDetector} needs.
+ */
+public class GraphQLCommitFetcher implements CommitFilesSource {
+  public static final int DEFAULT_BATCH_SIZE = 25;
+  public static final int DEFAULT_PATHS_PER_QUERY = 100;
+
+  private final GithubClient githubClient;
+  private final int batchSize;
+  private final int pathsPerQuery;
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  public GraphQLCommitFetcher(GithubClient githubClient) {
+    this(githubClient, DEFAULT_BATCH_SIZE, DEFAULT_PATHS_PER_QUERY);
+  }
+
+  public GraphQLCommitFetcher(GithubClient githubClient, int batchSize, int pathsPerQuery) {
+    if (batchSize < 1 || pathsPerQuery < 1) {
+      throw new IllegalArgumentException("batchSize and pathsPerQuery must be at least 1, were "
+              + batchSize + " and " + pathsPerQuery);
+    }
+    this.githubClient = githubClient;
+    this.batchSize = batchSize;
+    this.pathsPerQuery = pathsPerQuery;
+  }
+
+  @Override
+  public void fetchFiles(String owner, String repository, Collection<String> commitSHAs, Set<String> paths,
+                         BiConsumer<String, List<File>> consumer) {
+    fetchCommits(owner, repository, commitSHAs, paths).forEach((sha, commit) -> consumer.accept(sha, commit.files));
+  }
+
+  /**
+   * Returns the changes of every commit to the given paths, keyed by commit SHA, in the same form as the
+   * REST getCommit response.
+   */
+  public Map<String, GHGetCommitResponse> fetchCommits(String owner, String repository,
+                                                       Collection<String> commitSHAs, Collection<String> paths) {
+    var shas = new ArrayList<>(new LinkedHashSet<>(commitSHAs));
+    var pathList = paths.stream().filter(path -> !path.isEmpty()).toList();
+    var commits = new LinkedHashMap<String, GHGetCommitResponse>();
+    for (var sha: shas) {
+      var commit = new GHGetCommitResponse();
+      commit.sha = sha;
+      commit.files = new ArrayList<>();
+      commits.put(sha, commit);
+    }
+
+    for (int from = 0; from < shas.size(); from += batchSize) {
+      var batch = shas.subList(from, Math.min(from + batchSize, shas.size()));
+      // A query is always sent, even without paths, so that unknown commits are reported.
+      int pathFrom = 0;
+      do {
+        var pathBatch = pathList.subList(pathFrom, Math.min(pathFrom + pathsPerQuery, pathList.size()));
+        var data = githubClient.sendGraphQL(buildQuery(batch, pathBatch),
+                Map.of("owner", owner, "name", repository));
+        readBatch(data, batch, pathBatch, commits);
+        pathFrom += pathsPerQuery;
+      } while (pathFrom < pathList.size());
+    }
+    return commits;
+  }
+
+  String buildQuery(List<String> shas, List<String> paths) {
+    var files = new StringBuilder();
+    for (int i = 0; i < paths.size(); i++) {
+      files.append(" f").append(i).append(": file(path: ").append(literal(paths.get(i))).append(") { oid }");
+    }
+
+    var query = new StringBuilder("query($owner: String!, $name: String!) { repository(owner: $owner, name: $name) {");
+    for (int i = 0; i < shas.size(); i++) {
+      query.append(" c").append(i).append(": object(oid: ").append(literal(shas.get(i))).append(") {")
+              .append(" ... on Commit { oid").append(files)
+              .append(" parents(first: 1) { nodes {").append(files).append(" } } } }");
+    }
+    return query.append(" } }").toString();
+  }
+
+  private void readBatch(JsonNode data, List<String> shas, List<String> paths,
+                         Map<String, GHGetCommitResponse> commits) {
+    var repository = data == null ? null : data.get("repository");
+    if (repository == null || repository.isNull()) {
+      throw new GHApiException("GitHub GraphQL API returned no repository");
+    }
+    for (int i = 0; i < shas.size(); i++) {
+      var commitNode = repository.get("c" + i);
+      if (commitNode == null || commitNode.isNull()) {
+        throw new GHApiException("Commit not found: " + shas.get(i));
+      }
+      var parents = commitNode.path("parents").path("nodes");
+      var parentNode = parents.isArray() && !parents.isEmpty() ? parents.get(0) : null;
+
+      for (int p = 0; p < paths.size(); p++) {
+        var status = status(blobOid(commitNode, p), parentNode == null ? null : blobOid(parentNode, p));
+        if (status != null) {
+          var file = new File();
+          file.fileName = paths.get(p);
+          file.status = status;
+          file.sha = blobOid(commitNode, p);
+          commits.get(shas.get(i)).files.add(file);
+        }
+      }
+    }
+  }
+
+  private static String blobOid(JsonNode commitNode, int pathIndex) {
+    var entry = commitNode.get("f" + pathIndex);
+    return entry == null || entry.isNull() ? null : entry.path("oid").asText(null);
+  }
+
+  private static String status(String oid, String parentOid) {
+    if (oid == null) return parentOid == null ? null : "removed";
+    if (parentOid == null) return "added";
+    return oid.equals(parentOid) ? null : "modified";
+  }
+
+  private String literal(String value) {
+    try {
+      return mapper.writeValueAsString(value);
+    }
+    catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Cannot encode GraphQL string: " + value, e);
+    }
+  }
+}
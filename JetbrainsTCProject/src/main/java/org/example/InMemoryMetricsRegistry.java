@@ -0,0 +1,203 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates measurements in memory: counters as sums and timers as histograms over fixed buckets. The
+ * values can be read as a {@link Snapshot} or exported in the Prometheus text format, with timers in
+ * seconds.
+ */
+public class InMemoryMetricsRegistry implements MetricsRegistry {
+  /**
+   * Upper bounds of the timer buckets in seconds, from 1 ms to 60 s.
+   */
+  public static final double[] BUCKET_BOUNDS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+  private static final long[] BUCKET_BOUNDS_NANOS = Arrays.stream(BUCKET_BOUNDS).mapToLong(bound -> (long) (bound * 1e9)).toArray();
+
+  private final Map<MetricKey, CounterValue> counters = new ConcurrentHashMap<>();
+  private final Map<MetricKey, TimerValue> timers = new ConcurrentHashMap<>();
+
+  @Override
+  public Counter counter(String name, String... labels) {
+    return counters.computeIfAbsent(MetricKey.of(name, labels), key -> new CounterValue());
+  }
+
+  @Override
+  public Timer timer(String name, String... labels) {
+    return timers.computeIfAbsent(MetricKey.of(name, labels), key -> new TimerValue());
+  }
+
+  public Snapshot snapshot() {
+    var counterValues = new TreeMap<MetricKey, Long>();
+    counters.forEach((key, value) -> counterValues.put(key, value.sum.sum()));
+    var timerValues = new TreeMap<MetricKey, TimerSnapshot>();
+    timers.forEach((key, value) -> timerValues.put(key, value.snapshot()));
+    return new Snapshot(counterValues, timerValues);
+  }
+
+  /**
+   * Returns all metrics in the Prometheus text exposition format.
+   */
+  public String prometheusText() {
+    var text = new StringBuilder();
+    writePrometheus(text);
+    return text.toString();
+  }
+
+  public void writePrometheus(Appendable out) {
+    var snapshot = snapshot();
+    try {
+      String lastName = null;
+      for (var entry: snapshot.counters().entrySet()) {
+        var key = entry.getKey();
+        if (!key.name().equals(lastName)) {
+          out.append("# TYPE ").append(key.name()).append(" counter\n");
+          lastName = key.name();
+        }
+        out.append(key.name()).append(key.labelText(null)).append(' ').append(String.valueOf(entry.getValue())).append('\n');
+      }
+      for (var entry: snapshot.timers().entrySet()) {
+        var key = entry.getKey();
+        var timer = entry.getValue();
+        if (!key.name().equals(lastName)) {
+          out.append("# TYPE ").append(key.name()).append(" histogram\n");
+          lastName = key.name();
+        }
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+          cumulative += timer.bucketCounts()[i];
+          out.append(key.name()).append("_bucket").append(key.labelText(String.valueOf(BUCKET_BOUNDS[i])))
+                  .append(' ').append(String.valueOf(cumulative)).append('\n');
+        }
+        // Count from the buckets, so that the +Inf bucket matches them even while timers are recorded.
+        cumulative += timer.bucketCounts()[BUCKET_BOUNDS.length];
+        out.append(key.name()).append("_bucket").append(key.labelText("+Inf"))
+                .append(' ').append(String.valueOf(cumulative)).append('\n');
+        out.append(key.name()).append("_sum").append(key.labelText(null))
+                .append(' ').append(String.valueOf(timer.totalNanos() / 1e9)).append('\n');
+        out.append(key.name()).append("_count").append(key.labelText(null))
+                .append(' ').append(String.valueOf(cumulative)).append('\n');
+      }
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException("Cannot write metrics", e);
+    }
+  }
+
+  /**
+   * A metric name with its label pairs in the order they were given.
+   */
+  public record MetricKey(String name, List<String> labels) implements Comparable<MetricKey> {
+    static MetricKey of(String name, String... labels) {
+      if (labels.length % 2 != 0) {
+        throw new IllegalArgumentException("Labels of " + name + " must be key value pairs: " + Arrays.toString(labels));
+      }
+      return new MetricKey(name, List.of(labels));
+    }
+
+    @Override
+    public int compareTo(MetricKey other) {
+      int byName = name.compareTo(other.name);
+      return byName != 0 ? byName : String.join("\0", labels).compareTo(String.join("\0", other.labels));
+    }
+
+    private String labelText(String bucketBound) {
+      if (labels.isEmpty() && bucketBound == null) return "";
+      var text = new StringJoiner(",", "{", "}");
+      for (int i = 0; i < labels.size(); i += 2) {
+        text.add(labels.get(i) + "=\"" + escape(labels.get(i + 1)) + "\"");
+      }
+      if (bucketBound != null) {
+        text.add("le=\"" + bucketBound + "\"");
+      }
+      return text.toString();
+    }
+
+    private static String escape(String value) {
+      return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    @Override
+    public String toString() {
+      return name + labelText(null);
+    }
+  }
+
+  public record TimerSnapshot(long count, long totalNanos, long[] bucketCounts) {
+    /**
+     * An upper bound of the given quantile, the bound of the bucket it falls into.
+     */
+    public double quantileUpperBoundSeconds(double quantile) {
+      long rank = (long) Math.ceil(quantile * count);
+      long cumulative = 0;
+      for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+        cumulative += bucketCounts[i];
+        if (cumulative >= rank) return BUCKET_BOUNDS[i];
+      }
+      return Double.POSITIVE_INFINITY;
+    }
+  }
+
+  public record Snapshot(Map<MetricKey, Long> counters, Map<MetricKey, TimerSnapshot> timers) {
+    /**
+     * The value of the counter, 0 when it was never incremented.
+     */
+    public long counter(String name, String... labels) {
+      return counters.getOrDefault(MetricKey.of(name, labels), 0L);
+    }
+
+    /**
+     * The sum of the counters of that name over all their labels.
+     */
+    public long counterTotal(String name) {
+      return counters.entrySet().stream()
+              .filter(entry -> entry.getKey().name().equals(name))
+              .mapToLong(Map.Entry::getValue)
+              .sum();
+    }
+
+    public Optional<TimerSnapshot> timer(String name, String... labels) {
+      return Optional.ofNullable(timers.get(MetricKey.of(name, labels)));
+    }
+  }
+
+  private static final class CounterValue implements Counter {
+    private final LongAdder sum = new LongAdder();
+
+    @Override
+    public void increment(long amount) {
+      sum.add(amount);
+    }
+  }
+
+  private static final class TimerValue implements Timer {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    // The last bucket counts the durations above the largest bound.
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_NANOS.length + 1];
+
+    private TimerValue() {
+      Arrays.setAll(buckets, i -> new LongAdder());
+    }
+
+    @Override
+    public void record(long nanos) {
+      int bucket = Arrays.binarySearch(BUCKET_BOUNDS_NANOS, nanos);
+      buckets[bucket >= 0 ? bucket : -bucket - 1].increment();
+      count.increment();
+      totalNanos.add(nanos);
+    }
+
+    private TimerSnapshot snapshot() {
+      var bucketCounts = new long[buckets.length];
+      for (int i = 0; i < buckets.length; i++) {
+        bucketCounts[i] = buckets[i].sum();
+      }
+      return new TimerSnapshot(count.sum(), totalNanos.sum(), bucketCounts);
+    }
+  }
+}
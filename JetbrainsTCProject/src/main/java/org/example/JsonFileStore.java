@@ -0,0 +1,64 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * JSON values in a directory, one file per key named after the SHA-256 of the key. A value is written
+ * to a temporary file first and moved into place, so readers never see a partly written file.
+ */
+final class JsonFileStore<T> {
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final Path directory;
+  private final Class<T> type;
+
+  JsonFileStore(Path directory, Class<T> type) throws IOException {
+    this.directory = Files.createDirectories(directory);
+    this.type = type;
+  }
+
+  /**
+   * Returns the value stored for the key, or {@code null} when there is none. A truncated or foreign
+   * file is treated as a miss, the next write overwrites it.
+   */
+  T read(String key) {
+    var file = fileFor(key);
+    if (!Files.exists(file)) return null;
+    try {
+      return mapper.readValue(file.toFile(), type);
+    }
+    catch (IOException e) {
+      return null;
+    }
+  }
+
+  void write(String key, T value) throws IOException {
+    var file = fileFor(key);
+    var tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try {
+      mapper.writeValue(tmp.toFile(), value);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  private Path fileFor(String key) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+      return directory.resolve(HexFormat.of().formatHex(digest) + ".json");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
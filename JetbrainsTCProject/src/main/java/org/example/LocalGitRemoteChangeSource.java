@@ -0,0 +1,86 @@
+package org.example;
+
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Finds the remote changes with git in the local clone, which already has {@code origin/branchA} after
+ * a fetch. Costs one git process and no GitHub API requests.
+ * <p>
+ * By default every commit since the merge base is walked with {@code git log --name-status}, which
+ * matches the API commit walk. {@link #perCommit(boolean) perCommit(false)} diffs the merge base
+ * against the remote branch instead, which matches the compare endpoint: files that were modified and
+ * later reverted are not reported.
+ */
+public class LocalGitRemoteChangeSource implements RemoteChangeSource {
+  private final GitCmdExec gitCmd;
+  private boolean perCommit = true;
+
+  public LocalGitRemoteChangeSource(GitCmdExec gitCmd) {
+    this.gitCmd = gitCmd;
+  }
+
+  public LocalGitRemoteChangeSource perCommit(boolean perCommit) {
+    this.perCommit = perCommit;
+    return this;
+  }
+
+  @Override
+  public Set<String> findModifiedFiles(RemoteChangeQuery query) {
+    List<String> command = new LinkedList<>();
+    command.add("git");
+    if (perCommit) {
+      command.add("log");
+      command.add("--format=");
+      command.add("--name-status");
+      command.add("--no-renames");
+      command.add("-z");
+      command.add(query.mergeBase() + ".." + query.localHead());
+    }
+    else {
+      command.add("diff");
+      command.add("--name-only");
+      command.add("--diff-filter=M");
+      command.add("-z");
+      command.add(query.mergeBase());
+      command.add(query.localHead());
+    }
+
+    var modifiedFiles = new HashSet<String>();
+    Consumer<String> collector = fileName -> {
+      if (query.candidatePaths().contains(fileName)) {
+        modifiedFiles.add(fileName);
+      }
+    };
+    gitCmd.streamCommand(query.localRepo(), command,
+            GitOutputConsumer.nulTerminated(perCommit ? modifiedOnly(collector) : collector), null);
+    return modifiedFiles;
+  }
+
+  /**
+   * With {@code -z} every {@code --name-status} entry is a status record followed by a path record.
+   * The empty records between commits are skipped.
+   */
+  private static Consumer<String> modifiedOnly(Consumer<String> consumer) {
+    return new Consumer<>() {
+      private String status;
+
+      @Override
+      public void accept(String record) {
+        if (status == null) {
+          if (!record.isEmpty()) {
+            status = record;
+          }
+          return;
+        }
+        if (status.equals("M")) {
+          consumer.accept(record);
+        }
+        status = null;
+      }
+    };
+  }
+}
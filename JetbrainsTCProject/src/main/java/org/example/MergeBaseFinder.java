@@ -0,0 +1,79 @@
+package org.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Computes merge bases in process from the repository's commit-graph file, falling back to
+ * {@code git merge-base} when the repository has no commit-graph, when a name is not a plain ref or SHA,
+ * or when a commit is newer than the commit-graph. The graph of each repository is loaded once and
+ * reloaded when git rewrites the file, for example on {@code git gc} or
+ * {@code git commit-graph write --reachable}.
+ */
+public class MergeBaseFinder {
+  private final GitCmdExec gitCmd;
+  private final Map<Path, LoadedGraph> graphs = new ConcurrentHashMap<>();
+
+  public MergeBaseFinder(GitCmdExec gitCmd) {
+    this.gitCmd = gitCmd;
+  }
+
+  /**
+   * Returns the best common ancestor of the two commits, as {@code git merge-base one two} prints it.
+   * When there are several, the one with the newest commit time is returned.
+   */
+  public String mergeBase(File repository, String one, String two) {
+    var loaded = loadGraph(repository.toPath());
+    if (loaded != null) {
+      var graph = loaded.graph();
+      var first = loaded.refs().resolve(one).map(graph::position).orElse(-1);
+      var second = loaded.refs().resolve(two).map(graph::position).orElse(-1);
+      if (first >= 0 && second >= 0) {
+        var bases = graph.mergeBases(first, second);
+        if (!bases.isEmpty()) {
+          return graph.sha(bases.get(0));
+        }
+      }
+    }
+
+    List<String> command = new LinkedList<>();
+    command.add("git");
+    command.add("merge-base");
+    command.add(one);
+    command.add(two);
+    return gitCmd.runCommand(repository, command).output().trim();
+  }
+
+  private LoadedGraph loadGraph(Path repository) {
+    var gitDirectory = GitObjectDatabase.gitDirectory(repository);
+    var commonDirectory = GitObjectDatabase.commonDirectory(gitDirectory);
+    var file = commonDirectory.resolve("objects").resolve("info").resolve("commit-graph");
+    FileTime modified;
+    try {
+      if (!Files.isRegularFile(file)) return null;
+      modified = Files.getLastModifiedTime(file);
+    }
+    catch (IOException e) {
+      return null;
+    }
+
+    var loaded = graphs.get(gitDirectory);
+    if (loaded == null || !loaded.modified().equals(modified)) {
+      Optional<CommitGraph> graph = CommitGraph.open(commonDirectory);
+      if (graph.isEmpty()) return null;
+      loaded = new LoadedGraph(graph.get(), new GitRefs(gitDirectory, commonDirectory), modified);
+      graphs.put(gitDirectory, loaded);
+    }
+    return loaded;
+  }
+
+  private record LoadedGraph(CommitGraph graph, GitRefs refs, FileTime modified) {}
+}
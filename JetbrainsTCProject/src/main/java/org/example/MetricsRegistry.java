@@ -0,0 +1,48 @@
+package org.example;
+
+/**
+ * Receives the measurements of the client, git and the detector. Metrics are identified by a name and
+ * label pairs given as alternating keys and values, for example
+ * {@code counter("github_requests_total", "endpoint", "commits", "status", "200")}. The default
+ * {@link #NOOP} registry discards everything; {@link InMemoryMetricsRegistry} aggregates the measurements
+ * and exports them.
+ */
+public interface MetricsRegistry {
+  MetricsRegistry NOOP = new MetricsRegistry() {
+    @Override
+    public Counter counter(String name, String... labels) {
+      return amount -> {};
+    }
+
+    @Override
+    public Timer timer(String name, String... labels) {
+      return nanos -> {};
+    }
+  };
+
+  Counter counter(String name, String... labels);
+
+  /**
+   * A latency histogram. Durations are recorded in nanoseconds.
+   */
+  Timer timer(String name, String... labels);
+
+  interface Counter {
+    void increment(long amount);
+
+    default void increment() {
+      increment(1);
+    }
+  }
+
+  interface Timer {
+    void record(long nanos);
+
+    /**
+     * Records the time since {@code startNanos}, a value of {@link System#nanoTime()}.
+     */
+    default void recordSince(long startNanos) {
+      record(System.nanoTime() - startNanos);
+    }
+  }
+}
@@ -0,0 +1,201 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A memory-mapped pack and its version 2 index. The pack is mapped in segments of 1 GiB so packs larger
+ * than a single {@link ByteBuffer} can be read.
+ */
+final class PackFile {
+  static final int OBJ_COMMIT = 1;
+  static final int OBJ_TREE = 2;
+  static final int OBJ_BLOB = 3;
+  static final int OBJ_TAG = 4;
+  static final int OBJ_OFS_DELTA = 6;
+  static final int OBJ_REF_DELTA = 7;
+
+  private static final int IDX_MAGIC = 0xff744f63;
+  private static final int PACK_MAGIC = 0x5041434b;
+  private static final int SHA_SIZE = 20;
+  private static final int FANOUT_OFFSET = 8;
+  private static final int SEGMENT_BITS = 30;
+  private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+  private final Path packPath;
+  private final ByteBuffer index;
+  private final int objectCount;
+  private final int namesOffset;
+  private final int offsetsOffset;
+  private final int largeOffsetsOffset;
+  private final ByteBuffer[] segments;
+  private final long packLength;
+
+  PackFile(Path indexPath) throws IOException {
+    var fileName = indexPath.getFileName().toString();
+    this.packPath = indexPath.resolveSibling(fileName.substring(0, fileName.length() - ".idx".length()) + ".pack");
+
+    try (var channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+      index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    if (index.getInt(0) != IDX_MAGIC || index.getInt(4) != 2) {
+      throw new IOException("Unsupported pack index version: " + indexPath);
+    }
+    objectCount = index.getInt(FANOUT_OFFSET + 255 * Integer.BYTES);
+    namesOffset = FANOUT_OFFSET + 256 * Integer.BYTES;
+    int crcOffset = namesOffset + objectCount * SHA_SIZE;
+    offsetsOffset = crcOffset + objectCount * Integer.BYTES;
+    largeOffsetsOffset = offsetsOffset + objectCount * Integer.BYTES;
+
+    try (var channel = FileChannel.open(packPath, StandardOpenOption.READ)) {
+      packLength = channel.size();
+      segments = new ByteBuffer[(int) ((packLength + SEGMENT_MASK) >>> SEGMENT_BITS)];
+      for (int i = 0; i < segments.length; i++) {
+        long start = (long) i << SEGMENT_BITS;
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_MASK + 1, packLength - start));
+      }
+    }
+    if (packLength < 12 || segments[0].getInt(0) != PACK_MAGIC) {
+      throw new IOException("Not a pack file: " + packPath);
+    }
+  }
+
+  Path path() {
+    return packPath;
+  }
+
+  /**
+   * Returns the offset of the object in the pack, or -1 when the pack does not contain it. The fanout
+   * table narrows the search to the SHAs with the same first byte, which are then binary searched.
+   */
+  long findOffset(byte[] sha) {
+    int first = sha[0] & 0xff;
+    int low = first == 0 ? 0 : index.getInt(FANOUT_OFFSET + (first - 1) * Integer.BYTES);
+    int high = index.getInt(FANOUT_OFFSET + first * Integer.BYTES) - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int cmp = compareName(middle, sha);
+      if (cmp < 0) {
+        low = middle + 1;
+      }
+      else if (cmp > 0) {
+        high = middle - 1;
+      }
+      else {
+        return offsetAt(middle);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Reads the type and size header of the entry at {@code offset}, and for deltas where the base is.
+   */
+  Entry entry(long offset) throws IOException {
+    long position = offset;
+    int b = byteAt(position++);
+    int type = (b >>> 4) & 0x7;
+    long size = b & 0x0f;
+    for (int shift = 4; (b & 0x80) != 0; shift += 7) {
+      b = byteAt(position++);
+      size |= (long) (b & 0x7f) << shift;
+    }
+
+    long baseOffset = -1;
+    byte[] baseSha = null;
+    if (type == OBJ_OFS_DELTA) {
+      b = byteAt(position++);
+      long distance = b & 0x7f;
+      while ((b & 0x80) != 0) {
+        b = byteAt(position++);
+        distance = ((distance + 1) << 7) | (b & 0x7f);
+      }
+      baseOffset = offset - distance;
+      if (baseOffset < 0) {
+        throw new IOException("Invalid delta base offset at " + offset + " in " + packPath);
+      }
+    }
+    else if (type == OBJ_REF_DELTA) {
+      baseSha = new byte[SHA_SIZE];
+      for (int i = 0; i < SHA_SIZE; i++) {
+        baseSha[i] = (byte) byteAt(position++);
+      }
+    }
+    else if (type < OBJ_COMMIT || type > OBJ_TAG) {
+      throw new IOException("Invalid object type " + type + " at " + offset + " in " + packPath);
+    }
+    if (size > Integer.MAX_VALUE - 8) {
+      throw new IOException("Object at " + offset + " in " + packPath + " is too large: " + size + " bytes");
+    }
+    return new Entry(type, (int) size, position, baseOffset, baseSha);
+  }
+
+  /**
+   * Inflates the zlib stream at {@code position}, which expands to {@code size} bytes.
+   */
+  byte[] inflate(long position, int size) throws IOException {
+    var output = new byte[size];
+    if (size == 0) return output;
+    var inflater = new Inflater();
+    try {
+      int written = 0;
+      long next = position;
+      while (written < size) {
+        if (inflater.needsInput()) {
+          if (next >= packLength) {
+            throw new IOException("Truncated object at " + position + " in " + packPath);
+          }
+          var segment = segments[(int) (next >>> SEGMENT_BITS)];
+          int from = (int) (next & SEGMENT_MASK);
+          inflater.setInput(segment.slice(from, segment.limit() - from));
+          next += segment.limit() - from;
+        }
+        int count = inflater.inflate(output, written, size - written);
+        written += count;
+        if (count == 0 && (inflater.finished() || inflater.needsDictionary())) {
+          break;
+        }
+      }
+      if (written != size) {
+        throw new IOException("Corrupt object at " + position + " in " + packPath);
+      }
+      return output;
+    }
+    catch (DataFormatException e) {
+      throw new IOException("Corrupt object at " + position + " in " + packPath, e);
+    }
+    finally {
+      inflater.end();
+    }
+  }
+
+  private int byteAt(long position) throws IOException {
+    if (position >= packLength) {
+      throw new IOException("Read past the end of " + packPath);
+    }
+    return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK)) & 0xff;
+  }
+
+  private int compareName(int position, byte[] sha) {
+    int base = namesOffset + position * SHA_SIZE;
+    for (int i = 0; i < SHA_SIZE; i++) {
+      int cmp = Integer.compare(index.get(base + i) & 0xff, sha[i] & 0xff);
+      if (cmp != 0) return cmp;
+    }
+    return 0;
+  }
+
+  private long offsetAt(int position) {
+    int offset = index.getInt(offsetsOffset + position * Integer.BYTES);
+    if (offset >= 0) return offset;
+    // The high bit marks an index into the table of 8 byte offsets, used in packs over 2 GiB.
+    return index.getLong(largeOffsetsOffset + (offset & 0x7fffffff) * Long.BYTES);
+  }
+
+  record Entry(int type, int size, long dataOffset, long baseOffset, byte[] baseSha) {}
+}
@@ -0,0 +1,142 @@
+package org.example;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of paths of one {@link PathTable}, stored as a bitset of path IDs. Adding a path interns it;
+ * {@link #contains} only looks it up, so checking paths that are not in the table does not grow it.
+ * Union and intersection with a set of the same table are bitset operations.
+ */
+public class PathSet extends AbstractSet<String> {
+  private final PathTable table;
+  private final BitSet ids = new BitSet();
+  private int size;
+
+  PathSet(PathTable table) {
+    this.table = table;
+  }
+
+  public PathTable table() {
+    return table;
+  }
+
+  public boolean containsId(int id) {
+    return id >= 0 && ids.get(id);
+  }
+
+  public boolean addId(int id) {
+    if (ids.get(id)) return false;
+    ids.set(id);
+    size++;
+    return true;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return o instanceof CharSequence path && containsId(table.find(path));
+  }
+
+  @Override
+  public boolean add(String path) {
+    return addId(table.intern(path));
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    if (!(o instanceof CharSequence path)) return false;
+    int id = table.find(path);
+    if (!containsId(id)) return false;
+    ids.clear(id);
+    size--;
+    return true;
+  }
+
+  @Override
+  public boolean addAll(Collection<? extends String> c) {
+    if (c instanceof PathSet other && other.table == table) {
+      int before = size;
+      ids.or(other.ids);
+      size = ids.cardinality();
+      return size != before;
+    }
+    return super.addAll(c);
+  }
+
+  @Override
+  public boolean retainAll(Collection<?> c) {
+    if (c instanceof PathSet other && other.table == table) {
+      int before = size;
+      ids.and(other.ids);
+      size = ids.cardinality();
+      return size != before;
+    }
+    return super.retainAll(c);
+  }
+
+  /**
+   * Equal to any set with the same paths. Sets of the same table compare their bitsets.
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof PathSet other && other.table == table) {
+      return ids.equals(other.ids);
+    }
+    return super.equals(o);
+  }
+
+  /**
+   * The sum of the String hashes of the paths, as for any set, computed from the table without creating
+   * the Strings.
+   */
+  @Override
+  public int hashCode() {
+    int hash = 0;
+    for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+      hash += table.pathHash(id);
+    }
+    return hash;
+  }
+
+  @Override
+  public void clear() {
+    ids.clear();
+    size = 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Iterator<String> iterator() {
+    return new Iterator<>() {
+      private int next = ids.nextSetBit(0);
+      private int last = -1;
+
+      @Override
+      public boolean hasNext() {
+        return next >= 0;
+      }
+
+      @Override
+      public String next() {
+        if (next < 0) throw new NoSuchElementException();
+        last = next;
+        next = ids.nextSetBit(next + 1);
+        return table.path(last);
+      }
+
+      @Override
+      public void remove() {
+        if (last < 0 || !ids.get(last)) throw new IllegalStateException();
+        ids.clear(last);
+        size--;
+      }
+    };
+  }
+}
@@ -0,0 +1,423 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Interns file paths as int IDs. Every path is a node of a trie of path segments: a node holds only the
+ * ID of its parent directory and of its last segment, and each distinct segment is stored once, so
+ * 200k paths under a few hundred directories take a few MB instead of 200k Strings.
+ * <p>
+ * Paths can be interned from Strings, from chars, or straight from the UTF-8 output of git, without
+ * creating a String per path. {@link PathSet} stores a set of IDs as a bitset.
+ * <p>
+ * Interning is not thread-safe. Lookups can run on several threads once interning has finished and the
+ * table has been safely published, for example by submitting the lookups to an executor.
+ */
+public class PathTable {
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private char[] segmentChars = new char[INITIAL_CAPACITY * 8];
+  private int segmentCharsUsed;
+  private int[] segmentOffsets = new int[INITIAL_CAPACITY];
+  private int[] segmentLengths = new int[INITIAL_CAPACITY];
+  private int[] segmentHashes = new int[INITIAL_CAPACITY];
+  private int segmentCount;
+  /** Open-addressing table of segment IDs plus one, 0 marks a free slot. */
+  private int[] segmentSlots = new int[INITIAL_CAPACITY * 2];
+
+  private int[] nodeParents = new int[INITIAL_CAPACITY];
+  private int[] nodeSegments = new int[INITIAL_CAPACITY];
+  /** The {@link String#hashCode()} of each path, so that sets of paths hash without creating Strings. */
+  private int[] nodePathHashes = new int[INITIAL_CAPACITY];
+  private int nodeCount;
+  private int[] nodeSlots = new int[INITIAL_CAPACITY * 2];
+
+  private char[] scratch = new char[256];
+  private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+  /**
+   * Returns the ID of the path, adding it when it is new.
+   */
+  public int intern(CharSequence path) {
+    int length = path.length();
+    ensureScratch(length);
+    for (int i = 0; i < length; i++) {
+      scratch[i] = path.charAt(i);
+    }
+    return intern(scratch, 0, length);
+  }
+
+  public int intern(char[] chars, int offset, int length) {
+    return walk(chars, offset, length);
+  }
+
+  /**
+   * Interns a path given as UTF-8 bytes, as git prints them with {@code -z}.
+   */
+  public int intern(byte[] utf8, int offset, int length) {
+    int charLength = decode(utf8, offset, length);
+    return walk(scratch, 0, charLength);
+  }
+
+  /**
+   * Returns the ID of the path, or -1 when it was never interned. Does not modify the table.
+   */
+  public int find(CharSequence path) {
+    int node = -1;
+    int start = 0;
+    int length = path.length();
+    if (length == 0) return -1;
+    for (int i = 0; i <= length; i++) {
+      if (i == length || path.charAt(i) == '/') {
+        int segment = findSegment(path, start, i - start);
+        if (segment < 0) return -1;
+        node = findNode(node, segment);
+        if (node < 0) return -1;
+        start = i + 1;
+      }
+    }
+    return node;
+  }
+
+  /**
+   * Creates the String of the path with the given ID.
+   */
+  public String path(int id) {
+    if (id < 0 || id >= nodeCount) {
+      throw new IllegalArgumentException("Unknown path ID: " + id);
+    }
+    int length = -1;
+    for (int node = id; node >= 0; node = nodeParents[node]) {
+      length += segmentLengths[nodeSegments[node]] + 1;
+    }
+    var chars = new char[length];
+    int end = length;
+    for (int node = id; node >= 0; node = nodeParents[node]) {
+      int segment = nodeSegments[node];
+      end -= segmentLengths[segment];
+      System.arraycopy(segmentChars, segmentOffsets[segment], chars, end, segmentLengths[segment]);
+      if (end > 0) {
+        chars[--end] = '/';
+      }
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Returns the {@link String#hashCode()} of the path with the given ID without creating the String.
+   */
+  int pathHash(int id) {
+    return nodePathHashes[id];
+  }
+
+  /**
+   * The number of IDs handed out, including the directories of the interned paths.
+   */
+  public int size() {
+    return nodeCount;
+  }
+
+  public PathSet newSet() {
+    return new PathSet(this);
+  }
+
+  /**
+   * Reads a set of paths from text with one path per line, such as the output of
+   * {@code git diff --name-only}, without creating a String per line. Empty lines are skipped.
+   */
+  public PathSet parseLines(CharSequence text) {
+    var set = newSet();
+    int length = text.length();
+    int start = 0;
+    for (int i = 0; i <= length; i++) {
+      if (i == length || text.charAt(i) == '\n') {
+        int end = i > start && text.charAt(i - 1) == '\r' ? i - 1 : i;
+        if (end > start) {
+          ensureScratch(end - start);
+          for (int c = start; c < end; c++) {
+            scratch[c - start] = text.charAt(c);
+          }
+          set.addId(walk(scratch, 0, end - start));
+        }
+        start = i + 1;
+      }
+    }
+    return set;
+  }
+
+  /**
+   * Returns a consumer for {@link GitCmdExec#streamCommand} that adds every NUL-terminated path of
+   * git's {@code -z} output to the set, decoding the bytes straight into IDs.
+   */
+  public GitOutputConsumer nulTerminated(PathSet set) {
+    return new PathCollector(set, (byte) 0);
+  }
+
+  /**
+   * Like {@link #nulTerminated(PathSet)} for output with one path per line.
+   */
+  public GitOutputConsumer lines(PathSet set) {
+    return new PathCollector(set, (byte) '\n');
+  }
+
+  private int walk(char[] chars, int offset, int length) {
+    if (length == 0) {
+      throw new IllegalArgumentException("Empty path");
+    }
+    int node = -1;
+    int start = offset;
+    int end = offset + length;
+    for (int i = offset; i <= end; i++) {
+      if (i == end || chars[i] == '/') {
+        int segment = internSegment(chars, start, i - start);
+        int child = findNode(node, segment);
+        if (child < 0) {
+          child = addNode(node, segment);
+        }
+        node = child;
+        start = i + 1;
+      }
+    }
+    return node;
+  }
+
+  private int internSegment(char[] chars, int offset, int length) {
+    int hash = hash(chars, offset, length);
+    int mask = segmentSlots.length - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      int stored = segmentSlots[slot];
+      if (stored == 0) {
+        int segment = addSegment(chars, offset, length, hash);
+        segmentSlots[slot] = segment + 1;
+        if (segmentCount * 2 > segmentSlots.length) {
+          segmentSlots = rehash(segmentCount, segmentHashes);
+        }
+        return segment;
+      }
+      int segment = stored - 1;
+      if (segmentHashes[segment] == hash && segmentLengths[segment] == length
+              && Arrays.equals(segmentChars, segmentOffsets[segment], segmentOffsets[segment] + length,
+                      chars, offset, offset + length)) {
+        return segment;
+      }
+    }
+  }
+
+  private int findSegment(CharSequence chars, int offset, int length) {
+    int hash = 0;
+    for (int i = offset; i < offset + length; i++) {
+      hash = 31 * hash + chars.charAt(i);
+    }
+    hash = mix(hash);
+    int mask = segmentSlots.length - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      int stored = segmentSlots[slot];
+      if (stored == 0) return -1;
+      int segment = stored - 1;
+      if (segmentHashes[segment] == hash && segmentLengths[segment] == length
+              && segmentEquals(segment, chars, offset, length)) {
+        return segment;
+      }
+    }
+  }
+
+  private boolean segmentEquals(int segment, CharSequence chars, int offset, int length) {
+    int base = segmentOffsets[segment];
+    for (int i = 0; i < length; i++) {
+      if (segmentChars[base + i] != chars.charAt(offset + i)) return false;
+    }
+    return true;
+  }
+
+  private int addSegment(char[] chars, int offset, int length, int hash) {
+    if (segmentCount == segmentOffsets.length) {
+      int capacity = segmentCount * 2;
+      segmentOffsets = Arrays.copyOf(segmentOffsets, capacity);
+      segmentLengths = Arrays.copyOf(segmentLengths, capacity);
+      segmentHashes = Arrays.copyOf(segmentHashes, capacity);
+    }
+    if (segmentCharsUsed + length > segmentChars.length) {
+      segmentChars = Arrays.copyOf(segmentChars, Math.max(segmentChars.length * 2, segmentCharsUsed + length));
+    }
+    System.arraycopy(chars, offset, segmentChars, segmentCharsUsed, length);
+    segmentOffsets[segmentCount] = segmentCharsUsed;
+    segmentLengths[segmentCount] = length;
+    segmentHashes[segmentCount] = hash;
+    segmentCharsUsed += length;
+    return segmentCount++;
+  }
+
+  private int findNode(int parent, int segment) {
+    int mask = nodeSlots.length - 1;
+    for (int slot = nodeHash(parent, segment) & mask; ; slot = (slot + 1) & mask) {
+      int stored = nodeSlots[slot];
+      if (stored == 0) return -1;
+      int node = stored - 1;
+      if (nodeParents[node] == parent && nodeSegments[node] == segment) return node;
+    }
+  }
+
+  private int addNode(int parent, int segment) {
+    if (nodeCount == nodeParents.length) {
+      nodeParents = Arrays.copyOf(nodeParents, nodeCount * 2);
+      nodeSegments = Arrays.copyOf(nodeSegments, nodeCount * 2);
+      nodePathHashes = Arrays.copyOf(nodePathHashes, nodeCount * 2);
+    }
+    int node = nodeCount++;
+    nodeParents[node] = parent;
+    nodeSegments[node] = segment;
+    nodePathHashes[node] = pathHash(parent, segment);
+    int mask = nodeSlots.length - 1;
+    int slot = nodeHash(parent, segment) & mask;
+    while (nodeSlots[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    nodeSlots[slot] = node + 1;
+    if (nodeCount * 2 > nodeSlots.length) {
+      var hashes = new int[nodeCount];
+      for (int i = 0; i < nodeCount; i++) {
+        hashes[i] = nodeHash(nodeParents[i], nodeSegments[i]);
+      }
+      nodeSlots = rehash(nodeCount, hashes);
+    }
+    return node;
+  }
+
+  /**
+   * Continues the String hash of the parent path over {@code '/'} and the segment.
+   */
+  private int pathHash(int parent, int segment) {
+    int hash = parent < 0 ? 0 : 31 * nodePathHashes[parent] + '/';
+    int offset = segmentOffsets[segment];
+    for (int i = offset; i < offset + segmentLengths[segment]; i++) {
+      hash = 31 * hash + segmentChars[i];
+    }
+    return hash;
+  }
+
+  private static int[] rehash(int count, int[] hashes) {
+    var slots = new int[Integer.highestOneBit(count) * 4];
+    int mask = slots.length - 1;
+    for (int id = 0; id < count; id++) {
+      int slot = hashes[id] & mask;
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = id + 1;
+    }
+    return slots;
+  }
+
+  private static int hash(char[] chars, int offset, int length) {
+    int hash = 0;
+    for (int i = offset; i < offset + length; i++) {
+      hash = 31 * hash + chars[i];
+    }
+    return mix(hash);
+  }
+
+  private static int nodeHash(int parent, int segment) {
+    return mix(parent * 0x9E3779B9 + segment);
+  }
+
+  private static int mix(int hash) {
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    return hash ^ (hash >>> 13);
+  }
+
+  /**
+   * Decodes UTF-8 into the scratch buffer and returns the number of chars. ASCII, which almost all paths
+   * are, is copied directly.
+   */
+  private int decode(byte[] utf8, int offset, int length) {
+    ensureScratch(length);
+    boolean ascii = true;
+    for (int i = 0; i < length; i++) {
+      byte b = utf8[offset + i];
+      if (b < 0) {
+        ascii = false;
+        break;
+      }
+      scratch[i] = (char) b;
+    }
+    if (ascii) return length;
+
+    var output = CharBuffer.wrap(scratch);
+    decoder.reset();
+    CoderResult result = decoder.decode(ByteBuffer.wrap(utf8, offset, length), output, true);
+    if (result.isError() || result.isOverflow()) {
+      throw new IllegalArgumentException("Cannot decode path");
+    }
+    decoder.flush(output);
+    return output.position();
+  }
+
+  private void ensureScratch(int length) {
+    if (scratch.length < length) {
+      scratch = new char[Math.max(length, scratch.length * 2)];
+    }
+  }
+
+  private final class PathCollector implements GitOutputConsumer {
+    private final PathSet set;
+    private final byte terminator;
+    private byte[] partial = new byte[256];
+    private int partialLength;
+
+    private PathCollector(PathSet set, byte terminator) {
+      this.set = set;
+      this.terminator = terminator;
+    }
+
+    @Override
+    public void accept(byte[] buffer, int offset, int length) {
+      int start = offset;
+      int end = offset + length;
+      for (int i = offset; i < end; i++) {
+        if (buffer[i] == terminator) {
+          if (partialLength > 0) {
+            append(buffer, start, i - start);
+            add(partial, 0, partialLength);
+            partialLength = 0;
+          }
+          else {
+            add(buffer, start, i - start);
+          }
+          start = i + 1;
+        }
+      }
+      append(buffer, start, end - start);
+    }
+
+    @Override
+    public void finish() {
+      if (partialLength > 0) {
+        add(partial, 0, partialLength);
+        partialLength = 0;
+      }
+    }
+
+    private void add(byte[] bytes, int offset, int length) {
+      if (length > 0) {
+        set.addId(intern(bytes, offset, length));
+      }
+    }
+
+    private void append(byte[] bytes, int offset, int length) {
+      if (partialLength + length > partial.length) {
+        partial = Arrays.copyOf(partial, Math.max(partial.length * 2, partialLength + length));
+      }
+      System.arraycopy(bytes, offset, partial, partialLength, length);
+      partialLength += length;
+    }
+  }
+}
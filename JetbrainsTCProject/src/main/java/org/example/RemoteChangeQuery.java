@@ -0,0 +1,31 @@
+package org.example;
+
+import java.io.File;
+import java.util.Set;
+
+/**
+ * The commits after {@code mergeBase} up to {@code head} on the remote branch, and the paths to look for
+ * among their changes. A null {@code head} stands for the current tip of {@code branchA}.
+ */
+public record RemoteChangeQuery(String owner, String repository, File localRepo, String branchA,
+                                String mergeBase, Set<String> candidatePaths, String head) {
+
+  public RemoteChangeQuery(String owner, String repository, File localRepo, String branchA,
+                           String mergeBase, Set<String> candidatePaths) {
+    this(owner, repository, localRepo, branchA, mergeBase, candidatePaths, null);
+  }
+
+  /**
+   * The head as a revision of the local clone.
+   */
+  public String localHead() {
+    return head != null ? head : "origin/" + branchA;
+  }
+
+  /**
+   * The head as a revision GitHub understands.
+   */
+  public String remoteHead() {
+    return head != null ? head : branchA;
+  }
+}
@@ -0,0 +1,32 @@
+package org.example;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the files that were modified on the remote branch since the merge base. This is the half of
+ * the detection that {@link FileChangesDetector} can answer in different ways, for example through
+ * the GitHub API or from the local clone.
+ */
+public interface RemoteChangeSource {
+
+  /**
+   * Returns the files of {@code query.candidatePaths()} that were modified on {@code origin/branchA}
+   * after {@code query.mergeBase()}.
+   */
+  Set<String> findModifiedFiles(RemoteChangeQuery query);
+
+  /**
+   * Answers several queries at once. Sources that can share work between the queries, such as commits
+   * that several of them walk over, override this to do that work only once.
+   */
+  default Map<RemoteChangeQuery, Set<String>> findModifiedFiles(Collection<RemoteChangeQuery> queries) {
+    var results = new LinkedHashMap<RemoteChangeQuery, Set<String>>();
+    for (var query: queries) {
+      results.put(query, findModifiedFiles(query));
+    }
+    return results;
+  }
+}
@@ -0,0 +1,128 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Compares two trees and reports the files that differ, with the statuses {@code git diff --name-status}
+ * would print: M, A and D. Only subtrees on the way to one of the wanted paths are read, so the cost
+ * depends on the paths asked about rather than on the size of the repository.
+ */
+final class TreeDiff {
+  private static final int TYPE_MASK = 0170000;
+  private static final int TREE = 0040000;
+  private static final HexFormat HEX = HexFormat.of();
+
+  private final GitObjectReader reader;
+  private final Set<String> paths;
+  private final Set<String> directories;
+
+  TreeDiff(GitObjectReader reader, Set<String> paths, Set<String> directories) {
+    this.reader = reader;
+    this.paths = paths;
+    this.directories = directories;
+  }
+
+  /**
+   * Returns the directories that contain at least one of the paths, without a trailing slash.
+   */
+  static Set<String> directoriesOf(Set<String> paths) {
+    var directories = new HashSet<String>();
+    for (var path: paths) {
+      for (int slash = path.indexOf('/'); slash > 0; slash = path.indexOf('/', slash + 1)) {
+        directories.add(path.substring(0, slash));
+      }
+    }
+    return directories;
+  }
+
+  /**
+   * Reports each wanted path that differs between the trees. Either tree may be null for an empty tree.
+   */
+  void diff(String oldTree, String newTree, BiConsumer<String, String> changes) {
+    diff("", oldTree, newTree, changes);
+  }
+
+  private void diff(String prefix, String oldTree, String newTree, BiConsumer<String, String> changes) {
+    if (oldTree != null && oldTree.equals(newTree)) return;
+    var oldEntries = entries(oldTree);
+    var newEntries = entries(newTree);
+
+    for (var entry: newEntries.entrySet()) {
+      var path = prefix + entry.getKey();
+      var newEntry = entry.getValue();
+      var oldEntry = oldEntries.get(entry.getKey());
+      if (newEntry.isTree() || (oldEntry != null && oldEntry.isTree())) {
+        if (directories.contains(path)) {
+          diff(path + "/", oldEntry != null && oldEntry.isTree() ? oldEntry.sha() : null,
+                  newEntry.isTree() ? newEntry.sha() : null, changes);
+        }
+        // A file replaced by a directory or the other way around.
+        if (paths.contains(path)) {
+          if (oldEntry != null && !oldEntry.isTree()) changes.accept(path, "D");
+          if (!newEntry.isTree()) changes.accept(path, "A");
+        }
+      }
+      else if (paths.contains(path)) {
+        if (oldEntry == null) {
+          changes.accept(path, "A");
+        }
+        else if (!oldEntry.sha().equals(newEntry.sha()) || oldEntry.mode() != newEntry.mode()) {
+          changes.accept(path, "M");
+        }
+      }
+    }
+    for (var entry: oldEntries.entrySet()) {
+      if (newEntries.containsKey(entry.getKey())) continue;
+      var path = prefix + entry.getKey();
+      if (entry.getValue().isTree()) {
+        if (directories.contains(path)) {
+          diff(path + "/", entry.getValue().sha(), null, changes);
+        }
+      }
+      else if (paths.contains(path)) {
+        changes.accept(path, "D");
+      }
+    }
+  }
+
+  /**
+   * A tree is a sequence of {@code <octal mode> <name>\0<20 byte sha>} entries.
+   */
+  private Map<String, Entry> entries(String tree) {
+    var entries = new LinkedHashMap<String, Entry>();
+    if (tree == null) return entries;
+    var object = reader.read(tree).orElseThrow(() -> new GitCommandException("Missing tree: " + tree));
+    if (!"tree".equals(object.type())) {
+      throw new GitCommandException("Not a tree: " + tree + " is a " + object.type());
+    }
+    var content = object.content();
+    int position = 0;
+    while (position < content.length) {
+      int mode = 0;
+      while (content[position] != ' ') {
+        mode = (mode << 3) | (content[position++] - '0');
+      }
+      int nameStart = ++position;
+      while (content[position] != 0) {
+        position++;
+      }
+      var name = new String(content, nameStart, position - nameStart, StandardCharsets.UTF_8);
+      position++;
+      entries.put(name, new Entry(mode, HEX.formatHex(content, position, position + 20)));
+      position += 20;
+    }
+    return entries;
+  }
+
+  private record Entry(int mode, String sha) {
+    boolean isTree() {
+      return (mode & TYPE_MASK) == TREE;
+    }
+  }
+}
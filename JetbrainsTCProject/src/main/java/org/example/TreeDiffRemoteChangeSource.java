@@ -0,0 +1,141 @@
+package org.example;
+
+import java.io.File;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Finds the remote changes by walking the commits of {@code origin/branchA} since the merge base and
+ * diffing each against its parent, reading the objects through a {@link GitObjectReader}. With a
+ * {@link GitObjectDatabase} no process is started at all.
+ * <p>
+ * The result matches {@link LocalGitRemoteChangeSource}: merge commits are skipped, as
+ * {@code git log --name-status} does, and only the trees on the way to the candidate paths are read.
+ */
+public class TreeDiffRemoteChangeSource implements RemoteChangeSource {
+  private final Function<File, ? extends GitObjectReader> readers;
+
+  /**
+   * @param readers returns the reader for a repository, for example {@code gitCmd::catFile} or a cached
+   *                {@link GitObjectDatabase} per repository
+   */
+  public TreeDiffRemoteChangeSource(Function<File, ? extends GitObjectReader> readers) {
+    this.readers = readers;
+  }
+
+  @Override
+  public Set<String> findModifiedFiles(RemoteChangeQuery query) {
+    var reader = readers.apply(query.localRepo());
+    var head = readCommit(reader, query.localHead());
+    var mergeBase = readCommit(reader, query.mergeBase());
+
+    var diff = new TreeDiff(reader, query.candidatePaths(), TreeDiff.directoriesOf(query.candidatePaths()));
+    var modifiedFiles = new HashSet<String>();
+    for (var commit: commitsBetween(reader, mergeBase, head)) {
+      if (commit.parents().size() != 1) continue;
+      var parent = readCommit(reader, commit.parents().get(0));
+      diff.diff(parent.tree(), commit.tree(), (path, status) -> {
+        if ("M".equals(status)) {
+          modifiedFiles.add(path);
+        }
+      });
+    }
+    return modifiedFiles;
+  }
+
+  /**
+   * Returns the commits reachable from {@code head} but not from {@code base}, like
+   * {@code git rev-list base..head}. Commits are visited newest first, and ancestors of {@code base} are
+   * marked uninteresting as they are reached; the walk stops as soon as only uninteresting commits are
+   * left to visit, so the history below the merge base is not read.
+   */
+  static List<GitCommit> commitsBetween(GitObjectReader reader, GitCommit base, GitCommit head) {
+    var walk = new RevisionWalk(reader);
+    walk.add(base, true);
+    walk.add(head, false);
+    return walk.run();
+  }
+
+  private static GitCommit readCommit(GitObjectReader reader, String name) {
+    var object = reader.read(name).orElseThrow(() -> new GitCommandException("Unknown revision: " + name));
+    // Annotated tags point at the commit through an "object" header.
+    for (int depth = 0; "tag".equals(object.type()) && depth < 10; depth++) {
+      var text = object.text();
+      var target = text.substring("object ".length(), text.indexOf('\n'));
+      object = reader.read(target).orElseThrow(() -> new GitCommandException("Unknown revision: " + target));
+    }
+    return GitCommit.parse(object);
+  }
+
+  private static final class RevisionWalk {
+    private final GitObjectReader reader;
+    private final PriorityQueue<GitCommit> queue =
+            new PriorityQueue<>(Comparator.comparingLong(GitCommit::commitTime).reversed());
+    private final Map<String, GitCommit> seen = new HashMap<>();
+    private final Set<String> queued = new HashSet<>();
+    private final Set<String> uninteresting = new HashSet<>();
+    private int interestingQueued;
+
+    private RevisionWalk(GitObjectReader reader) {
+      this.reader = reader;
+    }
+
+    private void add(GitCommit commit, boolean isUninteresting) {
+      if (seen.putIfAbsent(commit.sha(), commit) != null) {
+        if (isUninteresting) markUninteresting(commit.sha());
+        return;
+      }
+      if (isUninteresting) {
+        uninteresting.add(commit.sha());
+      }
+      else {
+        interestingQueued++;
+      }
+      queue.add(commit);
+      queued.add(commit.sha());
+    }
+
+    private List<GitCommit> run() {
+      var result = new ArrayList<GitCommit>();
+      while (interestingQueued > 0) {
+        var commit = queue.poll();
+        queued.remove(commit.sha());
+        boolean isUninteresting = uninteresting.contains(commit.sha());
+        if (!isUninteresting) {
+          interestingQueued--;
+          result.add(commit);
+        }
+        for (var parentSha: commit.parents()) {
+          if (!seen.containsKey(parentSha)) {
+            add(readCommit(reader, parentSha), isUninteresting);
+          }
+          else if (isUninteresting) {
+            markUninteresting(parentSha);
+          }
+        }
+      }
+      // With clock skew a commit can be reached from the base only after it was visited.
+      result.removeIf(commit -> uninteresting.contains(commit.sha()));
+      return result;
+    }
+
+    /**
+     * Marks the commit and the ancestors already seen uninteresting, like git's mark_parents_uninteresting.
+     */
+    private void markUninteresting(String sha) {
+      var pending = new ArrayDeque<String>();
+      pending.push(sha);
+      while (!pending.isEmpty()) {
+        var next = pending.pop();
+        if (!uninteresting.add(next)) continue;
+        if (queued.contains(next)) {
+          interestingQueued--;
+        }
+        var commit = seen.get(next);
+        if (commit != null) {
+          commit.parents().stream().filter(seen::containsKey).forEach(pending::push);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package org;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.example.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CommitFetcherTest {
+  private GithubClient githubClient;
+
+  private final String owner = "testOwner";
+  private final String repository = "testRepo";
+
+  @BeforeEach
+  void setUp() {
+    githubClient = mock(GithubClient.class);
+  }
+
+  @Test
+  void shouldFetchEveryCommitWithoutExceedingMaxInFlight() {
+    int maxInFlight = 4;
+    var inFlight = new AtomicInteger();
+    var maxObserved = new AtomicInteger();
+
+    doAnswer(invocation -> {
+      int current = inFlight.incrementAndGet();
+      maxObserved.accumulateAndGet(current, Math::max);
+      try {
+        Thread.sleep(20);
+      }
+      finally {
+        inFlight.decrementAndGet();
+      }
+      GHRequest request = invocation.getArgument(0);
+      return commitResponse(request.toString().substring(request.toString().lastIndexOf('/') + 1));
+    }).when(githubClient).send(any(GHRequest.class), any(TypeReference.class));
+
+    List<String> commitSHAs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      commitSHAs.add("commit" + i);
+    }
+
+    Map<String, List<File>> fetched = new ConcurrentHashMap<>();
+    new CommitFetcher(githubClient, maxInFlight).fetchFiles(owner, repository, commitSHAs, fetched::put);
+
+    assertEquals(new HashSet<>(commitSHAs), fetched.keySet());
+    assertEquals("commit7.txt", fetched.get("commit7").get(0).fileName);
+    assertTrue(maxObserved.get() <= maxInFlight);
+    assertTrue(maxObserved.get() > 1);
+  }
+
+  @Test
+  void shouldRethrowFirstFailure() {
+    when(githubClient.send(any(GHRequest.class), any(TypeReference.class)))
+            .thenThrow(new GHApiException("API call failed"));
+
+    var fetcher = new CommitFetcher(githubClient, 2);
+
+    GHApiException exception = assertThrows(GHApiException.class, () ->
+            fetcher.fetchFiles(owner, repository, List.of("commit1", "commit2", "commit3"), (sha, files) -> {}));
+
+    assertEquals("API call failed", exception.getMessage());
+  }
+
+  @Test
+  void shouldAnswerStoredCommitsWithoutRequests(@TempDir Path storeDir) {
+    String sha = "0123456789abcdef0123456789abcdef01234567";
+    doReturn(commitResponse(sha)).when(githubClient).send(any(GHRequest.class), any(TypeReference.class));
+
+    try (var store = new CommitStore(storeDir)) {
+      var fetcher = new CommitFetcher(githubClient).commitStore(store);
+
+      fetcher.fetchFiles(owner, repository, sha);
+      List<File> files = fetcher.fetchFiles(owner, repository, sha);
+
+      assertEquals(sha + ".txt", files.get(0).fileName);
+      assertEquals("modified", files.get(0).status);
+      verify(githubClient, times(1)).send(any(GHRequest.class), any(TypeReference.class));
+    }
+  }
+
+  @Test
+  void shouldReuseItsThreadsAcrossCalls() {
+    doAnswer(invocation -> commitResponse("commit")).when(githubClient).send(any(GHRequest.class), any(TypeReference.class));
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    try (var fetcher = new CommitFetcher(githubClient, 2)) {
+      for (int round = 0; round < 3; round++) {
+        fetcher.fetchFiles(owner, repository, List.of("a" + round, "b" + round, "c" + round),
+                (sha, files) -> threads.add(Thread.currentThread()));
+      }
+    }
+
+    assertTrue(threads.size() <= 2, threads.toString());
+  }
+
+  @Test
+  void shouldRejectNonPositiveMaxInFlight() {
+    assertThrows(IllegalArgumentException.class, () -> new CommitFetcher(githubClient, 0));
+  }
+
+  private GHResponse<GHGetCommitResponse> commitResponse(String sha) {
+    File file = new File();
+    file.fileName = sha + ".txt";
+    file.status = "modified";
+
+    GHGetCommitResponse commitData = new GHGetCommitResponse();
+    commitData.sha = sha;
+    commitData.files = List.of(file);
+
+    return new GHResponse<>(new GHPage<>(commitData, null, githubClient, new TypeReference<GHGetCommitResponse>() {}));
+  }
+}
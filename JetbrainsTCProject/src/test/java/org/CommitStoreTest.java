@@ -0,0 +1,102 @@
+package org;
+
+import org.example.CommitStore;
+import org.example.File;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommitStoreTest {
+
+  @TempDir
+  Path tempDir;
+
+  private static final String SHA_A = "0123456789abcdef0123456789abcdef01234567";
+  private static final String SHA_B = "fedcba9876543210fedcba9876543210fedcba98";
+
+  @Test
+  void shouldReturnEmptyForUnknownCommit() {
+    try (var store = new CommitStore(tempDir)) {
+      assertEquals(Optional.empty(), store.get(SHA_A));
+    }
+  }
+
+  @Test
+  void shouldStoreFileNamesAndStatuses() {
+    try (var store = new CommitStore(tempDir)) {
+      store.put(SHA_A, List.of(file("src/Main.java", "modified"), file("docs/\u00fcn\u00efcode.md", "added")));
+
+      var files = store.get(SHA_A).orElseThrow();
+
+      assertEquals(2, files.size());
+      assertEquals("src/Main.java", files.get(0).fileName);
+      assertEquals("modified", files.get(0).status);
+      assertEquals("docs/\u00fcn\u00efcode.md", files.get(1).fileName);
+      assertEquals("added", files.get(1).status);
+      assertEquals(Optional.empty(), store.get(SHA_B));
+    }
+  }
+
+  @Test
+  void shouldIgnoreInvalidShas() {
+    try (var store = new CommitStore(tempDir)) {
+      store.put("not-a-sha", List.of(file("a.txt", "modified")));
+
+      assertEquals(0, store.size());
+      assertEquals(Optional.empty(), store.get("not-a-sha"));
+    }
+  }
+
+  @Test
+  void shouldPersistAcrossReopenAndGrowIndex() {
+    try (var store = new CommitStore(tempDir)) {
+      for (int i = 0; i < 3000; i++) {
+        store.put(sha(i), List.of(file("file" + i + ".txt", "modified")));
+      }
+    }
+
+    try (var store = new CommitStore(tempDir)) {
+      assertEquals(3000, store.size());
+      for (int i = 0; i < 3000; i += 7) {
+        assertEquals("file" + i + ".txt", store.get(sha(i)).orElseThrow().get(0).fileName);
+      }
+    }
+  }
+
+  @Test
+  void shouldRebuildIndexAndDropTornEntry() throws Exception {
+    try (var store = new CommitStore(tempDir)) {
+      store.put(SHA_A, List.of(file("a.txt", "modified")));
+      store.put(SHA_B, List.of(file("b.txt", "removed")));
+    }
+    Files.delete(tempDir.resolve("commits.idx"));
+    Files.write(tempDir.resolve("commits.dat"), new byte[]{0, 0, 0, 100, 1, 2, 3}, StandardOpenOption.APPEND);
+
+    try (var store = new CommitStore(tempDir)) {
+      assertEquals(2, store.size());
+      assertEquals("b.txt", store.get(SHA_B).orElseThrow().get(0).fileName);
+
+      store.put(sha(1), new ArrayList<>());
+      assertEquals(List.of(), store.get(sha(1)).orElseThrow());
+    }
+  }
+
+  private static String sha(int i) {
+    return String.format("%08x", i * 2654435761L & 0xffffffffL) + "00000000000000000000000000000000";
+  }
+
+  private static File file(String fileName, String status) {
+    File file = new File();
+    file.fileName = fileName;
+    file.status = status;
+    return file;
+  }
+}
@@ -0,0 +1,123 @@
+package org;
+
+import org.example.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many detections of {@link FileChangesDetector} concurrently against a {@link FakeGitHubServer} and
+ * reports throughput and latency percentiles. The local side is answered by a fake git that reports
+ * every {@code candidateEvery}-th path of the repository as locally modified.
+ * <p>
+ * Run with {@code ./gradlew loadTest}; the settings are read from system properties of the same names,
+ * for example {@code -Dcommits=500 -Dconcurrency=16 -DlatencyMs=20}.
+ */
+class DetectionLoadHarness {
+
+  record Settings(int commits, int filesPerCommit, int candidateEvery, int detections, int concurrency,
+                         Duration latency, Duration jitter, double failureRate) {
+
+    static Settings fromSystemProperties() {
+      return new Settings(
+              Integer.getInteger("commits", 200),
+              Integer.getInteger("filesPerCommit", 20),
+              Integer.getInteger("candidateEvery", 10),
+              Integer.getInteger("detections", 50),
+              Integer.getInteger("concurrency", 8),
+              Duration.ofMillis(Integer.getInteger("latencyMs", 5)),
+              Duration.ofMillis(Integer.getInteger("jitterMs", 5)),
+              Double.parseDouble(System.getProperty("failureRate", "0")));
+    }
+  }
+
+  record Report(int detections, int failures, int requests, Duration elapsed, long p50Millis,
+                       long p99Millis, long maxMillis) {
+
+    double detectionsPerSecond() {
+      return detections / Math.max(elapsed.toNanos() / 1e9, 1e-9);
+    }
+
+    double requestsPerSecond() {
+      return requests / Math.max(elapsed.toNanos() / 1e9, 1e-9);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d detections (%d failed), %d requests in %d ms: %.1f detections/s, %.1f requests/s, "
+                      + "latency p50 %d ms, p99 %d ms, max %d ms",
+              detections, failures, requests, elapsed.toMillis(), detectionsPerSecond(), requestsPerSecond(),
+              p50Millis, p99Millis, maxMillis);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    var settings = Settings.fromSystemProperties();
+    System.out.println(settings);
+    System.out.println(run(settings));
+  }
+
+  static Report run(Settings settings) throws Exception {
+    try (var server = new FakeGitHubServer()) {
+      server.latency(settings.latency(), settings.jitter());
+      if (settings.failureRate() > 0) {
+        server.failures(settings.failureRate(), 429, 500, 502);
+      }
+      var repository = server.addRepository("owner", "repo", settings.commits(), settings.filesPerCommit());
+      var candidates = new StringBuilder();
+      for (int i = 0; i < repository.paths().size(); i += settings.candidateEvery()) {
+        candidates.append(repository.paths().get(i)).append('\n');
+      }
+
+      var githubClient = GithubClient.builder("load-test-token")
+              .baseUrl(server.baseUrl())
+              .rateLimiter(new GHRateLimiter())
+              .build();
+      var gitCmd = new FakeGitCmdExec(repository.mergeBase(), candidates.toString());
+      var detector = new FileChangesDetector(githubClient, gitCmd);
+
+      var latencies = new long[settings.detections()];
+      var failures = new AtomicInteger();
+      ExecutorService pool = Executors.newFixedThreadPool(settings.concurrency());
+      long start = System.nanoTime();
+      try {
+        var futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < settings.detections(); i++) {
+          int index = i;
+          futures.add(pool.submit(() -> {
+            long detectionStart = System.nanoTime();
+            try {
+              detector.detectFileChanges("owner", "repo", "/nonexistent/load-test-repo", "main", "feature");
+            }
+            catch (RuntimeException e) {
+              failures.incrementAndGet();
+            }
+            latencies[index] = System.nanoTime() - detectionStart;
+          }));
+        }
+        for (var future: futures) {
+          future.get();
+        }
+      }
+      finally {
+        pool.shutdown();
+      }
+      var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+      Arrays.sort(latencies);
+      return new Report(settings.detections(), failures.get(), server.requestCount(), elapsed,
+              percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[latencies.length - 1] / 1_000_000);
+    }
+  }
+
+  private static long percentile(long[] sorted, double fraction) {
+    int index = (int) Math.ceil(fraction * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000;
+  }
+}
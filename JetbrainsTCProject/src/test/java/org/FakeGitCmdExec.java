@@ -0,0 +1,44 @@
+package org;
+
+import org.example.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Answers the git commands of {@link FileChangesDetector} with fixed output instead of running git:
+ * merge-base with the given merge base and diff with the given paths, one per line. Shared by the tests,
+ * the load harness and the benchmarks.
+ */
+public class FakeGitCmdExec extends GitCmdExec {
+  private final String mergeBase;
+  private final String diffOutput;
+
+  public FakeGitCmdExec(String mergeBase, String diffOutput) {
+    this.mergeBase = mergeBase;
+    this.diffOutput = diffOutput;
+  }
+
+  @Override
+  public GitExecResult runCommand(File gitDirectory, List<String> command) {
+    return switch (command.get(1)) {
+      case "merge-base" -> new GitExecResult(mergeBase + "\n", "", 0);
+      case "diff" -> new GitExecResult(diffOutput, "", 0);
+      default -> throw new GitCommandException("Unexpected command: " + command);
+    };
+  }
+
+  @Override
+  public GitExecResult streamCommand(File gitDirectory, List<String> command, GitOutputConsumer consumer,
+                                     Duration timeout) {
+    if (!command.get(1).equals("diff")) {
+      throw new GitCommandException("Unexpected command: " + command);
+    }
+    var output = (command.contains("-z") ? diffOutput.replace('\n', '\0') : diffOutput).getBytes(StandardCharsets.UTF_8);
+    consumer.accept(output, 0, output.length);
+    consumer.finish();
+    return new GitExecResult("", "", 0);
+  }
+}
@@ -0,0 +1,456 @@
+package org;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An embedded GitHub REST API serving synthetic repositories, for tests that go through real HTTP. It
+ * implements listCommits (with {@code sha}, {@code since}, {@code path} and pagination), getCommit and
+ * compare, and sends {@code Link}, {@code ETag} and {@code X-RateLimit-*} headers like GitHub does.
+ * Responses are gzip compressed when the request accepts it.
+ * Latency, errors and a rate limit can be injected. Point a client at it with
+ * {@code GithubClient.builder(token).baseUrl(server.baseUrl())}.
+ */
+class FakeGitHubServer implements AutoCloseable {
+  private static final int DEFAULT_PER_PAGE = 30;
+  private static final int MAX_PER_PAGE = 100;
+  private static final Instant FIRST_COMMIT_DATE = Instant.parse("2025-01-01T00:00:00Z");
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+    var thread = new Thread(runnable, "fake-github");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final Map<String, SyntheticRepository> repositories = new ConcurrentHashMap<>();
+  private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+  private final AtomicInteger totalRequests = new AtomicInteger();
+  private final AtomicInteger activeRequests = new AtomicInteger();
+  private final AtomicInteger maxActiveRequests = new AtomicInteger();
+
+  private volatile Duration latency = Duration.ZERO;
+  private volatile Duration jitter = Duration.ZERO;
+  private volatile double failureRate;
+  private volatile int[] failureStatuses = {500};
+  private volatile String contentEncoding = "gzip";
+  private final Random failureRandom = new Random(42);
+
+  private int rateLimit = -1;
+  private Duration rateLimitWindow = Duration.ofHours(1);
+  private int rateLimitUsed;
+  private Instant rateLimitReset;
+
+  FakeGitHubServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.setExecutor(executor);
+    server.createContext("/", this::handle);
+    server.start();
+  }
+
+  String baseUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  /**
+   * Adds a repository whose default branch has {@code commits} commits after its merge base, each
+   * modifying {@code filesPerCommit} files. The files overlap between commits.
+   */
+  SyntheticRepository addRepository(String owner, String name, int commits, int filesPerCommit) {
+    var repository = new SyntheticRepository(owner, name, commits, filesPerCommit);
+    repositories.put(owner + "/" + name, repository);
+    return repository;
+  }
+
+  /**
+   * Delays every response by {@code latency} plus a uniformly distributed extra of up to {@code jitter}.
+   */
+  FakeGitHubServer latency(Duration latency, Duration jitter) {
+    this.latency = latency;
+    this.jitter = jitter;
+    return this;
+  }
+
+  /**
+   * Answers the given fraction of requests with one of the status codes instead, for example 429, 500 or
+   * 502. A 429 carries {@code Retry-After: 0}, so a rate-limit-aware client can retry at once.
+   */
+  FakeGitHubServer failures(double rate, int... statusCodes) {
+    this.failureStatuses = statusCodes;
+    this.failureRate = rate;
+    return this;
+  }
+
+  /**
+   * Allows {@code limit} requests per window and rejects the rest with a 403 and
+   * {@code X-RateLimit-Remaining: 0}, like the primary rate limit. 304 responses are free.
+   */
+  synchronized FakeGitHubServer rateLimit(int limit, Duration window) {
+    this.rateLimit = limit;
+    this.rateLimitWindow = window;
+    this.rateLimitUsed = 0;
+    this.rateLimitReset = null;
+    return this;
+  }
+
+  /**
+   * The encoding of the responses to requests that accept it, {@code gzip} or {@code deflate}, or null
+   * to never compress.
+   */
+  FakeGitHubServer contentEncoding(String contentEncoding) {
+    this.contentEncoding = contentEncoding;
+    return this;
+  }
+
+  int requestCount() {
+    return totalRequests.get();
+  }
+
+  /**
+   * The number of requests whose path starts with the prefix, such as {@code /repos/o/r/commits/}.
+   */
+  int requestCount(String pathPrefix) {
+    return requestCounts.entrySet().stream()
+            .filter(entry -> entry.getKey().startsWith(pathPrefix))
+            .mapToInt(entry -> entry.getValue().get())
+            .sum();
+  }
+
+  /**
+   * The largest number of requests the server was handling at the same time.
+   */
+  int maxConcurrentRequests() {
+    return maxActiveRequests.get();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    maxActiveRequests.accumulateAndGet(activeRequests.incrementAndGet(), Math::max);
+    try (exchange) {
+      var uri = exchange.getRequestURI();
+      totalRequests.incrementAndGet();
+      requestCounts.computeIfAbsent(uri.getPath(), path -> new AtomicInteger()).incrementAndGet();
+      delay();
+
+      int injected = injectedFailure();
+      if (injected > 0) {
+        if (injected == 429) {
+          exchange.getResponseHeaders().add("Retry-After", "0");
+        }
+        send(exchange, injected, Map.of("message", "Injected failure"), null);
+        return;
+      }
+
+      Response response;
+      try {
+        response = route(uri);
+      }
+      catch (IllegalArgumentException e) {
+        response = new Response(422, Map.of("message", e.getMessage()), null);
+      }
+      var etag = response.status() == 200 ? "\"" + Integer.toHexString(mapper.writeValueAsString(response.body()).hashCode()) + "\"" : null;
+      if (etag != null && etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+        exchange.getResponseHeaders().add("ETag", etag);
+        exchange.sendResponseHeaders(304, -1);
+        return;
+      }
+      if (!consumeRateLimit(exchange)) {
+        send(exchange, 403, Map.of("message", "API rate limit exceeded"), null);
+        return;
+      }
+      if (etag != null) {
+        exchange.getResponseHeaders().add("ETag", etag);
+      }
+      send(exchange, response.status(), response.body(), response.linkHeader());
+    }
+    finally {
+      activeRequests.decrementAndGet();
+    }
+  }
+
+  private Response route(URI uri) {
+    var segments = uri.getPath().split("/");
+    // "", "repos", owner, name, endpoint, ...
+    if (segments.length < 5 || !segments[1].equals("repos")) return notFound();
+    var repository = repositories.get(segments[2] + "/" + segments[3]);
+    if (repository == null) return notFound();
+    var params = queryParams(uri);
+
+    if (segments[4].equals("commits") && segments.length == 5) {
+      var since = params.containsKey("since") ? Instant.parse(params.get("since")) : Instant.MIN;
+      var path = params.get("path");
+      var commits = repository.commits.stream()
+              .filter(commit -> !commit.date().isBefore(since))
+              .filter(commit -> path == null || commit.files().containsKey(path))
+              .map(this::listItem)
+              .toList();
+      return page(uri, params, commits, null);
+    }
+    if (segments[4].equals("commits") && segments.length == 6) {
+      var commit = repository.commit(segments[5]);
+      if (commit == null) return notFound();
+      var body = new LinkedHashMap<String, Object>(listItem(commit));
+      body.put("files", files(commit.files()));
+      return new Response(200, body, null);
+    }
+    if (segments[4].equals("compare") && segments.length == 6) {
+      var range = segments[5].split("\\.\\.\\.");
+      var base = repository.commit(range[0]);
+      var head = repository.commit(range[1]);
+      if (base == null || head == null) return notFound();
+      var commits = new ArrayList<>(repository.commits.subList(repository.commits.indexOf(head), repository.commits.indexOf(base)));
+      Collections.reverse(commits);
+      var netFiles = new TreeMap<String, String>();
+      for (var commit: commits) {
+        commit.files().forEach((fileName, status) -> netFiles.merge(fileName, status, (old, next) -> old.equals("added") ? old : next));
+      }
+      var listItems = commits.stream().map(this::listItem).toList();
+      var body = new LinkedHashMap<String, Object>();
+      body.put("status", "ahead");
+      body.put("ahead_by", commits.size());
+      body.put("behind_by", 0);
+      body.put("total_commits", commits.size());
+      body.put("merge_base_commit", listItem(base));
+      body.put("files", files(netFiles));
+      return page(uri, params, listItems, body);
+    }
+    return notFound();
+  }
+
+  /**
+   * Returns one page of the items, either as the body itself or as the {@code commits} of the given body.
+   */
+  private Response page(URI uri, Map<String, String> params, List<?> items, Map<String, Object> body) {
+    int perPage = Math.min(MAX_PER_PAGE, Integer.parseInt(params.getOrDefault("per_page", String.valueOf(DEFAULT_PER_PAGE))));
+    int page = Integer.parseInt(params.getOrDefault("page", "1"));
+    int lastPage = Math.max(1, (items.size() + perPage - 1) / perPage);
+    var pageItems = items.subList(Math.min((page - 1) * perPage, items.size()), Math.min(page * perPage, items.size()));
+
+    var links = new ArrayList<String>();
+    if (page < lastPage) {
+      links.add(link(uri, params, page + 1, "next"));
+      links.add(link(uri, params, lastPage, "last"));
+    }
+    if (page > 1) {
+      links.add(link(uri, params, 1, "first"));
+      links.add(link(uri, params, page - 1, "prev"));
+    }
+    var linkHeader = links.isEmpty() ? null : String.join(", ", links);
+    if (body == null) return new Response(200, pageItems, linkHeader);
+    body.put("commits", pageItems);
+    return new Response(200, body, linkHeader);
+  }
+
+  private String link(URI uri, Map<String, String> params, int page, String rel) {
+    var query = new StringJoiner("&");
+    params.forEach((key, value) -> {
+      if (!key.equals("page")) {
+        query.add(key + "=" + URLEncoder.encode(value, StandardCharsets.UTF_8));
+      }
+    });
+    query.add("page=" + page);
+    return "<" + baseUrl() + uri.getRawPath() + "?" + query + ">; rel=\"" + rel + "\"";
+  }
+
+  private Map<String, Object> listItem(SyntheticCommit commit) {
+    var author = Map.of("name", "Developer", "email", "developer@example.com", "date", commit.date().toString());
+    var item = new LinkedHashMap<String, Object>();
+    item.put("sha", commit.sha());
+    item.put("commit", Map.of("author", author, "committer", author, "message", "Commit " + commit.sha()));
+    item.put("parents", commit.parent() == null ? List.of() : List.of(Map.of("sha", commit.parent())));
+    return item;
+  }
+
+  private static List<Map<String, Object>> files(Map<String, String> files) {
+    var result = new ArrayList<Map<String, Object>>();
+    files.forEach((fileName, status) -> result.add(Map.of("filename", fileName, "status", status,
+            "additions", 1, "deletions", 1, "changes", 2, "patch", "@@ -1 +1 @@\n-old\n+new\n")));
+    return result;
+  }
+
+  private static Response notFound() {
+    return new Response(404, Map.of("message", "Not Found"), null);
+  }
+
+  private void delay() {
+    long delay = latency.toMillis();
+    if (!jitter.isZero()) {
+      delay += ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1);
+    }
+    if (delay > 0) {
+      try {
+        Thread.sleep(delay);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private int injectedFailure() {
+    if (failureRate <= 0) return 0;
+    synchronized (failureRandom) {
+      if (failureRandom.nextDouble() >= failureRate) return 0;
+      return failureStatuses[failureRandom.nextInt(failureStatuses.length)];
+    }
+  }
+
+  private synchronized boolean consumeRateLimit(HttpExchange exchange) {
+    if (rateLimit < 0) return true;
+    var now = Instant.now();
+    if (rateLimitReset == null || !now.isBefore(rateLimitReset)) {
+      rateLimitReset = now.plus(rateLimitWindow);
+      rateLimitUsed = 0;
+    }
+    boolean allowed = rateLimitUsed < rateLimit;
+    if (allowed) {
+      rateLimitUsed++;
+    }
+    var headers = exchange.getResponseHeaders();
+    headers.add("X-RateLimit-Limit", String.valueOf(rateLimit));
+    headers.add("X-RateLimit-Remaining", String.valueOf(rateLimit - rateLimitUsed));
+    headers.add("X-RateLimit-Used", String.valueOf(rateLimitUsed));
+    headers.add("X-RateLimit-Reset", String.valueOf(rateLimitReset.getEpochSecond()));
+    return allowed;
+  }
+
+  private void send(HttpExchange exchange, int status, Object body, String linkHeader) throws IOException {
+    var bytes = mapper.writeValueAsBytes(body);
+    exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+    if (linkHeader != null) {
+      exchange.getResponseHeaders().add("Link", linkHeader);
+    }
+    var encoding = contentEncoding;
+    var accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+    if (encoding != null && accepted != null && accepted.contains(encoding)) {
+      var compressed = new ByteArrayOutputStream();
+      try (OutputStream out = encoding.equals("gzip") ? new GZIPOutputStream(compressed) : new DeflaterOutputStream(compressed)) {
+        out.write(bytes);
+      }
+      bytes = compressed.toByteArray();
+      exchange.getResponseHeaders().add("Content-Encoding", encoding);
+    }
+    exchange.sendResponseHeaders(status, bytes.length);
+    exchange.getResponseBody().write(bytes);
+  }
+
+  private static Map<String, String> queryParams(URI uri) {
+    var params = new LinkedHashMap<String, String>();
+    if (uri.getRawQuery() == null) return params;
+    for (var param: uri.getRawQuery().split("&")) {
+      int separator = param.indexOf('=');
+      var key = separator < 0 ? param : param.substring(0, separator);
+      var value = separator < 0 ? "" : param.substring(separator + 1);
+      params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+    }
+    return params;
+  }
+
+  private record Response(int status, Object body, String linkHeader) {}
+
+  record SyntheticCommit(String sha, String parent, Instant date, Map<String, String> files) {}
+
+  /**
+   * A linear history of {@code commits} commits on top of a merge base, newest first. Commit {@code i}
+   * modifies a window of the repository's paths; every tenth file of a commit is added instead.
+   */
+  static final class SyntheticRepository {
+    final String owner;
+    final String name;
+    private final List<SyntheticCommit> commits = new ArrayList<>();
+    private final Map<String, SyntheticCommit> bySha = new HashMap<>();
+    private final List<String> paths = new ArrayList<>();
+
+    private SyntheticRepository(String owner, String name, int commitCount, int filesPerCommit) {
+      this.owner = owner;
+      this.name = name;
+      int pathCount = Math.max(filesPerCommit, commitCount * filesPerCommit / 2);
+      for (int i = 0; i < pathCount; i++) {
+        paths.add("dir" + (i % 50) + "/sub" + (i % 7) + "/file" + i + ".txt");
+      }
+
+      var history = new ArrayList<SyntheticCommit>();
+      String parent = null;
+      for (int i = 0; i <= commitCount; i++) {
+        var sha = sha(owner + "/" + name + "#" + i);
+        var files = new TreeMap<String, String>();
+        if (i > 0) {
+          for (int j = 0; j < filesPerCommit; j++) {
+            files.put(paths.get((i * filesPerCommit / 2 + j) % pathCount), j % 10 == 9 ? "added" : "modified");
+          }
+        }
+        var commit = new SyntheticCommit(sha, parent, FIRST_COMMIT_DATE.plus(Duration.ofMinutes(i)), files);
+        history.add(commit);
+        bySha.put(sha, commit);
+        parent = sha;
+      }
+      Collections.reverse(history);
+      commits.addAll(history);
+    }
+
+    String head() {
+      return commits.get(0).sha();
+    }
+
+    String mergeBase() {
+      return commits.get(commits.size() - 1).sha();
+    }
+
+    List<String> paths() {
+      return Collections.unmodifiableList(paths);
+    }
+
+    /**
+     * The paths some commit after the merge base modified, which a detection should report for
+     * candidates among them.
+     */
+    Set<String> modifiedFiles() {
+      var modified = new TreeSet<String>();
+      for (var commit: commits) {
+        commit.files().forEach((fileName, status) -> {
+          if (status.equals("modified")) modified.add(fileName);
+        });
+      }
+      return modified;
+    }
+
+    private SyntheticCommit commit(String ref) {
+      if (ref.equals("main")) return commits.get(0);
+      return bySha.get(ref);
+    }
+
+    private static String sha(String seed) {
+      var random = new Random(seed.hashCode());
+      var sha = new StringBuilder(40);
+      for (int i = 0; i < 40; i++) {
+        sha.append(Character.forDigit(random.nextInt(16), 16));
+      }
+      return sha.toString();
+    }
+  }
+}
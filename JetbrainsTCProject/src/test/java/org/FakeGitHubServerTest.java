@@ -0,0 +1,325 @@
+package org;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.example.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FakeGitHubServerTest {
+  private FakeGitHubServer server;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = new FakeGitHubServer();
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.close();
+  }
+
+  @Test
+  void shouldDetectChangesOverHttp() {
+    var repository = server.addRepository("owner", "repo", 250, 4);
+    var candidates = repository.paths().subList(0, 40);
+    var githubClient = GithubClient.builder("test-token").baseUrl(server.baseUrl()).build();
+    var gitCmd = new FakeGitCmdExec(repository.mergeBase(), String.join("\n", candidates));
+
+    var changes = new FileChangesDetector(githubClient, gitCmd)
+            .detectFileChanges("owner", "repo", "/nonexistent/repo", "main", "feature");
+
+    var expected = new HashSet<>(candidates);
+    expected.retainAll(repository.modifiedFiles());
+    assertFalse(expected.isEmpty());
+    assertEquals(expected, changes);
+    // The merge base date and every commit, plus 3 pages of 100 for the 251 commits since the merge base.
+    int getCommitRequests = server.requestCount("/repos/owner/repo/commits/");
+    assertEquals(1 + 250, getCommitRequests);
+    assertEquals(3, server.requestCount("/repos/owner/repo/commits") - getCommitRequests);
+  }
+
+  @Test
+  void shouldMatchCommitWalkWithCompare() {
+    var repository = server.addRepository("owner", "repo", 30, 5);
+    var candidates = String.join("\n", repository.paths());
+    var githubClient = GithubClient.builder("test-token").baseUrl(server.baseUrl()).build();
+    var gitCmd = new FakeGitCmdExec(repository.mergeBase(), candidates);
+
+    var walked = new FileChangesDetector(githubClient, gitCmd)
+            .detectFileChanges("owner", "repo", "/nonexistent/repo", "main", "feature");
+    var compared = new FileChangesDetector(gitCmd, new ApiRemoteChangeSource(githubClient).useCompareApi(true))
+            .detectFileChanges("owner", "repo", "/nonexistent/repo", "main", "feature");
+
+    assertEquals(repository.modifiedFiles(), walked);
+    assertEquals(walked, compared);
+  }
+
+  @Test
+  void shouldSendLinkHeadersForEveryPage() {
+    server.addRepository("owner", "repo", 45, 1);
+    var githubClient = GithubClient.builder("test-token").baseUrl(server.baseUrl()).build();
+
+    var request = GHRequestBuilder.listCommits("owner", "repo").perPage(10).build();
+    var page = githubClient.send(request, new TypeReference<List<GHListCommitObject>>() {}).response;
+
+    assertEquals(5, page.lastPageNumber().orElseThrow());
+    var pages = page.fetchAllPages();
+    assertEquals(5, pages.size());
+    assertEquals(46, pages.stream().mapToInt(List::size).sum());
+  }
+
+  @Test
+  void shouldCapPagesInFlight() {
+    server.addRepository("owner", "repo", 120, 1);
+    server.latency(Duration.ofMillis(20), Duration.ZERO);
+    var githubClient = GithubClient.builder("test-token").baseUrl(server.baseUrl()).build();
+
+    var request = GHRequestBuilder.listCommits("owner", "repo").perPage(5).build();
+    var page = githubClient.send(request, new TypeReference<List<GHListCommitObject>>() {}).response;
+    var pages = page.fetchAllPages(3);
+
+    assertEquals(25, pages.size());
+    assertEquals(121, pages.stream().mapToInt(List::size).sum());
+    assertTrue(server.maxConcurrentRequests() <= 3, "max " + server.maxConcurrentRequests());
+  }
+
+  @Test
+  void shouldRetryInjectedRateLimitRejections() {
+    var repository = server.addRepository("owner", "repo", 5, 1);
+    server.failures(0.5, 429);
+    var githubClient = GithubClient.builder("test-token")
+            .baseUrl(server.baseUrl())
+            .rateLimiter(new GHRateLimiter(Clock.systemUTC(), 0.1, 20))
+            .build();
+
+    var request = GHRequestBuilder.getCommit("owner", "repo", repository.head()).build();
+    var commit = githubClient.send(request, new TypeReference<GHGetCommitResponse>() {}).response.getData();
+
+    assertEquals(repository.head(), commit.sha);
+  }
+
+  @Test
+  void shouldReportServerErrors() {
+    var repository = server.addRepository("owner", "repo", 5, 1);
+    server.failures(1.0, 502);
+    var githubClient = GithubClient.builder("test-token").baseUrl(server.baseUrl()).build();
+
+    var request = GHRequestBuilder.getCommit("owner", "repo", repository.head()).build();
+    var exception = assertThrows(GHApiException.class,
+            () -> githubClient.send(request, new TypeReference<GHGetCommitResponse>() {}));
+    assertTrue(exception.getMessage().contains("502"));
+  }
+
+  @Test
+  void shouldEnforceRateLimit() {
+    var repository = server.addRepository("owner", "repo", 5, 1);
+    server.rateLimit(2, Duration.ofHours(1));
+    var rateLimiter = new GHRateLimiter();
+    var limitedClient = GithubClient.builder("test-token").baseUrl(server.baseUrl()).rateLimiter(rateLimiter).build();
+    var githubClient = GithubClient.builder("test-token").baseUrl(server.baseUrl()).build();
+    var request = GHRequestBuilder.getCommit("owner", "repo", repository.head()).build();
+    var typeReference = new TypeReference<GHGetCommitResponse>() {};
+
+    limitedClient.send(request, typeReference);
+    assertEquals(2, rateLimiter.budget().limit());
+    assertEquals(1, rateLimiter.budget().remaining());
+    githubClient.send(request, typeReference);
+    var exception = assertThrows(GHApiException.class, () -> githubClient.send(request, typeReference));
+    assertTrue(exception.getMessage().contains("403"));
+  }
+
+  @Test
+  void shouldDecompressResponses() {
+    var repository = server.addRepository("owner", "repo", 5, 40);
+    var request = GHRequestBuilder.getCommit("owner", "repo", repository.head()).build();
+    var typeReference = new TypeReference<GHGetCommitResponse>() {};
+    var compressedMetrics = new InMemoryMetricsRegistry();
+    var plainMetrics = new InMemoryMetricsRegistry();
+    var compressedClient = GithubClient.builder("test-token").baseUrl(server.baseUrl()).metrics(compressedMetrics).build();
+    var plainClient = GithubClient.builder("test-token").baseUrl(server.baseUrl()).metrics(plainMetrics)
+            .compression(false).build();
+
+    var compressed = compressedClient.send(request, typeReference).response.getData();
+    var plain = plainClient.send(request, typeReference).response.getData();
+    server.contentEncoding("deflate");
+    var deflated = compressedClient.send(request, typeReference).response.getData();
+
+    assertEquals(40, plain.files.size());
+    assertEquals(plain.files.stream().map(file -> file.fileName).toList(),
+            compressed.files.stream().map(file -> file.fileName).toList());
+    assertEquals(plain.files.size(), deflated.files.size());
+    long plainBytes = plainMetrics.snapshot().counterTotal("github_response_bytes_total");
+    long compressedBytes = compressedMetrics.snapshot().counterTotal("github_response_bytes_total");
+    assertTrue(compressedBytes * 2 < plainBytes, compressedBytes + " vs " + plainBytes);
+  }
+
+  @Test
+  void shouldFailRequestsThatExceedTheTimeout() {
+    var repository = server.addRepository("owner", "repo", 5, 1);
+    server.latency(Duration.ofSeconds(2), Duration.ZERO);
+    var githubClient = GithubClient.builder("test-token").baseUrl(server.baseUrl())
+            .requestTimeout(Duration.ofMillis(100))
+            .build();
+    var request = GHRequestBuilder.getCommit("owner", "repo", repository.head()).build();
+
+    assertThrows(GHApiException.class, () -> githubClient.send(request, new TypeReference<GHGetCommitResponse>() {}));
+  }
+
+  @Test
+  void shouldCacheResponsesWithoutIgnoredFields() {
+    var repository = server.addRepository("owner", "repo", 5, 3);
+    var cache = new GHResponseCache();
+    var githubClient = GithubClient.builder("test-token").baseUrl(server.baseUrl()).responseCache(cache)
+            .ignoreFields(File.class, "patch")
+            .build();
+    var request = GHRequestBuilder.getCommit("owner", "repo", repository.head()).build();
+    var typeReference = new TypeReference<GHGetCommitResponse>() {};
+
+    var fetched = githubClient.send(request, typeReference).response.getData();
+    var revalidated = githubClient.send(request, typeReference).response.getData();
+
+    var files = cache.get(URI.create(server.baseUrl() + request.getUri())).body().get("files");
+    assertEquals(3, files.size());
+    files.forEach(file -> assertFalse(file.has("patch"), file.toString()));
+    assertEquals(fetched.files.stream().map(file -> file.fileName).toList(),
+            revalidated.files.stream().map(file -> file.fileName).toList());
+    assertEquals(2, server.requestCount("/repos/owner/repo/commits/"));
+  }
+
+  @Test
+  void shouldCoalesceConcurrentRequests() throws Exception {
+    var repository = server.addRepository("owner", "repo", 5, 3);
+    server.latency(Duration.ofMillis(300), Duration.ZERO);
+    var metrics = new InMemoryMetricsRegistry();
+    var githubClient = GithubClient.builder("test-token").baseUrl(server.baseUrl()).metrics(metrics)
+            .coalesceRequests(true).build();
+    var request = GHRequestBuilder.getCommit("owner", "repo", repository.head()).build();
+    var typeReference = new TypeReference<GHGetCommitResponse>() {};
+
+    var futures = new ArrayList<CompletableFuture<GHResponse<GHGetCommitResponse>>>();
+    for (int i = 0; i < 5; i++) {
+      futures.add(githubClient.sendAsync(request, typeReference));
+    }
+    var executor = Executors.newFixedThreadPool(2);
+    try {
+      var syncResults = executor.invokeAll(List.<Callable<GHResponse<GHGetCommitResponse>>>of(
+              () -> githubClient.send(request, typeReference), () -> githubClient.send(request, typeReference)));
+      var pages = new HashSet<GHPage<GHGetCommitResponse>>();
+      for (var future: futures) {
+        pages.add(future.get().response);
+      }
+      for (var result: syncResults) {
+        pages.add(result.get().response);
+      }
+
+      assertEquals(7, pages.size());
+      pages.forEach(page -> assertEquals(repository.head(), page.getData().sha));
+      assertEquals(1, server.requestCount());
+      assertEquals(6, metrics.snapshot().counterTotal("github_coalesced_requests_total"));
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    githubClient.send(request, typeReference);
+    assertEquals(2, server.requestCount());
+  }
+
+  @Test
+  void shouldReportFailureToEveryCoalescedCaller() {
+    var repository = server.addRepository("owner", "repo", 5, 1);
+    server.latency(Duration.ofMillis(200), Duration.ZERO).failures(1.0, 502);
+    var githubClient = GithubClient.builder("test-token").baseUrl(server.baseUrl()).coalesceRequests(true).build();
+    var request = GHRequestBuilder.getCommit("owner", "repo", repository.head()).build();
+    var typeReference = new TypeReference<GHGetCommitResponse>() {};
+
+    var first = githubClient.sendAsync(request, typeReference);
+    var second = githubClient.sendAsync(request, typeReference);
+
+    for (var future: List.of(first, second)) {
+      var exception = assertThrows(ExecutionException.class, future::get);
+      assertInstanceOf(GHApiException.class, exception.getCause());
+      assertTrue(exception.getCause().getMessage().contains("502"));
+    }
+    assertEquals(1, server.requestCount());
+  }
+
+  @Test
+  void shouldCancelCoalescedRequestWhenEveryCallerCancels() throws Exception {
+    var repository = server.addRepository("owner", "repo", 5, 1);
+    server.latency(Duration.ofMillis(300), Duration.ZERO);
+    var githubClient = GithubClient.builder("test-token").baseUrl(server.baseUrl()).coalesceRequests(true).build();
+    var request = GHRequestBuilder.getCommit("owner", "repo", repository.head()).build();
+    var typeReference = new TypeReference<GHGetCommitResponse>() {};
+
+    var cancelled = githubClient.sendAsync(request, typeReference);
+    var kept = githubClient.sendAsync(request, typeReference);
+    cancelled.cancel(true);
+    assertEquals(repository.head(), kept.get().response.getData().sha);
+    assertEquals(1, server.requestCount());
+
+    var abandoned = List.of(githubClient.sendAsync(request, typeReference), githubClient.sendAsync(request, typeReference));
+    abandoned.forEach(future -> future.cancel(true));
+    assertEquals(repository.head(), githubClient.send(request, typeReference).response.getData().sha);
+    assertTrue(abandoned.stream().allMatch(CompletableFuture::isCancelled));
+  }
+
+  @Test
+  void shouldKeepWaitersWhenTheSendingCallerIsInterrupted() throws Exception {
+    var repository = server.addRepository("owner", "repo", 5, 1);
+    server.latency(Duration.ofMillis(500), Duration.ZERO);
+    var githubClient = GithubClient.builder("test-token").baseUrl(server.baseUrl()).coalesceRequests(true).build();
+    var request = GHRequestBuilder.getCommit("owner", "repo", repository.head()).build();
+    var typeReference = new TypeReference<GHGetCommitResponse>() {};
+
+    var sendingFailure = new CompletableFuture<Throwable>();
+    var sender = new Thread(() -> {
+      try {
+        githubClient.send(request, typeReference);
+        sendingFailure.complete(null);
+      }
+      catch (GHApiException e) {
+        sendingFailure.complete(Thread.currentThread().isInterrupted() ? e : null);
+      }
+    });
+    sender.start();
+    while (server.requestCount() == 0) {
+      Thread.sleep(10);
+    }
+    var waiting = githubClient.sendAsync(request, typeReference);
+    sender.interrupt();
+
+    assertInstanceOf(InterruptedException.class, sendingFailure.get(5, TimeUnit.SECONDS).getCause());
+    assertEquals(repository.head(), waiting.get(5, TimeUnit.SECONDS).response.getData().sha);
+    assertEquals(2, server.requestCount());
+  }
+
+  @Test
+  void shouldReportLoadTestLatencies() throws Exception {
+    var settings = new DetectionLoadHarness.Settings(20, 3, 5, 8, 4, Duration.ZERO, Duration.ofMillis(2), 0);
+
+    var report = DetectionLoadHarness.run(settings);
+
+    assertEquals(8, report.detections());
+    assertEquals(0, report.failures());
+    assertTrue(report.requests() >= 8 * 22);
+    assertTrue(report.p50Millis() <= report.p99Millis());
+    assertTrue(report.p99Millis() <= report.maxMillis());
+  }
+}
@@ -4,9 +4,12 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import org.example.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatcher;
 import org.mockito.Mockito;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -34,10 +37,7 @@ public class FileDetectorChangesTest {
   @Test
   void shouldReturnEmptySetOfFileChanges() {
     when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd -> cmd.contains("merge-base") && cmd.contains(branchB) && cmd.contains("origin/" + branchA)))).thenReturn(new GitExecResult(commonCommitSha, "", 0));
-    when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd ->
-            cmd.contains("diff") && cmd.contains("--name-only"))
-            ))
-            .thenReturn(new GitExecResult("", "", 0));
+    stubNulTerminatedOutput(cmd -> cmd.contains("diff") && cmd.contains("--name-only"), "");
 
     mockGitHubCommitResponse(commonCommitSha);
     mockGitHubListCommitsResponse(List.of());
@@ -53,8 +53,7 @@ public class FileDetectorChangesTest {
     when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd -> cmd.contains("merge-base"))))
             .thenReturn(new GitExecResult(commonCommitSha + "\n", "", 0));
 
-    when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd -> cmd.contains("diff"))))
-            .thenReturn(new GitExecResult(modifiedFile + "\n", "", 0));
+    stubNulTerminatedOutput(cmd -> cmd.contains("diff"), modifiedFile + "\n");
 
     mockGitHubCommitResponse(commonCommitSha);
 
@@ -92,8 +91,7 @@ public class FileDetectorChangesTest {
     when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd -> cmd.contains("merge-base"))))
             .thenReturn(new GitExecResult(commonCommitSha + "\n", "", 0));
 
-    when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd -> cmd.contains("diff"))))
-            .thenReturn(new GitExecResult(String.join("\n", localModifiedFiles) + "\n", "", 0));
+    stubNulTerminatedOutput(cmd -> cmd.contains("diff"), String.join("\n", localModifiedFiles) + "\n");
 
     mockGitHubCommitResponse(commonCommitSha);
 
@@ -121,8 +119,7 @@ public class FileDetectorChangesTest {
     when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd -> cmd.contains("merge-base"))))
             .thenReturn(new GitExecResult(commonCommitSha + "\n", "", 0));
 
-    when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd -> cmd.contains("diff"))))
-            .thenReturn(new GitExecResult(String.join("\n", localModifiedFiles) + "\n", "", 0));
+    stubNulTerminatedOutput(cmd -> cmd.contains("diff"), String.join("\n", localModifiedFiles) + "\n");
 
     GHListCommitObject commit1 = new GHListCommitObject();
     commit1.sha = "commit1sha";
@@ -156,8 +153,7 @@ public class FileDetectorChangesTest {
     when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd -> cmd.contains("merge-base"))))
             .thenReturn(new GitExecResult(commonCommitSha + "\n", "", 0));
 
-    when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd -> cmd.contains("diff"))))
-            .thenReturn(new GitExecResult(String.join("\n", localModifiedFiles) + "\n", "", 0));
+    stubNulTerminatedOutput(cmd -> cmd.contains("diff"), String.join("\n", localModifiedFiles) + "\n");
 
     GHListCommitObject commit = new GHListCommitObject();
     commit.sha = "commitsha";
@@ -195,8 +191,7 @@ public class FileDetectorChangesTest {
     when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd -> cmd.contains("merge-base"))))
             .thenReturn(new GitExecResult(commonCommitSha + "\n", "", 0));
 
-    when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd -> cmd.contains("diff"))))
-            .thenReturn(new GitExecResult("file.txt\n", "", 0));
+    stubNulTerminatedOutput(cmd -> cmd.contains("diff"), "file.txt\n");
 
     when(githubClient.send(any(GHRequest.class), any(TypeReference.class)))
             .thenThrow(new GHApiException("API call failed"));
@@ -205,6 +200,211 @@ public class FileDetectorChangesTest {
             detector.detectFileChanges(owner, repository, localRepoPath, branchA, branchB));
   }
 
+  @Test
+  void shouldDetectModifiedFilesUsingCompareApi() {
+    String modifiedFile = "src/main/java/example/App.java";
+    String addedFile = "src/main/java/example/NewFile.java";
+    String localOnlyFile = "pom.xml";
+
+    when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd -> cmd.contains("merge-base"))))
+            .thenReturn(new GitExecResult(commonCommitSha + "\n", "", 0));
+
+    stubNulTerminatedOutput(cmd -> cmd.contains("diff"),
+            String.join("\n", modifiedFile, addedFile, localOnlyFile) + "\n");
+
+    GHCompareResponse comparison = new GHCompareResponse();
+    comparison.files = createFiles(Map.of(modifiedFile, "modified", addedFile, "added"));
+    mockGitHubCompareResponse(comparison);
+
+    detector = new FileChangesDetector(gitCmd, new ApiRemoteChangeSource(githubClient).useCompareApi(true));
+    Set<String> modifiedFiles = detector.detectFileChanges(owner, repository, localRepoPath, branchA, branchB);
+
+    assertEquals(Set.of(modifiedFile), modifiedFiles);
+    verify(githubClient, never()).send(argThat(req -> req.toString().contains("/commits")), any(TypeReference.class));
+  }
+
+  @Test
+  void shouldFallBackToCommitWalkWhenCompareResultIsTruncated() {
+    String modifiedFile = "src/main/java/example/App.java";
+
+    when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd -> cmd.contains("merge-base"))))
+            .thenReturn(new GitExecResult(commonCommitSha + "\n", "", 0));
+
+    stubNulTerminatedOutput(cmd -> cmd.contains("diff"), modifiedFile + "\n");
+
+    Map<String, String> truncatedFiles = new HashMap<>();
+    for (int i = 0; i < 300; i++) {
+      truncatedFiles.put("generated/File" + i + ".java", "modified");
+    }
+
+    GHListCommitObject commit = new GHListCommitObject();
+    commit.sha = "commitsha";
+
+    GHCompareResponse comparison = new GHCompareResponse();
+    comparison.files = createFiles(truncatedFiles);
+    comparison.commits = List.of(commit);
+    mockGitHubCompareResponse(comparison);
+
+    mockGitHubGetCommitResponse(commit.sha, modifiedFile, "modified");
+
+    detector = new FileChangesDetector(gitCmd, new ApiRemoteChangeSource(githubClient).useCompareApi(true));
+    Set<String> modifiedFiles = detector.detectFileChanges(owner, repository, localRepoPath, branchA, branchB);
+
+    assertEquals(Set.of(modifiedFile), modifiedFiles);
+  }
+
+  @Test
+  void shouldDetectModifiedFilesFromLocalCommitLog() {
+    String modifiedFile = "src/main/java/example/App.java";
+    String revertedFile = "src/main/java/example/Reverted.java";
+    String addedFile = "src/main/java/example/NewFile.java";
+
+    when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd -> cmd.contains("merge-base"))))
+            .thenReturn(new GitExecResult(commonCommitSha + "\n", "", 0));
+
+    stubNulTerminatedOutput(cmd -> cmd.contains("diff"),
+            String.join("\n", modifiedFile, revertedFile, addedFile) + "\n");
+
+    stubNulTerminatedOutput(cmd -> cmd.contains("log") && cmd.contains(commonCommitSha + "..origin/" + branchA),
+            String.join("\n", "M", modifiedFile, "A", addedFile, "", "M", revertedFile,
+                    "M", "src/main/java/example/RemoteOnly.java") + "\n");
+
+    detector = new FileChangesDetector(gitCmd, new LocalGitRemoteChangeSource(gitCmd));
+    Set<String> modifiedFiles = detector.detectFileChanges(owner, repository, localRepoPath, branchA, branchB);
+
+    assertEquals(Set.of(modifiedFile, revertedFile), modifiedFiles);
+    verifyNoInteractions(githubClient);
+  }
+
+  @Test
+  void shouldDetectModifiedFilesFromLocalDiff() {
+    String modifiedFile = "src/main/java/example/App.java";
+    String localOnlyFile = "pom.xml";
+
+    when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd -> cmd.contains("merge-base"))))
+            .thenReturn(new GitExecResult(commonCommitSha + "\n", "", 0));
+
+    stubNulTerminatedOutput(cmd -> cmd.contains("diff") && cmd.contains(branchB),
+            String.join("\n", modifiedFile, localOnlyFile) + "\n");
+
+    stubNulTerminatedOutput(cmd -> cmd.contains("diff") && cmd.contains("origin/" + branchA), modifiedFile + "\n");
+
+    detector = new FileChangesDetector(gitCmd, new LocalGitRemoteChangeSource(gitCmd).perCommit(false));
+    Set<String> modifiedFiles = detector.detectFileChanges(owner, repository, localRepoPath, branchA, branchB);
+
+    assertEquals(Set.of(modifiedFile), modifiedFiles);
+    verifyNoInteractions(githubClient);
+  }
+
+  @Test
+  void shouldDetectChangesOfManyBranchPairsFetchingEachCommitOnce() {
+    String sharedFile = "src/main/java/example/App.java";
+    String otherFile = "src/main/java/example/Other.java";
+    BranchPair first = new BranchPair(branchA, "feature-1");
+    BranchPair second = new BranchPair(branchA, "feature-2");
+
+    when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd -> cmd.contains("merge-base"))))
+            .thenReturn(new GitExecResult(commonCommitSha + "\n", "", 0));
+    stubNulTerminatedOutput(cmd -> cmd.contains("diff") && cmd.contains("feature-1"), sharedFile + "\n");
+    stubNulTerminatedOutput(cmd -> cmd.contains("diff") && cmd.contains("feature-2"), sharedFile + "\n" + otherFile + "\n");
+
+    GHListCommitObject commit1 = new GHListCommitObject();
+    commit1.sha = "commit1sha";
+    GHListCommitObject commit2 = new GHListCommitObject();
+    commit2.sha = "commit2sha";
+
+    mockGitHubCommitResponse(commonCommitSha);
+    mockGitHubListCommitsResponse(List.of(commit1, commit2));
+    mockGitHubGetCommitResponse(commit1.sha, Map.of(sharedFile, "modified"));
+    mockGitHubGetCommitResponse(commit2.sha, Map.of(otherFile, "modified"));
+
+    Map<BranchPair, Set<String>> modifiedFiles = detector.detectFileChanges(owner, repository, localRepoPath,
+            List.of(first, second));
+
+    assertEquals(Set.of(sharedFile), modifiedFiles.get(first));
+    assertEquals(Set.of(sharedFile, otherFile), modifiedFiles.get(second));
+    verify(githubClient, times(1)).send(argThat(req -> req.toString().contains("/commits?")), any(TypeReference.class));
+    verify(githubClient, times(1)).send(argThat(req -> req.toString().contains("/commits/" + commit1.sha)), any(TypeReference.class));
+    verify(githubClient, times(1)).send(argThat(req -> req.toString().contains("/commits/" + commit2.sha)), any(TypeReference.class));
+  }
+
+  @Test
+  void shouldQueryCandidatePathsWhenTheyAreFewerThanRemoteCommits() {
+    String modifiedFile = "src/main/java/example/App.java";
+    String untouchedFile = "src/main/java/example/Untouched.java";
+
+    when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd -> cmd.contains("merge-base"))))
+            .thenReturn(new GitExecResult(commonCommitSha + "\n", "", 0));
+    stubNulTerminatedOutput(cmd -> cmd.contains("diff"), modifiedFile + "\n" + untouchedFile + "\n");
+
+    mockGitHubCommitResponse(commonCommitSha);
+    mockGitHubCommitCountEstimate(500);
+
+    GHListCommitObject addingCommit = new GHListCommitObject();
+    addingCommit.sha = "addingcommit";
+    GHListCommitObject modifyingCommit = new GHListCommitObject();
+    modifyingCommit.sha = "modifyingcommit";
+    GHListCommitObject laterCommit = new GHListCommitObject();
+    laterCommit.sha = "latercommit";
+    mockGitHubPathQueryResponse(modifiedFile, List.of(addingCommit, modifyingCommit, laterCommit));
+    mockGitHubPathQueryResponse(untouchedFile, List.of());
+    mockGitHubGetCommitResponse(addingCommit.sha, modifiedFile, "added");
+    mockGitHubGetCommitResponse(modifyingCommit.sha, modifiedFile, "modified");
+
+    detector = new FileChangesDetector(gitCmd, new ApiRemoteChangeSource(githubClient).planQueries(true));
+    Set<String> modifiedFiles = detector.detectFileChanges(owner, repository, localRepoPath, branchA, branchB);
+
+    assertEquals(Set.of(modifiedFile), modifiedFiles);
+    verify(githubClient, never()).send(argThat(req -> req.toString().contains("per_page=100")
+            && !req.toString().contains("path=")), any(TypeReference.class));
+    verify(githubClient, never()).send(argThat(req -> req.toString().contains("/commits/" + laterCommit.sha)),
+            any(TypeReference.class));
+  }
+
+  @Test
+  void shouldWalkCommitsWhenCandidatePathsOutnumberThem() {
+    String modifiedFile = "src/main/java/example/App.java";
+    List<String> localFiles = new ArrayList<>();
+    localFiles.add(modifiedFile);
+    for (int i = 0; i < 10; i++) {
+      localFiles.add("generated/File" + i + ".java");
+    }
+
+    when(gitCmd.runCommand(any(java.io.File.class), argThat(cmd -> cmd.contains("merge-base"))))
+            .thenReturn(new GitExecResult(commonCommitSha + "\n", "", 0));
+    stubNulTerminatedOutput(cmd -> cmd.contains("diff"), String.join("\n", localFiles) + "\n");
+
+    GHListCommitObject commit = new GHListCommitObject();
+    commit.sha = "onlycommit";
+    mockGitHubCommitResponse(commonCommitSha);
+    mockGitHubListCommitsResponse(List.of(commit));
+    mockGitHubGetCommitResponse(commit.sha, modifiedFile, "modified");
+
+    detector = new FileChangesDetector(gitCmd, new ApiRemoteChangeSource(githubClient).planQueries(true));
+    Set<String> modifiedFiles = detector.detectFileChanges(owner, repository, localRepoPath, branchA, branchB);
+
+    assertEquals(Set.of(modifiedFile), modifiedFiles);
+    verify(githubClient, never()).sendAsync(any(GHRequest.class), any(TypeReference.class));
+  }
+
+  private void mockGitHubCommitCountEstimate(int commitCount) {
+    String lastPage = "<https://api.github.com/repos/" + owner + "/" + repository + "/commits?per_page=1&page="
+            + commitCount + ">; rel=\"last\"";
+    GHPage<List<GHListCommitObject>> page = new GHPage<>(List.of(new GHListCommitObject()), lastPage, githubClient,
+            new TypeReference<List<GHListCommitObject>>() {});
+    doReturn(new GHResponse<>(page)).when(githubClient)
+            .send(argThat(req -> req.toString().contains("/commits?") && req.toString().endsWith("per_page=1")),
+                    any(TypeReference.class));
+  }
+
+  private void mockGitHubPathQueryResponse(String path, List<GHListCommitObject> commits) {
+    GHPage<List<GHListCommitObject>> page = new GHPage<>(commits, null, githubClient,
+            new TypeReference<List<GHListCommitObject>>() {});
+    String encodedPath = java.net.URLEncoder.encode(path, java.nio.charset.StandardCharsets.UTF_8);
+    doReturn(CompletableFuture.completedFuture(new GHResponse<>(page))).when(githubClient)
+            .sendAsync(argThat(req -> req.toString().contains("path=" + encodedPath)), any(TypeReference.class));
+  }
+
   void mockGitHubCommitResponse(String commitSHA) {
     GHGetCommitResponse commitResponse = new GHGetCommitResponse();
     commitResponse.sha = commitSHA;
@@ -212,9 +412,7 @@ public class FileDetectorChangesTest {
     commitResponse.commit.author = new User();
     commitResponse.commit.author.date = "2023-01-01T12:00:00Z";
 
-    GHPage<GHGetCommitResponse> page = (GHPage<GHGetCommitResponse>)mock(GHPage.class);
-    when(page.getData()).thenReturn(commitResponse);
-    when(page.hasNext()).thenReturn(false);
+    GHPage<GHGetCommitResponse> page = new GHPage<>(commitResponse, null, githubClient, new TypeReference<GHGetCommitResponse>() {});
 
     var response = new GHResponse<>(page);
     doReturn(response).when(githubClient)
@@ -222,15 +420,22 @@ public class FileDetectorChangesTest {
   }
 
   private void mockGitHubListCommitsResponse(List<GHListCommitObject> commits) {
-    GHPage<List<GHListCommitObject>> page = (GHPage<List<GHListCommitObject>>) mock(GHPage.class);
-    when(page.getData()).thenReturn(commits);
-    when(page.hasNext()).thenReturn(false);
+    GHPage<List<GHListCommitObject>> page = new GHPage<>(commits, null, githubClient, new TypeReference<List<GHListCommitObject>>() {});
 
     GHResponse<List<GHListCommitObject>> response = new GHResponse<>(page);
     doReturn(response).when(githubClient)
             .send(argThat(req -> req.toString().contains("/commits?")), any(TypeReference.class));
   }
 
+  private void mockGitHubCompareResponse(GHCompareResponse comparison) {
+    GHPage<GHCompareResponse> page = new GHPage<>(comparison, null, githubClient, new TypeReference<GHCompareResponse>() {});
+
+    GHResponse<GHCompareResponse> response = new GHResponse<>(page);
+    doReturn(response).when(githubClient)
+            .send(argThat(req -> req.toString().contains("/compare/" + commonCommitSha + "..." + branchA)),
+                    any(TypeReference.class));
+  }
+
   private void mockGitHubGetCommitResponse(String commitSha, String fileName, String status) {
     mockGitHubGetCommitResponse(commitSha, Map.of(fileName, status));
   }
@@ -238,7 +443,16 @@ public class FileDetectorChangesTest {
   private void mockGitHubGetCommitResponse(String commitSha, Map<String, String> fileStatuses) {
     GHGetCommitResponse commitData = new GHGetCommitResponse();
     commitData.sha = commitSha;
+    commitData.files = createFiles(fileStatuses);
+
+    GHPage<GHGetCommitResponse> page = new GHPage<>(commitData, null, githubClient, new TypeReference<GHGetCommitResponse>() {});
+
+    GHResponse<GHGetCommitResponse> response = new GHResponse<>(page);
+    doReturn(response).when(githubClient).send(argThat(req -> req.toString().contains("/commits/" + commitSha)),
+            any(TypeReference.class));
+  }
 
+  private List<File> createFiles(Map<String, String> fileStatuses) {
     List<File> files = new ArrayList<>();
     for (Map.Entry<String, String> entry : fileStatuses.entrySet()) {
       File file = new File();
@@ -246,15 +460,21 @@ public class FileDetectorChangesTest {
       file.status = entry.getValue();
       files.add(file);
     }
+    return files;
+  }
 
-    commitData.files = files;
-
-    GHPage<GHGetCommitResponse> page = mock(GHPage.class);
-    when(page.getData()).thenReturn(commitData);
-    when(page.hasNext()).thenReturn(false);
-
-    GHResponse<GHGetCommitResponse> response = new GHResponse<>(page);
-    doReturn(response).when(githubClient).send(argThat(req -> req.toString().contains("/commits/" + commitSha)),
-            any(TypeReference.class));
+  /**
+   * Answers the streamed {@code git diff -z} of the local changes with the paths of {@code output}, one
+   * per line.
+   */
+  private void stubNulTerminatedOutput(ArgumentMatcher<List<String>> command, String output) {
+    when(gitCmd.streamCommand(any(java.io.File.class), argThat(command), any(GitOutputConsumer.class), any()))
+            .thenAnswer(invocation -> {
+              GitOutputConsumer consumer = invocation.getArgument(2);
+              var bytes = output.replace('\n', '\0').getBytes(StandardCharsets.UTF_8);
+              consumer.accept(bytes, 0, bytes.length);
+              consumer.finish();
+              return new GitExecResult("", "", 0);
+            });
   }
 }
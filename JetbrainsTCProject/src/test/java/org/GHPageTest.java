@@ -0,0 +1,154 @@
+package org;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.example.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class GHPageTest {
+  private static final String URL = "https://api.github.com/repos/owner/repo/commits";
+
+  private GithubClient githubClient;
+  private final TypeReference<List<String>> typeReference = new TypeReference<List<String>>() {};
+
+  @BeforeEach
+  void setUp() {
+    githubClient = mock(GithubClient.class);
+  }
+
+  @Test
+  void shouldStreamElementsOfAllPagesInOrder() {
+    var firstPage = page(List.of("c1", "c2"), 2);
+    mockPage(2, List.of("c3"), 3);
+    mockPage(3, List.of("c4", "c5"), null);
+
+    var elements = firstPage.stream(commits -> commits).collect(Collectors.toList());
+
+    assertEquals(List.of("c1", "c2", "c3", "c4", "c5"), elements);
+    assertEquals(List.of("c1", "c2"), firstPage.getData());
+  }
+
+  @Test
+  void shouldIterateOverSinglePageWithoutRequests() {
+    var firstPage = page(List.of("c1"), null);
+
+    var elements = new ArrayList<String>();
+    firstPage.iterator(commits -> commits).forEachRemaining(elements::add);
+
+    assertEquals(List.of("c1"), elements);
+    verifyNoInteractions(githubClient);
+  }
+
+  @Test
+  void shouldNotFetchPagesBeyondPrefetchDepthWhenShortCircuited() {
+    var firstPage = page(List.of("c1", "c2"), 2);
+    mockPage(2, List.of("c3"), 3);
+    mockPage(3, List.of("c4"), 4);
+    mockPage(4, List.of("c5"), null);
+
+    try (var stream = firstPage.stream(commits -> commits, 1)) {
+      assertEquals("c1", stream.findFirst().orElseThrow());
+    }
+
+    verify(githubClient).sendAsync(argThat(req -> req.toString().endsWith("page=2")), any(TypeReference.class));
+    verify(githubClient, never()).sendAsync(argThat(req -> req.toString().endsWith("page=3")), any(TypeReference.class));
+  }
+
+  @Test
+  void shouldFetchPagesLazilyWithoutPrefetch() {
+    var firstPage = page(List.of("c1"), 2);
+    mockPage(2, List.of("c2"), null);
+
+    var iterator = firstPage.iterator(commits -> commits, 0);
+    assertEquals("c1", iterator.next());
+    verifyNoInteractions(githubClient);
+
+    assertEquals("c2", iterator.next());
+    assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  void shouldPropagatePageFetchFailure() {
+    var firstPage = page(List.of("c1"), 2);
+    when(githubClient.sendAsync(any(GHRequest.class), any(TypeReference.class)))
+            .thenReturn(CompletableFuture.failedFuture(new GHApiException("API call failed")));
+
+    var iterator = firstPage.iterator(commits -> commits);
+    assertEquals("c1", iterator.next());
+
+    assertThrows(GHApiException.class, iterator::hasNext);
+  }
+
+  @Test
+  void shouldParseLastPageNumber() {
+    var linkHeader = "<" + URL + "?per_page=100&page=2>; rel=\"next\", <" + URL + "?per_page=100&page=7>; rel=\"last\"";
+    var firstPage = new GHPage<>(List.of("c1"), linkHeader, githubClient, typeReference);
+
+    assertTrue(firstPage.hasNext());
+    assertEquals(7, firstPage.lastPageNumber().getAsInt());
+    assertTrue(page(List.of("c1"), 2).lastPageNumber().isEmpty());
+  }
+
+  @Test
+  void shouldFetchRemainingPagesConcurrentlyWhenLastPageIsKnown() {
+    var linkHeader = "<" + URL + "?page=2>; rel=\"next\", <" + URL + "?page=4>; rel=\"last\"";
+    var firstPage = new GHPage<>(List.of("c1"), linkHeader, githubClient, typeReference);
+    var page3 = new CompletableFuture<GHResponse<List<String>>>();
+    mockPage(2, List.of("c2"), 3);
+    doReturn(page3).when(githubClient)
+            .sendAsync(argThat(req -> req.toString().endsWith("page=3")), any(TypeReference.class));
+    mockPage(4, List.of("c4"), null);
+
+    var page4RequestedFirst = CompletableFuture.supplyAsync(() -> {
+      try {
+        verify(githubClient, timeout(1000)).sendAsync(argThat(req -> req.toString().endsWith("page=4")), any(TypeReference.class));
+        return true;
+      }
+      catch (AssertionError e) {
+        return false;
+      }
+      finally {
+        page3.complete(new GHResponse<>(page(List.of("c3"), 4)));
+      }
+    });
+
+    assertEquals(List.of(List.of("c1"), List.of("c2"), List.of("c3"), List.of("c4")), firstPage.fetchAllPages());
+    assertTrue(page4RequestedFirst.join());
+  }
+
+  @Test
+  void shouldFetchRemainingPagesSequentiallyWithoutLastLink() {
+    var firstPage = page(List.of("c1"), 2);
+    mockPage(2, List.of("c2"), 3);
+    mockPage(3, List.of("c3"), null);
+
+    assertEquals(List.of(List.of("c1"), List.of("c2"), List.of("c3")), firstPage.fetchAllPages());
+  }
+
+  @Test
+  void shouldBuildRequestForOtherPageKeepingQueryParameters() {
+    var request = GHRequestBuilder.page(URL + "?sha=main&since=2025-01-01T00%3A00%3A00Z&page=2", 5);
+
+    assertEquals(URL + "?sha=main&since=2025-01-01T00%3A00%3A00Z&page=5", request.toString());
+  }
+
+  private GHPage<List<String>> page(List<String> data, Integer nextPage) {
+    var linkHeader = nextPage == null ? null : "<" + URL + "?page=" + nextPage + ">; rel=\"next\"";
+    return new GHPage<>(data, linkHeader, githubClient, typeReference);
+  }
+
+  private void mockPage(int pageNumber, List<String> data, Integer nextPage) {
+    doReturn(CompletableFuture.completedFuture(new GHResponse<>(page(data, nextPage))))
+            .when(githubClient)
+            .sendAsync(argThat(req -> req.toString().endsWith("page=" + pageNumber)), any(TypeReference.class));
+  }
+}
@@ -0,0 +1,128 @@
+package org;
+
+import org.example.GHRateLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpHeaders;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GHRateLimiterTest {
+  private static final Instant NOW = Instant.parse("2025-07-01T10:00:00Z");
+
+  private MutableClock clock;
+  private GHRateLimiter rateLimiter;
+
+  @BeforeEach
+  void setUp() {
+    clock = new MutableClock(NOW);
+    rateLimiter = new GHRateLimiter(clock, 0.1, 3);
+  }
+
+  @Test
+  void shouldNotDelayBeforeBudgetIsKnown() {
+    assertEquals(Duration.ZERO, rateLimiter.reserve());
+    assertEquals(new GHRateLimiter.Budget(-1, -1, null), rateLimiter.budget());
+  }
+
+  @Test
+  void shouldTrackBudgetFromHeaders() {
+    rateLimiter.update(rateLimitHeaders(5000, 4321, NOW.plusSeconds(600)));
+
+    assertEquals(new GHRateLimiter.Budget(5000, 4321, NOW.plusSeconds(600)), rateLimiter.budget());
+    assertEquals(Duration.ZERO, rateLimiter.reserve());
+    assertEquals(4320, rateLimiter.budget().remaining());
+  }
+
+  @Test
+  void shouldSpreadReserveOverResetWindow() {
+    rateLimiter.update(rateLimitHeaders(5000, 100, NOW.plusSeconds(100)));
+
+    assertEquals(Duration.ZERO, rateLimiter.reserve());
+    assertEquals(Duration.ofSeconds(1), rateLimiter.reserve());
+  }
+
+  @Test
+  void shouldWaitForResetWhenBudgetIsExhausted() {
+    rateLimiter.update(rateLimitHeaders(5000, 0, NOW.plusSeconds(30)));
+
+    assertEquals(Duration.ofSeconds(30), rateLimiter.reserve());
+
+    clock.now = NOW.plusSeconds(30);
+    assertEquals(Duration.ZERO, rateLimiter.reserve());
+    assertEquals(4999, rateLimiter.budget().remaining());
+  }
+
+  @Test
+  void shouldPauseForRetryAfterOn429() {
+    assertTrue(rateLimiter.shouldRetry(429, headers(Map.of("Retry-After", "12")), 0));
+    assertEquals(Duration.ofSeconds(12), rateLimiter.reserve());
+  }
+
+  @Test
+  void shouldRetryPrimaryRateLimit403UntilReset() {
+    var headers = rateLimitHeaders(5000, 0, NOW.plusSeconds(45));
+    rateLimiter.update(headers);
+
+    assertTrue(rateLimiter.shouldRetry(403, headers, 0));
+    assertEquals(Duration.ofSeconds(45), rateLimiter.reserve());
+  }
+
+  @Test
+  void shouldNotRetryOtherErrors() {
+    assertFalse(rateLimiter.shouldRetry(403, rateLimitHeaders(5000, 10, NOW.plusSeconds(45)), 0));
+    assertFalse(rateLimiter.shouldRetry(404, headers(Map.of()), 0));
+    assertFalse(rateLimiter.shouldRetry(500, headers(Map.of("Retry-After", "1")), 0));
+  }
+
+  @Test
+  void shouldGiveUpAfterMaxRetries() {
+    assertFalse(rateLimiter.shouldRetry(429, headers(Map.of("Retry-After", "1")), 3));
+  }
+
+  private static HttpHeaders rateLimitHeaders(int limit, int remaining, Instant reset) {
+    var values = new HashMap<String, String>();
+    values.put("X-RateLimit-Limit", String.valueOf(limit));
+    values.put("X-RateLimit-Remaining", String.valueOf(remaining));
+    values.put("X-RateLimit-Reset", String.valueOf(reset.getEpochSecond()));
+    return headers(values);
+  }
+
+  private static HttpHeaders headers(Map<String, String> values) {
+    var multiValues = new HashMap<String, List<String>>();
+    values.forEach((name, value) -> multiValues.put(name, List.of(value)));
+    return HttpHeaders.of(multiValues, (name, value) -> true);
+  }
+
+  private static class MutableClock extends Clock {
+    private Instant now;
+
+    MutableClock(Instant now) {
+      this.now = now;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package org;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.GHResponseCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GHResponseCacheTest {
+
+  @TempDir
+  Path tempDir;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final URI uri = URI.create("https://api.github.com/repos/owner/repo/commits/abc123");
+
+  @Test
+  void shouldReturnNullForUnknownUri() {
+    assertNull(new GHResponseCache().get(uri));
+    assertNull(new GHResponseCache(tempDir).get(uri));
+  }
+
+  @Test
+  void shouldKeepEntriesInMemory() throws Exception {
+    var cache = new GHResponseCache();
+    var response = new GHResponseCache.CachedResponse("\"etag\"", null, null, mapper.readTree("{\"sha\":\"abc123\"}"));
+
+    cache.put(uri, response);
+
+    assertEquals(response, cache.get(uri));
+  }
+
+  @Test
+  void shouldSurviveRestartWhenPersisted() throws Exception {
+    var response = new GHResponseCache.CachedResponse("\"etag\"", "Tue, 01 Jul 2025 10:00:00 GMT",
+            "<https://api.github.com/repos/owner/repo/commits/abc123?page=2>; rel=\"next\"",
+            mapper.readTree("{\"sha\":\"abc123\",\"files\":[{\"filename\":\"pom.xml\"}]}"));
+
+    new GHResponseCache(tempDir).put(uri, response);
+    var reloaded = new GHResponseCache(tempDir).get(uri);
+
+    assertEquals(response, reloaded);
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedEntries() throws Exception {
+    var cache = new GHResponseCache(2);
+    var other = URI.create("https://api.github.com/repos/owner/repo/commits/def456");
+    var third = URI.create("https://api.github.com/repos/owner/repo/commits/fed789");
+    var response = new GHResponseCache.CachedResponse("\"etag\"", null, null, mapper.readTree("{}"));
+
+    cache.put(uri, response);
+    cache.put(other, response);
+    cache.get(uri);
+    cache.put(third, response);
+
+    assertEquals(response, cache.get(uri));
+    assertNull(cache.get(other));
+    assertEquals(response, cache.get(third));
+  }
+
+  @Test
+  void shouldReloadEvictedEntriesFromDisk() throws Exception {
+    var cache = new GHResponseCache(tempDir, 1);
+    var other = URI.create("https://api.github.com/repos/owner/repo/commits/def456");
+    var response = new GHResponseCache.CachedResponse("\"etag\"", null, null, mapper.readTree("{\"sha\":\"abc123\"}"));
+
+    cache.put(uri, response);
+    cache.put(other, response);
+
+    assertEquals(response, cache.get(uri));
+  }
+
+  @Test
+  void shouldTreatCorruptEntryAsMiss() throws Exception {
+    new GHResponseCache(tempDir).put(uri, new GHResponseCache.CachedResponse("\"etag\"", null, null,
+            mapper.readTree("{}")));
+    try (var files = Files.list(tempDir)) {
+      for (var file : files.toList()) {
+        Files.writeString(file, "{not json");
+      }
+    }
+
+    assertNull(new GHResponseCache(tempDir).get(uri));
+  }
+}
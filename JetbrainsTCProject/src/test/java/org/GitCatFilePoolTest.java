@@ -0,0 +1,131 @@
+package org;
+
+import org.example.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitCatFilePoolTest {
+
+  @TempDir
+  File repo;
+  private GitCmdExec gitCmd;
+  private GitCatFilePool pool;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    gitCmd = new GitCmdExec();
+    git("init", "-q");
+    git("config", "user.email", "test@example.com");
+    git("config", "user.name", "Test");
+    Files.writeString(repo.toPath().resolve("a.txt"), "first\n");
+    Files.writeString(repo.toPath().resolve("b.txt"), "second\n");
+    git("add", "a.txt", "b.txt");
+    git("commit", "-q", "-m", "initial");
+    pool = gitCmd.catFile(repo);
+  }
+
+  @AfterEach
+  void tearDown() {
+    gitCmd.close();
+  }
+
+  @Test
+  void shouldReadBlobContent() {
+    GitObject blob = pool.read("HEAD:a.txt").orElseThrow();
+
+    assertEquals("blob", blob.type());
+    assertEquals(6, blob.size());
+    assertEquals("first\n", blob.text());
+    assertEquals(git("rev-parse", "HEAD:a.txt").trim(), blob.sha());
+  }
+
+  @Test
+  void shouldReadInfoWithoutContent() {
+    GitObject commit = pool.info("HEAD").orElseThrow();
+
+    assertEquals("commit", commit.type());
+    assertNull(commit.content());
+  }
+
+  @Test
+  void shouldReturnEmptyForMissingObject() {
+    assertEquals(Optional.empty(), pool.read("HEAD:missing.txt"));
+    assertEquals(Optional.empty(), pool.info("0000000000000000000000000000000000000000"));
+  }
+
+  @Test
+  void shouldReturnEmptyForMissingPathWithSpaces() {
+    assertEquals(Optional.empty(), pool.read("HEAD:dir/my file.txt"));
+    assertEquals(Optional.empty(), pool.info("HEAD:dir/my file.txt"));
+    assertEquals("first\n", new String(pool.read("HEAD:a.txt").orElseThrow().content(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void shouldPipelineManyLookupsInOrder() {
+    List<String> objects = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      objects.add(i % 3 == 0 ? "HEAD:missing.txt" : i % 3 == 1 ? "HEAD:a.txt" : "HEAD:b.txt");
+    }
+
+    List<Optional<GitObject>> results = pool.readAll(objects);
+
+    assertEquals(objects.size(), results.size());
+    for (int i = 0; i < objects.size(); i++) {
+      if (i % 3 == 0) {
+        assertTrue(results.get(i).isEmpty());
+      }
+      else {
+        assertEquals(i % 3 == 1 ? "first\n" : "second\n", results.get(i).orElseThrow().text());
+      }
+    }
+  }
+
+  @Test
+  void shouldServeConcurrentCallers() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> futures = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        futures.add(executor.submit(() -> pool.read("HEAD:b.txt").orElseThrow().text()));
+      }
+      for (Future<String> future : futures) {
+        assertEquals("second\n", future.get());
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void shouldReuseThePoolOfARepository() {
+    assertSame(pool, gitCmd.catFile(new File(repo.getPath())));
+  }
+
+  @Test
+  void shouldRejectObjectNamesWithNewlines() {
+    assertThrows(IllegalArgumentException.class, () -> pool.read("HEAD\nHEAD"));
+  }
+
+  private String git(String... args) {
+    List<String> command = new ArrayList<>();
+    command.add("git");
+    command.addAll(List.of(args));
+    return gitCmd.runCommand(repo, command).output();
+  }
+}
@@ -12,8 +12,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -175,4 +178,81 @@ class GitCmdExecTest {
 
     assertEquals("line1\nline2\nline3\n", result);
   }
-}
\ No newline at end of file
+
+  @Test
+  void runCommandShouldNotBlockOnOutputLargerThanThePipeBuffer() {
+    if (!new File("/bin/sh").exists()) {
+      return;
+    }
+
+    List<String> command = Arrays.asList("/bin/sh", "-c", "seq 1 200000; seq 1 50000 >&2; exit 0");
+    GitExecResult result = gitCmdExec.runCommand(tempDir, command, Duration.ofSeconds(30));
+
+    assertTrue(result.output().endsWith("199999\n200000\n"));
+    assertTrue(result.error().endsWith("50000\n"));
+  }
+
+  @Test
+  void streamCommandShouldPassLinesToConsumer() {
+    if (!new File("/bin/sh").exists()) {
+      return;
+    }
+
+    AtomicInteger count = new AtomicInteger();
+    List<String> last = new ArrayList<>();
+    List<String> command = Arrays.asList("/bin/sh", "-c", "seq 1 200000");
+    GitExecResult result = gitCmdExec.streamCommand(tempDir, command, GitOutputConsumer.lines(line -> {
+      count.incrementAndGet();
+      last.clear();
+      last.add(line);
+    }), null);
+
+    assertEquals(200000, count.get());
+    assertEquals(List.of("200000"), last);
+    assertEquals("", result.output());
+  }
+
+  @Test
+  void streamCommandShouldSplitNulTerminatedRecords() {
+    if (!new File("/bin/sh").exists()) {
+      return;
+    }
+
+    List<String> records = new ArrayList<>();
+    List<String> command = Arrays.asList("/bin/sh", "-c", "printf 'M\\0a b.txt\\0M\\0line\\nbreak.txt\\0'");
+    gitCmdExec.streamCommand(tempDir, command, GitOutputConsumer.nulTerminated(records::add), Duration.ofSeconds(30));
+
+    assertEquals(List.of("M", "a b.txt", "M", "line\nbreak.txt"), records);
+  }
+
+  @Test
+  void streamCommandShouldKillProcessOnTimeout() {
+    if (!new File("/bin/sh").exists()) {
+      return;
+    }
+
+    List<String> command = Arrays.asList("/bin/sh", "-c", "sleep 30");
+    long start = System.nanoTime();
+    GitCommandException exception = assertThrows(GitCommandException.class, () ->
+            gitCmdExec.streamCommand(tempDir, command, GitOutputConsumer.lines(line -> {}), Duration.ofMillis(200)));
+
+    assertTrue(exception.getMessage().contains("timed out"));
+    assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(10)) < 0);
+  }
+
+  @Test
+  void streamCommandShouldPropagateConsumerFailure() {
+    if (!new File("/bin/sh").exists()) {
+      return;
+    }
+
+    List<String> command = Arrays.asList("/bin/sh", "-c", "seq 1 200000");
+    IllegalStateException failure = new IllegalStateException("stop");
+    IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+            gitCmdExec.streamCommand(tempDir, command, GitOutputConsumer.lines(line -> {
+              throw failure;
+            }), null));
+
+    assertSame(failure, exception);
+  }
+}
@@ -0,0 +1,177 @@
+package org;
+
+import org.example.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class GitObjectDatabaseTest {
+
+  @TempDir
+  File repo;
+  private GitCmdExec gitCmd;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    gitCmd = new GitCmdExec();
+    git("init", "-q", "-b", "main");
+    git("config", "user.email", "test@example.com");
+    git("config", "user.name", "Test");
+
+    StringBuilder content = new StringBuilder();
+    for (int version = 0; version < 20; version++) {
+      for (int line = 0; line < 200; line++) {
+        content.append("version ").append(version).append(" line ").append(line).append('\n');
+      }
+      write("src/Large.java", content.toString());
+      write("src/nested/Small" + (version % 3) + ".txt", "small " + version + "\n");
+      commit("version " + version);
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    gitCmd.close();
+  }
+
+  @Test
+  void shouldReadLooseObjectsLikeGit() {
+    assertSameObjectsAsGit();
+  }
+
+  @Test
+  void shouldReadPackedAndDeltifiedObjectsLikeGit() throws IOException {
+    git("repack", "-adfq", "--window=50", "--depth=50");
+    git("pack-refs", "--all");
+    write("src/Large.java", "rewritten after repack\n");
+    commit("loose after repack");
+
+    assertTrue(git("count-objects", "-v").contains("in-pack: "));
+    assertSameObjectsAsGit();
+  }
+
+  @Test
+  void shouldReadPackedObjectsWithSmallDeltaBaseCache() {
+    git("repack", "-adfq", "--window=50", "--depth=50");
+
+    GitObjectDatabase database = new GitObjectDatabase(repo, 1024);
+    GitObject blob = database.read(git("rev-parse", "HEAD:src/Large.java").trim()).orElseThrow();
+
+    assertEquals(git("show", "HEAD:src/Large.java"), blob.text());
+  }
+
+  @Test
+  void shouldResolveLooseAndPackedRefs() {
+    git("branch", "packed");
+    git("pack-refs", "--all");
+    git("branch", "loose");
+    git("update-ref", "refs/remotes/origin/main", "HEAD~3");
+
+    GitObjectDatabase database = new GitObjectDatabase(repo);
+
+    String head = git("rev-parse", "HEAD").trim();
+    assertEquals(Optional.of(head), database.resolve("HEAD"));
+    assertEquals(Optional.of(head), database.resolve("packed"));
+    assertEquals(Optional.of(head), database.resolve("loose"));
+    assertEquals(Optional.of(git("rev-parse", "HEAD~3").trim()), database.resolve("origin/main"));
+    assertEquals(Optional.empty(), database.resolve("missing"));
+    assertEquals(Optional.empty(), database.read("0000000000000000000000000000000000000000"));
+  }
+
+  @Test
+  void shouldFindSameRemoteChangesAsGitLog() throws IOException {
+    String mergeBase = git("rev-parse", "HEAD").trim();
+    write("src/Large.java", "changed on the remote\n");
+    write("src/Remote.java", "added on the remote\n");
+    commit("remote change");
+    write("src/nested/Small1.txt", "changed on the remote\n");
+    commit("second remote change");
+    git("update-ref", "refs/remotes/origin/main", "HEAD");
+    git("repack", "-adq");
+
+    Set<String> candidates = Set.of("src/Large.java", "src/Remote.java", "src/nested/Small1.txt",
+            "src/nested/Small2.txt");
+    RemoteChangeQuery query = new RemoteChangeQuery("owner", "repo", repo, "main", mergeBase, candidates);
+
+    Set<String> fromDatabase = new TreeDiffRemoteChangeSource(GitObjectDatabase::new).findModifiedFiles(query);
+    Set<String> fromCatFile = new TreeDiffRemoteChangeSource(gitCmd::catFile).findModifiedFiles(query);
+    Set<String> fromGitLog = new LocalGitRemoteChangeSource(gitCmd).findModifiedFiles(query);
+
+    assertEquals(Set.of("src/Large.java", "src/nested/Small1.txt"), fromGitLog);
+    assertEquals(fromGitLog, fromDatabase);
+    assertEquals(fromGitLog, fromCatFile);
+  }
+
+  @Test
+  void shouldFindNonAsciiPathsWithoutQuoting() throws IOException {
+    assumeTrue(canEncodePath("src/caf\u00e9.txt"), "file names are not Unicode in this locale");
+    write("src/caf\u00e9.txt", "added\n");
+    commit("add non-ASCII path");
+    String mergeBase = git("rev-parse", "HEAD").trim();
+    write("src/caf\u00e9.txt", "changed on the remote\n");
+    commit("change non-ASCII path");
+    git("update-ref", "refs/remotes/origin/main", "HEAD");
+
+    Set<String> candidates = Set.of("src/caf\u00e9.txt", "src/Large.java");
+    RemoteChangeQuery query = new RemoteChangeQuery("owner", "repo", repo, "main", mergeBase, candidates);
+
+    assertEquals(Set.of("src/caf\u00e9.txt"), new LocalGitRemoteChangeSource(gitCmd).findModifiedFiles(query));
+    assertEquals(Set.of("src/caf\u00e9.txt"),
+            new LocalGitRemoteChangeSource(gitCmd).perCommit(false).findModifiedFiles(query));
+  }
+
+  private void assertSameObjectsAsGit() {
+    GitObjectDatabase database = new GitObjectDatabase(repo);
+    GitCatFilePool catFile = gitCmd.catFile(repo);
+    List<String> shas = new ArrayList<>();
+    for (String line : git("rev-list", "--objects", "--all").split("\n")) {
+      shas.add(line.split(" ")[0]);
+    }
+    List<Optional<GitObject>> expected = catFile.readAll(shas);
+
+    for (int i = 0; i < shas.size(); i++) {
+      GitObject fromGit = expected.get(i).orElseThrow();
+      GitObject fromDatabase = database.read(shas.get(i)).orElseThrow();
+      assertEquals(fromGit.type(), fromDatabase.type());
+      assertArrayEquals(fromGit.content(), fromDatabase.content());
+    }
+  }
+
+  private boolean canEncodePath(String path) {
+    try {
+      repo.toPath().resolve(path);
+      return true;
+    }
+    catch (InvalidPathException e) {
+      return false;
+    }
+  }
+
+  private void write(String path, String content) throws IOException {
+    java.nio.file.Path file = repo.toPath().resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, content);
+  }
+
+  private void commit(String message) {
+    git("add", "-A");
+    git("commit", "-q", "-m", message);
+  }
+
+  private String git(String... args) {
+    List<String> command = new ArrayList<>();
+    command.add("git");
+    command.addAll(List.of(args));
+    return gitCmd.runCommand(repo, command).output();
+  }
+}
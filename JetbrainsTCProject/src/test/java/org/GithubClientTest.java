@@ -6,14 +6,19 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -43,9 +48,9 @@ class GithubClientTest {
     GHRequest request = new GHRequest("https://api.github.com/repos/owner/repo/commits");
 
     @SuppressWarnings("unchecked")
-    HttpResponse<String> mockResponse = mock(HttpResponse.class);
+    HttpResponse<InputStream> mockResponse = mock(HttpResponse.class);
     when(mockResponse.statusCode()).thenReturn(200);
-    when(mockResponse.body()).thenReturn("[\"commit1\", \"commit2\"]");
+    when(mockResponse.body()).thenReturn(body("[\"commit1\", \"commit2\"]"));
 
     HttpHeaders mockHeaders = HttpHeaders.of(
             Map.of("Link", List.of("<https://api.github.com/repos/owner/repo/commits?page=2>; rel=\"next\"")),
@@ -78,9 +83,9 @@ class GithubClientTest {
     GHRequest request = new GHRequest("https://api.github.com/repos/owner/repo/commits");
 
     @SuppressWarnings("unchecked")
-    HttpResponse<String> mockResponse = mock(HttpResponse.class);
+    HttpResponse<InputStream> mockResponse = mock(HttpResponse.class);
     when(mockResponse.statusCode()).thenReturn(404);
-    when(mockResponse.body()).thenReturn("{\"message\":\"Not Found\"}");
+    when(mockResponse.body()).thenReturn(body("{\"message\":\"Not Found\"}"));
 
     HttpHeaders mockHeaders = HttpHeaders.of(Map.of(), (name, value) -> true);
     when(mockResponse.headers()).thenReturn(mockHeaders);
@@ -133,9 +138,9 @@ class GithubClientTest {
     GHRequest request = new GHRequest("https://api.github.com/repos/owner/repo/commits");
 
     @SuppressWarnings("unchecked")
-    HttpResponse<String> mockResponse = mock(HttpResponse.class);
+    HttpResponse<InputStream> mockResponse = mock(HttpResponse.class);
     when(mockResponse.statusCode()).thenReturn(200);
-    when(mockResponse.body()).thenReturn("invalid json");
+    when(mockResponse.body()).thenReturn(body("invalid json"));
 
     HttpHeaders mockHeaders = HttpHeaders.of(Map.of(), (name, value) -> true);
     when(mockResponse.headers()).thenReturn(mockHeaders);
@@ -147,4 +152,144 @@ class GithubClientTest {
       githubClient.send(request, typeReference);
     });
   }
-}
\ No newline at end of file
+
+  @Test
+  void testSuccessfulAsyncRequest() throws Exception {
+    GHRequest request = new GHRequest("https://api.github.com/repos/owner/repo/commits");
+
+    @SuppressWarnings("unchecked")
+    HttpResponse<InputStream> mockResponse = mock(HttpResponse.class);
+    when(mockResponse.statusCode()).thenReturn(200);
+    when(mockResponse.body()).thenReturn(body("[\"commit1\", \"commit2\"]"));
+    when(mockResponse.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
+
+    when(mockHttpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+            .thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+    GHResponse<List<String>> response = githubClient.sendAsync(request, typeReference).get();
+
+    assertEquals(List.of("commit1", "commit2"), response.response.getData());
+    assertFalse(response.response.hasNext());
+    verify(mockHttpClient, never()).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+  }
+
+  @Test
+  void testAsyncNetworkError() {
+    GHRequest request = new GHRequest("https://api.github.com/repos/owner/repo/commits");
+
+    IOException ioException = new IOException("Network error");
+    when(mockHttpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+            .thenReturn(CompletableFuture.failedFuture(ioException));
+
+    ExecutionException exception = assertThrows(ExecutionException.class, () ->
+            githubClient.sendAsync(request, typeReference).get());
+
+    assertInstanceOf(GHApiException.class, exception.getCause());
+    assertEquals(ioException, exception.getCause().getCause());
+  }
+
+  @Test
+  void testNotModifiedResponseServedFromCache() throws Exception {
+    var cachingClient = GithubClient.builder(TEST_TOKEN).responseCache(new GHResponseCache()).build();
+    var httpClientField = GithubClient.class.getDeclaredField("httpClient");
+    httpClientField.setAccessible(true);
+    httpClientField.set(cachingClient, mockHttpClient);
+
+    GHRequest request = new GHRequest("https://api.github.com/repos/owner/repo/commits");
+
+    @SuppressWarnings("unchecked")
+    HttpResponse<InputStream> okResponse = mock(HttpResponse.class);
+    when(okResponse.statusCode()).thenReturn(200);
+    when(okResponse.body()).thenReturn(body("[\"commit1\", \"commit2\"]"));
+    when(okResponse.headers()).thenReturn(HttpHeaders.of(
+            Map.of("ETag", List.of("\"v1\"")),
+            (name, value) -> true));
+
+    @SuppressWarnings("unchecked")
+    HttpResponse<InputStream> notModifiedResponse = mock(HttpResponse.class);
+    when(notModifiedResponse.statusCode()).thenReturn(304);
+    when(notModifiedResponse.body()).thenReturn(body(""));
+    when(notModifiedResponse.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
+
+    when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+            .thenReturn(okResponse, notModifiedResponse);
+
+    cachingClient.send(request, typeReference);
+    GHResponse<List<String>> response = cachingClient.send(request, typeReference);
+
+    assertEquals(List.of("commit1", "commit2"), response.response.getData());
+
+    ArgumentCaptor<HttpRequest> requestCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+    verify(mockHttpClient, times(2)).send(requestCaptor.capture(), any(HttpResponse.BodyHandler.class));
+    assertTrue(requestCaptor.getAllValues().get(0).headers().firstValue("If-None-Match").isEmpty());
+    assertEquals("\"v1\"", requestCaptor.getAllValues().get(1).headers().firstValue("If-None-Match").orElse(null));
+  }
+
+  @Test
+  void testRateLimitedRequestIsRetried() throws Exception {
+    var rateLimiter = new GHRateLimiter();
+    var limitedClient = GithubClient.builder(TEST_TOKEN).rateLimiter(rateLimiter).build();
+    var httpClientField = GithubClient.class.getDeclaredField("httpClient");
+    httpClientField.setAccessible(true);
+    httpClientField.set(limitedClient, mockHttpClient);
+
+    GHRequest request = new GHRequest("https://api.github.com/repos/owner/repo/commits");
+
+    @SuppressWarnings("unchecked")
+    HttpResponse<InputStream> limitedResponse = mock(HttpResponse.class);
+    when(limitedResponse.statusCode()).thenReturn(429);
+    when(limitedResponse.body()).thenReturn(body("{\"message\":\"You have exceeded a secondary rate limit\"}"));
+    when(limitedResponse.headers()).thenReturn(HttpHeaders.of(
+            Map.of("Retry-After", List.of("0")),
+            (name, value) -> true));
+
+    @SuppressWarnings("unchecked")
+    HttpResponse<InputStream> okResponse = mock(HttpResponse.class);
+    when(okResponse.statusCode()).thenReturn(200);
+    when(okResponse.body()).thenReturn(body("[\"commit1\"]"));
+    when(okResponse.headers()).thenReturn(HttpHeaders.of(
+            Map.of("X-RateLimit-Limit", List.of("5000"), "X-RateLimit-Remaining", List.of("4999")),
+            (name, value) -> true));
+
+    when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+            .thenReturn(limitedResponse, okResponse);
+
+    GHResponse<List<String>> response = limitedClient.send(request, typeReference);
+
+    assertEquals(List.of("commit1"), response.response.getData());
+    assertEquals(4999, rateLimiter.budget().remaining());
+    verify(mockHttpClient, times(2)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+  }
+
+  @Test
+  void testIgnoredFieldsAreSkipped() throws Exception {
+    var skippingClient = GithubClient.builder(TEST_TOKEN).ignoreFields(File.class, "patch").build();
+    var httpClientField = GithubClient.class.getDeclaredField("httpClient");
+    httpClientField.setAccessible(true);
+    httpClientField.set(skippingClient, mockHttpClient);
+
+    GHRequest request = new GHRequest("https://api.github.com/repos/owner/repo/commits/abc123");
+
+    @SuppressWarnings("unchecked")
+    HttpResponse<InputStream> mockResponse = mock(HttpResponse.class);
+    when(mockResponse.statusCode()).thenReturn(200);
+    when(mockResponse.body()).thenReturn(body(
+            "{\"sha\":\"abc123\",\"files\":[{\"filename\":\"pom.xml\",\"status\":\"modified\"," +
+            "\"patch\":{\"not\":[\"a\",\"string\"]}}]}"));
+    when(mockResponse.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
+
+    when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+            .thenReturn(mockResponse);
+
+    var response = skippingClient.send(request, new TypeReference<GHGetCommitResponse>() {});
+
+    var file = response.response.getData().files.get(0);
+    assertEquals("pom.xml", file.fileName);
+    assertEquals("modified", file.status);
+    assertNull(file.patch);
+  }
+
+  private static InputStream body(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,115 @@
+package org;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.example.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphQLCommitFetcherTest {
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final List<JsonNode> receivedQueries = new CopyOnWriteArrayList<>();
+  private final Deque<String> responses = new ArrayDeque<>();
+
+  private HttpServer server;
+  private GithubClient githubClient;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/graphql", exchange -> {
+      receivedQueries.add(mapper.readTree(exchange.getRequestBody()));
+      var body = responses.poll().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      exchange.getResponseBody().write(body);
+      exchange.close();
+    });
+    server.start();
+    githubClient = GithubClient.builder("test-token")
+            .graphQlUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/graphql")
+            .build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop(0);
+  }
+
+  @Test
+  void shouldDeriveFileStatusesFromCommitAndParentBlobs() {
+    responses.add("""
+            {"data": {"repository": {
+              "c0": {"oid": "sha1",
+                     "f0": {"oid": "blob2"}, "f1": {"oid": "blob3"}, "f2": null, "f3": {"oid": "same"},
+                     "parents": {"nodes": [{"f0": {"oid": "blob1"}, "f1": null, "f2": {"oid": "gone"}, "f3": {"oid": "same"}}]}}
+            }}}""");
+
+    var commits = new GraphQLCommitFetcher(githubClient)
+            .fetchCommits("owner", "repo", List.of("sha1"), List.of("a.txt", "new.txt", "old.txt", "same.txt"));
+
+    var statuses = new HashMap<String, String>();
+    commits.get("sha1").files.forEach(file -> statuses.put(file.fileName, file.status));
+    assertEquals(Map.of("a.txt", "modified", "new.txt", "added", "old.txt", "removed"), statuses);
+
+    var request = receivedQueries.get(0);
+    assertEquals("owner", request.path("variables").path("owner").asText());
+    assertEquals("repo", request.path("variables").path("name").asText());
+    assertTrue(request.path("query").asText().contains("c0: object(oid: \"sha1\")"));
+  }
+
+  @Test
+  void shouldSplitCommitsIntoBatches() {
+    responses.add("""
+            {"data": {"repository": {
+              "c0": {"oid": "sha1", "f0": {"oid": "x"}, "parents": {"nodes": [{"f0": {"oid": "y"}}]}},
+              "c1": {"oid": "sha2", "f0": {"oid": "x"}, "parents": {"nodes": [{"f0": {"oid": "x"}}]}}
+            }}}""");
+    responses.add("""
+            {"data": {"repository": {
+              "c0": {"oid": "sha3", "f0": {"oid": "z"}, "parents": {"nodes": []}}
+            }}}""");
+
+    var modified = new TreeMap<String, List<File>>();
+    new GraphQLCommitFetcher(githubClient, 2, 10)
+            .fetchFiles("owner", "repo", List.of("sha1", "sha2", "sha3"), Set.of("a.txt"), modified::put);
+
+    assertEquals(2, receivedQueries.size());
+    assertEquals("modified", modified.get("sha1").get(0).status);
+    assertTrue(modified.get("sha2").isEmpty());
+    assertEquals("added", modified.get("sha3").get(0).status);
+  }
+
+  @Test
+  void shouldFailOnGraphQLErrors() {
+    responses.add("""
+            {"data": null, "errors": [{"message": "Could not resolve to a Repository"}]}""");
+
+    var fetcher = new GraphQLCommitFetcher(githubClient);
+
+    var exception = assertThrows(GHApiException.class, () ->
+            fetcher.fetchCommits("owner", "missing", List.of("sha1"), List.of("a.txt")));
+    assertTrue(exception.getMessage().contains("Could not resolve"));
+  }
+
+  @Test
+  void shouldFailOnUnknownCommit() {
+    responses.add("""
+            {"data": {"repository": {"c0": null}}}""");
+
+    var fetcher = new GraphQLCommitFetcher(githubClient);
+
+    assertThrows(GHApiException.class, () ->
+            fetcher.fetchCommits("owner", "repo", List.of("unknown"), List.of("a.txt")));
+  }
+}
@@ -0,0 +1,148 @@
+package org;
+
+import org.example.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalDetectionTest {
+
+  @TempDir
+  File repo;
+  @TempDir
+  Path checkpoints;
+  private GitCmdExec gitCmd;
+  private final List<RemoteChangeQuery> queries = new ArrayList<>();
+  private FileChangesDetector detector;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    gitCmd = new GitCmdExec();
+    RemoteChangeSource local = new LocalGitRemoteChangeSource(gitCmd);
+    RemoteChangeSource recording = query -> {
+      queries.add(query);
+      return local.findModifiedFiles(query);
+    };
+    detector = new FileChangesDetector(gitCmd, recording).checkpointStore(new CheckpointStore(checkpoints));
+
+    git("init", "-q", "-b", "main");
+    git("config", "user.email", "test@example.com");
+    git("config", "user.name", "Test");
+    commit("initial", "a.txt", "b.txt", "c.txt");
+    git("branch", "feature");
+    commit("remote a", "a.txt");
+    git("checkout", "-q", "feature");
+    commit("local a b", "a.txt", "b.txt");
+    git("checkout", "-q", "main");
+    publishMain();
+  }
+
+  @AfterEach
+  void tearDown() {
+    gitCmd.close();
+  }
+
+  @Test
+  void shouldOnlyQueryCommitsAndPathsNotSeenBefore() throws IOException {
+    String mergeBase = git("merge-base", "feature", "main").trim();
+    String firstHead = git("rev-parse", "main").trim();
+
+    assertEquals(Set.of("a.txt"), detect());
+    assertEquals(1, queries.size());
+    assertEquals(mergeBase, queries.get(0).mergeBase());
+
+    queries.clear();
+    assertEquals(Set.of("a.txt"), detect());
+    assertTrue(queries.isEmpty());
+
+    commit("remote b", "b.txt");
+    publishMain();
+    String secondHead = git("rev-parse", "main").trim();
+    assertEquals(Set.of("a.txt", "b.txt"), detect());
+    assertEquals(1, queries.size());
+    assertEquals(firstHead, queries.get(0).mergeBase());
+    assertEquals(secondHead, queries.get(0).head());
+
+    queries.clear();
+    git("checkout", "-q", "feature");
+    commit("local c", "c.txt");
+    git("checkout", "-q", "main");
+    assertEquals(Set.of("a.txt", "b.txt"), detect());
+    assertEquals(1, queries.size());
+    assertEquals(mergeBase, queries.get(0).mergeBase());
+    assertEquals(Set.of("c.txt"), queries.get(0).candidatePaths());
+  }
+
+  @Test
+  void shouldStartOverWhenTheMergeBaseMoves() throws IOException {
+    detect();
+    git("checkout", "-q", "feature");
+    git("merge", "-q", "-X", "ours", "-m", "merge main", "main");
+    commit("local b again", "b.txt");
+    git("checkout", "-q", "main");
+    commit("remote b", "b.txt");
+    publishMain();
+    queries.clear();
+
+    assertEquals(Set.of("b.txt"), detect());
+    assertEquals(1, queries.size());
+    assertEquals(git("merge-base", "feature", "main").trim(), queries.get(0).mergeBase());
+  }
+
+  @Test
+  void shouldStartOverAfterAForcePush() throws IOException {
+    detect();
+    git("reset", "-q", "--hard", "HEAD~1");
+    commit("rewritten remote b", "b.txt");
+    publishMain();
+    queries.clear();
+
+    assertEquals(Set.of("b.txt"), detect());
+    assertEquals(1, queries.size());
+    assertEquals(git("merge-base", "feature", "main").trim(), queries.get(0).mergeBase());
+  }
+
+  @Test
+  void shouldKeepCheckpointsAcrossStores() {
+    detect();
+    CheckpointStore.Checkpoint checkpoint = new CheckpointStore(checkpoints)
+            .get(new CheckpointStore.Key("owner", "repo", "main", "feature"));
+
+    assertEquals(git("rev-parse", "main").trim(), checkpoint.headSha());
+    assertEquals(Set.of("a.txt"), checkpoint.remoteModifiedFiles());
+  }
+
+  private Set<String> detect() {
+    return detector.detectFileChanges("owner", "repo", repo.getPath(), "main", "feature");
+  }
+
+  private void publishMain() {
+    git("update-ref", "refs/remotes/origin/main", "main");
+  }
+
+  private void commit(String message, String... files) throws IOException {
+    for (String file : files) {
+      Files.writeString(repo.toPath().resolve(file), message + "\n");
+    }
+    git("add", "-A");
+    git("commit", "-q", "-m", message);
+  }
+
+  private String git(String... args) {
+    List<String> command = new ArrayList<>();
+    command.add("git");
+    command.addAll(List.of(args));
+    return gitCmd.runCommand(repo, command).output();
+  }
+}
@@ -0,0 +1,100 @@
+package org;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.example.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEventsTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void shouldEmitRequestPageAndPhaseEvents() throws IOException {
+    List<RecordedEvent> events;
+    try (var server = new FakeGitHubServer(); var recording = startRecording()) {
+      var repository = server.addRepository("owner", "repo", 120, 1);
+      var githubClient = GithubClient.builder("test-token").baseUrl(server.baseUrl()).build();
+      var gitCmd = new FakeGitCmdExec(repository.mergeBase(), repository.paths().get(0));
+
+      new FileChangesDetector(githubClient, gitCmd)
+              .detectFileChanges("owner", "repo", "/nonexistent/repo", "main", "feature");
+      events = stop(recording);
+    }
+
+    var requests = events(events, "org.example.GHRequest");
+    // The merge base, 2 pages of commits and 120 commits.
+    assertEquals(1 + 2 + 120, requests.size());
+    assertTrue(requests.stream().allMatch(event -> event.getInt("status") == 200));
+    assertTrue(requests.stream().allMatch(event -> event.getLong("bytes") > 0));
+    assertTrue(requests.stream().anyMatch(event -> event.getString("endpoint").equals("commits")
+            && event.getString("uri").contains("per_page=100")));
+
+    var pages = events(events, "org.example.GHPageFetch");
+    assertEquals(1, pages.size());
+    assertEquals(2, pages.get(0).getInt("page"));
+    assertTrue(pages.get(0).getBoolean("succeeded"));
+
+    var phases = events(events, "org.example.DetectionPhase").stream()
+            .map(event -> event.getString("phase"))
+            .collect(Collectors.toSet());
+    assertEquals(Set.of("merge-base", "local-diff", "remote"), phases);
+    assertTrue(events(events, "org.example.DetectionPhase").stream()
+            .allMatch(event -> event.getString("repository").equals("owner/repo")));
+  }
+
+  @Test
+  void shouldEmitGitCommandEvents() throws IOException {
+    List<RecordedEvent> events;
+    try (var recording = startRecording()) {
+      var gitCmd = new GitCmdExec();
+      gitCmd.runCommand(tempDir.toFile(), List.of("git", "init", "-q"));
+      assertThrows(GitCommandException.class,
+              () -> gitCmd.runCommand(tempDir.toFile(), List.of("git", "rev-parse", "--verify", "missing")));
+      events = stop(recording);
+    }
+
+    var commands = events(events, "org.example.GitCommand");
+    assertEquals(2, commands.size());
+    assertEquals("git init -q", commands.get(0).getString("command"));
+    assertEquals(0, commands.get(0).getInt("exitCode"));
+    assertEquals(tempDir.toFile().toString(), commands.get(0).getString("directory"));
+    assertEquals("git rev-parse --verify missing", commands.get(1).getString("command"));
+    assertNotEquals(0, commands.get(1).getInt("exitCode"));
+  }
+
+  private static Recording startRecording() {
+    var recording = new Recording();
+    for (var name: List.of("org.example.GHRequest", "org.example.GHPageFetch", "org.example.GitCommand",
+            "org.example.DetectionPhase")) {
+      recording.enable(name).withoutThreshold();
+    }
+    recording.start();
+    return recording;
+  }
+
+  private List<RecordedEvent> stop(Recording recording) throws IOException {
+    recording.stop();
+    var file = tempDir.resolve("recording.jfr");
+    recording.dump(file);
+    return RecordingFile.readAllEvents(file);
+  }
+
+  private static List<RecordedEvent> events(List<RecordedEvent> events, String name) {
+    return events.stream()
+            .filter(event -> event.getEventType().getName().equals(name))
+            .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+            .toList();
+  }
+}
@@ -0,0 +1,128 @@
+package org;
+
+import org.example.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MergeBaseFinderTest {
+
+  @TempDir
+  File repo;
+  private final AtomicInteger mergeBaseForks = new AtomicInteger();
+  private GitCmdExec gitCmd;
+  private MergeBaseFinder finder;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    gitCmd = new GitCmdExec() {
+      @Override
+      public GitExecResult runCommand(File gitDirectory, List<String> command) {
+        if (command.contains("merge-base")) {
+          mergeBaseForks.incrementAndGet();
+        }
+        return super.runCommand(gitDirectory, command);
+      }
+    };
+    finder = new MergeBaseFinder(gitCmd);
+
+    git("init", "-q", "-b", "main");
+    git("config", "user.email", "test@example.com");
+    git("config", "user.name", "Test");
+    commit("root");
+    commit("main 1");
+    git("branch", "feature");
+    git("branch", "other");
+    commit("main 2");
+    git("checkout", "-q", "feature");
+    commit("feature 1");
+    git("checkout", "-q", "other");
+    commit("other 1");
+    git("checkout", "-q", "main");
+
+    // Criss-cross: two branches that merged each other, which gives them two merge bases.
+    git("checkout", "-q", "-b", "left");
+    git("merge", "-q", "--no-ff", "-m", "left merges feature", "feature");
+    git("checkout", "-q", "-b", "right", "feature");
+    git("merge", "-q", "--no-ff", "-m", "right merges main", "main");
+    git("checkout", "-q", "left");
+    commit("left 1");
+    git("checkout", "-q", "right");
+    commit("right 1");
+
+    git("checkout", "-q", "main");
+    git("merge", "-q", "--no-ff", "-m", "octopus", "feature", "other");
+    commit("main 3");
+    git("update-ref", "refs/remotes/origin/main", "main~1");
+  }
+
+  @AfterEach
+  void tearDown() {
+    gitCmd.close();
+  }
+
+  @Test
+  void shouldMatchGitMergeBaseUsingTheCommitGraph() {
+    git("commit-graph", "write", "--reachable");
+    List<String> refs = List.of("main", "feature", "other", "left", "right", "origin/main");
+    List<String> expected = new ArrayList<>();
+    for (String one : refs) {
+      for (String two : refs) {
+        expected.add(git("merge-base", "--all", one, two));
+      }
+    }
+    mergeBaseForks.set(0);
+
+    int i = 0;
+    for (String one : refs) {
+      for (String two : refs) {
+        String actual = finder.mergeBase(repo, one, two);
+        assertTrue(expected.get(i++).contains(actual + "\n"), one + " " + two + ": " + actual);
+      }
+    }
+    assertEquals(0, mergeBaseForks.get());
+  }
+
+  @Test
+  void shouldFallBackToGitWithoutCommitGraph() {
+    String expected = git("merge-base", "left", "feature").trim();
+    mergeBaseForks.set(0);
+
+    assertEquals(expected, finder.mergeBase(repo, "left", "feature"));
+    assertEquals(1, mergeBaseForks.get());
+  }
+
+  @Test
+  void shouldFallBackToGitForCommitsNewerThanTheCommitGraph() throws IOException {
+    git("commit-graph", "write", "--reachable");
+    commit("main 4");
+    String expected = git("merge-base", "main", "feature").trim();
+    mergeBaseForks.set(0);
+
+    assertEquals(expected, finder.mergeBase(repo, "main", "feature"));
+    assertEquals(1, mergeBaseForks.get());
+  }
+
+  private void commit(String message) throws IOException {
+    Files.writeString(repo.toPath().resolve(message.replace(' ', '_') + ".txt"), message);
+    git("add", "-A");
+    git("commit", "-q", "-m", message);
+  }
+
+  private String git(String... args) {
+    List<String> command = new ArrayList<>();
+    command.add("git");
+    command.addAll(List.of(args));
+    return gitCmd.runCommand(repo, command).output();
+  }
+}
@@ -0,0 +1,94 @@
+package org;
+
+import org.example.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+
+  @Test
+  void shouldAggregateCountersAndTimers() {
+    var registry = new InMemoryMetricsRegistry();
+    registry.counter("requests_total", "status", "200").increment();
+    registry.counter("requests_total", "status", "200").increment(2);
+    registry.counter("requests_total", "status", "404").increment();
+    registry.timer("duration_seconds").record(2_000_000);
+    registry.timer("duration_seconds").record(300_000_000);
+
+    var snapshot = registry.snapshot();
+    assertEquals(3, snapshot.counter("requests_total", "status", "200"));
+    assertEquals(4, snapshot.counterTotal("requests_total"));
+    assertEquals(0, snapshot.counter("requests_total", "status", "500"));
+    var timer = snapshot.timer("duration_seconds").orElseThrow();
+    assertEquals(2, timer.count());
+    assertEquals(302_000_000, timer.totalNanos());
+    assertEquals(0.0025, timer.quantileUpperBoundSeconds(0.5));
+    assertEquals(0.5, timer.quantileUpperBoundSeconds(0.99));
+  }
+
+  @Test
+  void shouldExportPrometheusText() {
+    var registry = new InMemoryMetricsRegistry();
+    registry.counter("requests_total", "endpoint", "commits", "status", "200").increment(5);
+    registry.timer("duration_seconds", "endpoint", "commits").record(20_000_000);
+
+    var text = registry.prometheusText();
+
+    assertTrue(text.contains("# TYPE requests_total counter\n"));
+    assertTrue(text.contains("requests_total{endpoint=\"commits\",status=\"200\"} 5\n"));
+    assertTrue(text.contains("# TYPE duration_seconds histogram\n"));
+    assertTrue(text.contains("duration_seconds_bucket{endpoint=\"commits\",le=\"0.01\"} 0\n"));
+    assertTrue(text.contains("duration_seconds_bucket{endpoint=\"commits\",le=\"0.025\"} 1\n"));
+    assertTrue(text.contains("duration_seconds_bucket{endpoint=\"commits\",le=\"+Inf\"} 1\n"));
+    assertTrue(text.contains("duration_seconds_sum{endpoint=\"commits\"} 0.02\n"));
+    assertTrue(text.contains("duration_seconds_count{endpoint=\"commits\"} 1\n"));
+  }
+
+  @Test
+  void shouldRejectUnpairedLabels() {
+    var registry = new InMemoryMetricsRegistry();
+    assertThrows(IllegalArgumentException.class, () -> registry.counter("requests_total", "status"));
+  }
+
+  @Test
+  void shouldMeasureDetectionAgainstServer() throws IOException {
+    try (var server = new FakeGitHubServer()) {
+      var repository = server.addRepository("owner", "repo", 12, 2);
+      var registry = new InMemoryMetricsRegistry();
+      var githubClient = GithubClient.builder("test-token").baseUrl(server.baseUrl()).metrics(registry).build();
+      var gitCmd = new FakeGitCmdExec(repository.mergeBase(), String.join("\n", repository.paths()));
+
+      new FileChangesDetector(githubClient, gitCmd).metrics(registry)
+              .detectFileChanges("owner", "repo", "/nonexistent/repo", "main", "feature");
+
+      var snapshot = registry.snapshot();
+      assertEquals(1, snapshot.counter("github_requests_total", "endpoint", "commits", "status", "200"));
+      assertEquals(1 + 12, snapshot.counter("github_requests_total", "endpoint", "commits/{ref}", "status", "200"));
+      assertTrue(snapshot.counter("github_response_bytes_total", "endpoint", "commits/{ref}") > 0);
+      assertEquals(14, snapshot.timer("github_request_duration_seconds", "endpoint", "commits/{ref}").orElseThrow().count()
+              + snapshot.timer("github_request_duration_seconds", "endpoint", "commits").orElseThrow().count());
+      for (var phase: List.of("merge-base", "local-diff", "remote")) {
+        assertEquals(1, snapshot.timer("detection_phase_duration_seconds", "phase", phase).orElseThrow().count());
+      }
+    }
+  }
+
+  @Test
+  void shouldCountGitCommands() {
+    var registry = new InMemoryMetricsRegistry();
+    var gitCmd = new GitCmdExec().metrics(registry);
+
+    gitCmd.runCommand(new File("."), List.of("git", "--version"));
+    assertThrows(GitCommandException.class, () -> gitCmd.runCommand(new File("."), List.of("git", "no-such-command")));
+
+    var snapshot = registry.snapshot();
+    assertEquals(1, snapshot.counter("git_commands_total", "command", "--version", "exit_code", "0"));
+    assertEquals(1, snapshot.counter("git_commands_total", "command", "no-such-command", "exit_code", "1"));
+    assertEquals(1, snapshot.timer("git_command_duration_seconds", "command", "no-such-command").orElseThrow().count());
+  }
+}
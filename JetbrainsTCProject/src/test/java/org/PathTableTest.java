@@ -0,0 +1,134 @@
+package org;
+
+import org.example.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathTableTest {
+
+  @Test
+  void shouldShareDirectoriesBetweenPaths() {
+    var table = new PathTable();
+    int first = table.intern("src/main/A.java");
+    int second = table.intern("src/main/B.java");
+
+    assertNotEquals(first, second);
+    assertEquals(first, table.intern("src/main/A.java"));
+    assertEquals("src/main/A.java", table.path(first));
+    assertEquals("src/main/B.java", table.path(second));
+    // src, src/main and the two files
+    assertEquals(4, table.size());
+  }
+
+  @Test
+  void shouldFindOnlyInternedPaths() {
+    var table = new PathTable();
+    int id = table.intern("docs/readme.md");
+
+    assertEquals(id, table.find("docs/readme.md"));
+    assertEquals(-1, table.find("docs/other.md"));
+    assertEquals(-1, table.find("readme.md"));
+    assertEquals(-1, table.find(""));
+    assertEquals(2, table.size());
+  }
+
+  @Test
+  void shouldDecodeUtf8Bytes() {
+    var table = new PathTable();
+    var bytes = "x/dir/größe.txt/".getBytes(StandardCharsets.UTF_8);
+
+    int id = table.intern(bytes, 2, bytes.length - 3);
+
+    assertEquals("dir/größe.txt", table.path(id));
+    assertEquals(id, table.find("dir/größe.txt"));
+  }
+
+  @Test
+  void shouldParseLinesIntoSet() {
+    var table = new PathTable();
+    var set = table.parseLines("a/b.txt\nc.txt\r\n\na/b.txt\n");
+
+    assertEquals(Set.of("a/b.txt", "c.txt"), new HashSet<>(set));
+    assertEquals(2, set.size());
+    assertTrue(set.contains("c.txt"));
+    assertFalse(set.contains("a"));
+    assertTrue(table.parseLines("").isEmpty());
+  }
+
+  @Test
+  void shouldCollectNulTerminatedOutputAcrossChunks() {
+    var table = new PathTable();
+    var set = table.newSet();
+    var consumer = table.nulTerminated(set);
+    var bytes = "lib/one.c\0lib/two.c\0three".getBytes(StandardCharsets.UTF_8);
+
+    for (int i = 0; i < bytes.length; i += 3) {
+      consumer.accept(bytes, i, Math.min(3, bytes.length - i));
+    }
+    consumer.finish();
+
+    assertEquals(Set.of("lib/one.c", "lib/two.c", "three"), new HashSet<>(set));
+  }
+
+  @Test
+  void shouldCombineSetsOfOneTable() {
+    var table = new PathTable();
+    var first = table.newSet();
+    first.addAll(List.of("a", "b", "c/d"));
+    var second = table.newSet();
+    second.addAll(List.of("b", "c/d", "e"));
+
+    var union = table.newSet();
+    union.addAll(first);
+    union.addAll(second);
+    first.retainAll(second);
+
+    assertEquals(Set.of("a", "b", "c/d", "e"), new HashSet<>(union));
+    assertEquals(4, union.size());
+    assertEquals(Set.of("b", "c/d"), new HashSet<>(first));
+    assertEquals(2, first.size());
+    assertTrue(first.remove("b"));
+    assertFalse(first.remove("b"));
+    assertEquals(Set.of("c/d"), first);
+  }
+
+  @Test
+  void shouldHashAndCompareLikeSetsOfStrings() {
+    var table = new PathTable();
+    var paths = List.of("README.md", "src/main/A.java", "src/main/B.java", "src/\u00e9t\u00e9/C.java");
+    var set = table.newSet();
+    set.addAll(paths);
+    var other = table.newSet();
+    other.addAll(List.of("src/main/B.java", "README.md", "src/\u00e9t\u00e9/C.java", "src/main/A.java"));
+
+    assertEquals(new HashSet<>(paths).hashCode(), set.hashCode());
+    assertEquals(set, other);
+    assertEquals(set, new HashSet<>(paths));
+    assertEquals(new HashSet<>(paths), set);
+    other.remove("README.md");
+    assertNotEquals(set, other);
+  }
+
+  @Test
+  void shouldGrowBeyondInitialCapacity() {
+    var table = new PathTable();
+    var set = table.newSet();
+    for (int i = 0; i < 20_000; i++) {
+      set.add("module" + (i % 50) + "/src/File" + i + ".java");
+    }
+
+    assertEquals(20_000, set.size());
+    for (int i = 0; i < 20_000; i += 997) {
+      var path = "module" + (i % 50) + "/src/File" + i + ".java";
+      assertTrue(set.contains(path));
+      assertEquals(path, table.path(table.find(path)));
+    }
+    assertEquals(20_000 + 100, table.size());
+  }
+}